@@ -0,0 +1,70 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+import cy.com.nicpoyia.rbf.scoring.BulkScorer;
+import cy.com.nicpoyia.rbf.scoring.InferenceCache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RBF model bulk scoring launcher.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class BulkScoringLauncher {
+    // Default scoring settings
+    private static final int defaultBatchSize = 1024;
+    // I/O buffer size (chars)
+    private static final int bufferSize = 1 << 16;
+
+    /**
+     * Launcher method. Arguments: model file, compounds file, output file, and
+     * optionally batch size, number of threads (0: all processors), number of
+     * cached results (0: no inference cache) and input quantization resolution
+     * (0: exact inputs).
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: BulkScoringLauncher modelFile compoundsFile outputFile [batchSize] [numThreads]"
+                    + " [inferenceCacheEntries] [inferenceCacheResolution]");
+            System.exit(1);
+        }
+        RBFModel model = RBFModelFile.load(args[0]);
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : defaultBatchSize;
+        int numThreads = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        if (numThreads <= 0)
+            numThreads = Runtime.getRuntime().availableProcessors();
+        int inferenceCacheEntries = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        double inferenceCacheResolution = args.length > 6 ? Double.parseDouble(args[6]) : 0.0;
+        InferenceCache inferenceCache = inferenceCacheEntries > 0
+                ? new InferenceCache(inferenceCacheEntries, inferenceCacheResolution) : null;
+        BufferedReader compoundsReader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(args[1]), StandardCharsets.UTF_8), bufferSize);
+        Writer outputWriter = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(args[2]), StandardCharsets.UTF_8), bufferSize);
+        long startTime = System.currentTimeMillis();
+        long numOfCompounds;
+        try {
+            numOfCompounds = new BulkScorer(model, batchSize, numThreads, inferenceCache).score(compoundsReader,
+                    outputWriter);
+        } finally {
+            compoundsReader.close();
+            outputWriter.close();
+        }
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        System.out.println(numOfCompounds + " compounds scored in " + elapsedTime + " ms");
+        if (inferenceCache != null)
+            System.out.print(inferenceCache.getReport());
+    }
+
+}
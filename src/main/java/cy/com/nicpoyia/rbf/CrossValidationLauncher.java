@@ -0,0 +1,47 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.training.CrossValidation;
+
+import java.util.Arrays;
+
+/**
+ * RBF network cross-validation launcher.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class CrossValidationLauncher {
+    // Default number of folds
+    private static final int defaultNumOfFolds = 5;
+    // Seed used to assign data-sets to folds
+    private static final long foldsSeed = 30;
+
+    /**
+     * Launcher method. The optional argument is the number of folds, or "loo"
+     * for leave-one-out cross-validation.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        int numOfFolds = defaultNumOfFolds;
+        if (args.length > 0)
+            numOfFolds = args[0].equals("loo") ? dataMatrix.getNumOfDataSets() : Integer.parseInt(args[0]);
+        CrossValidation crossValidation = new CrossValidation(configuration, dataMatrix, numOfFolds, foldsSeed);
+        long startTime = System.currentTimeMillis();
+        double[] foldErrors = crossValidation.execute(0);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        double pooledError = 0.0;
+        for (double foldError : foldErrors)
+            pooledError += foldError;
+        System.out.println(crossValidation.getNumOfFolds() + " folds trained in " + elapsedTime + " ms");
+        System.out.println("Fold testing errors: " + Arrays.toString(foldErrors));
+        System.out.println("Mean fold error: " + CrossValidation.mean(foldErrors) + " (std "
+                + CrossValidation.standardDeviation(foldErrors) + ")");
+        System.out.println("Pooled testing error: " + pooledError);
+    }
+
+}
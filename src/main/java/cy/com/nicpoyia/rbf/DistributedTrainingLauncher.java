@@ -0,0 +1,68 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+import cy.com.nicpoyia.rbf.training.DistributedTrainingCoordinator;
+import cy.com.nicpoyia.rbf.training.DistributedTrainingWorker;
+
+/**
+ * RBF network distributed training launcher, starting either the coordinator
+ * or a worker process. Both load the same parameters and data files.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class DistributedTrainingLauncher {
+    // Default coordinator settings
+    private static final int defaultPort = 9090;
+    private static final int defaultNumOfWorkers = 4;
+    private static final int defaultEpochsPerRound = 10;
+    // Time to wait for a worker to connect or to return a round's result (ms)
+    private static final int workerTimeoutMillis = 60000;
+
+    /**
+     * Launcher method. Arguments: "coordinator" and optionally the number of
+     * workers, epochs per round and port, or "worker" followed by the
+     * coordinator's host and port. The coordinator trains maxIterations epochs
+     * in total.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        if ((args.length < 1) || !(args[0].equals("coordinator") || (args[0].equals("worker") && (args.length >= 3)))) {
+            System.err.println("Usage: DistributedTrainingLauncher coordinator [numOfWorkers] [epochsPerRound] [port]");
+            System.err.println("       DistributedTrainingLauncher worker host port");
+            System.exit(1);
+        }
+        Configuration configuration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        if (args[0].equals("worker")) {
+            int numOfRounds = new DistributedTrainingWorker(configuration, dataMatrix)
+                    .run(args[1], Integer.parseInt(args[2]));
+            System.out.println("Worker stopped after " + numOfRounds + " rounds");
+            return;
+        }
+        int numOfWorkers = args.length > 1 ? Integer.parseInt(args[1]) : defaultNumOfWorkers;
+        int epochsPerRound = args.length > 2 ? Integer.parseInt(args[2]) : defaultEpochsPerRound;
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : defaultPort;
+        DistributedTrainingCoordinator coordinator = new DistributedTrainingCoordinator(configuration, dataMatrix,
+                numOfWorkers, epochsPerRound, port, workerTimeoutMillis);
+        System.out.println("Coordinator listening on port " + coordinator.getPort());
+        int numOfRounds = (int) ((configuration.maxIterations + epochsPerRound - 1) / epochsPerRound);
+        long startTime = System.currentTimeMillis();
+        RBFModel model;
+        try {
+            model = coordinator.train(numOfRounds);
+        } finally {
+            coordinator.close();
+        }
+        System.out.println(numOfRounds + " rounds trained in " + (System.currentTimeMillis() - startTime) + " ms");
+        System.out.println("Training error: " + coordinator.getResults().getLastTrainingError());
+        System.out.println("Testing error: " + coordinator.getResults().getLastTestingError());
+        if (configuration.modelFile != null)
+            RBFModelFile.save(model, configuration.modelFile);
+    }
+
+}
@@ -0,0 +1,53 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFEnsembleModel;
+import cy.com.nicpoyia.rbf.training.BaggingEnsemble;
+
+/**
+ * RBF network bagging ensemble launcher.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class EnsembleLauncher {
+    // Default number of members
+    private static final int defaultNumOfMembers = 10;
+    // Seed used to draw the bootstrap resamples
+    private static final long bootstrapSeed = 31;
+
+    /**
+     * Launcher method. The optional argument is the number of members.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        int numOfMembers = args.length > 0 ? Integer.parseInt(args[0]) : defaultNumOfMembers;
+        long startTime = System.currentTimeMillis();
+        RBFEnsembleModel ensemble = new BaggingEnsemble(configuration, dataMatrix, numOfMembers, bootstrapSeed)
+                .train(0);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        System.out.println(numOfMembers + " members trained in " + elapsedTime + " ms");
+        // Evaluate the ensemble mean on the testing data-sets
+        double squaredErrorSum = 0.0;
+        double varianceSum = 0.0;
+        int[] testingRows = dataMatrix.getTestingIndices();
+        int numOfOutputs = dataMatrix.getNumOfOutputs();
+        for (int row : testingRows) {
+            double[][] meanAndVariance = ensemble.getMeanAndVariance(dataMatrix.getAttributeValues(row));
+            for (int i = 0; i < numOfOutputs; i++) {
+                double error = dataMatrix.getActivity(row, i) - meanAndVariance[0][i];
+                squaredErrorSum += error * error;
+                varianceSum += meanAndVariance[1][i];
+                System.out.println("Target " + dataMatrix.getActivity(row, i) + " ---> mean " + meanAndVariance[0][i]
+                        + ", variance " + meanAndVariance[1][i]);
+            }
+        }
+        System.out.println("Ensemble testing error: " + (0.5 * squaredErrorSum));
+        System.out.println("Mean member variance: " + (varianceSum / (testingRows.length * numOfOutputs)));
+    }
+
+}
@@ -0,0 +1,39 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.training.HyperparameterSearch;
+import cy.com.nicpoyia.rbf.training.SearchSpace;
+import cy.com.nicpoyia.rbf.training.SearchTrial;
+
+import java.util.List;
+
+/**
+ * RBF network hyperparameter search launcher.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class HyperparameterSearchLauncher {
+    // Number of best trials printed
+    private static final int numOfReportedTrials = 10;
+
+    /**
+     * Launcher method. Loads the data-sets once and searches the values given
+     * in the search space file, starting from the parameters file.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        SearchSpace searchSpace = new SearchSpace();
+        long startTime = System.currentTimeMillis();
+        List<SearchTrial> trials = new HyperparameterSearch(configuration, searchSpace, dataMatrix).execute();
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        System.out.println(trials.size() + " configurations searched in " + elapsedTime + " ms");
+        for (int i = 0; i < Math.min(numOfReportedTrials, trials.size()); i++)
+            System.out.println((i + 1) + ". " + trials.get(i));
+    }
+
+}
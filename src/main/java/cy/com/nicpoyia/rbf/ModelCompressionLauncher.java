@@ -0,0 +1,61 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.CentreEncoding;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.ModelCompressor;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+
+/**
+ * RBF model compression launcher. Compares the testing error of the original
+ * and the compressed model on the testing data sets of the configured data file.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ModelCompressionLauncher {
+    // Default compression settings
+    private static final double defaultMergeTolerance = 0.05;
+    private static final double defaultDropThreshold = 1e-3;
+
+    /**
+     * Launcher method. Arguments: model file, compressed model file, and
+     * optionally merge tolerance, drop threshold and centre encoding (double,
+     * float, float16 or int8).
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ModelCompressionLauncher modelFile compressedModelFile "
+                    + "[mergeTolerance] [dropThreshold] [centreEncoding]");
+            System.exit(1);
+        }
+        RBFModel model = RBFModelFile.load(args[0]);
+        double mergeTolerance = args.length > 2 ? Double.parseDouble(args[2]) : defaultMergeTolerance;
+        double dropThreshold = args.length > 3 ? Double.parseDouble(args[3]) : defaultDropThreshold;
+        CentreEncoding centreEncoding = args.length > 4 ? CentreEncoding.fromParameterName(args[4]) : null;
+        RBFModel compressedModel = new ModelCompressor(mergeTolerance, dropThreshold, centreEncoding).compress(model);
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(new Configuration()).getDataMatrix();
+        int[] testingRows = dataMatrix.getTestingIndices();
+        printModel("Original model", model, ModelCompressor.calculateError(model, dataMatrix, testingRows));
+        printModel("Compressed model", compressedModel,
+                ModelCompressor.calculateError(compressedModel, dataMatrix, testingRows));
+        RBFModelFile.save(compressedModel, args[1]);
+    }
+
+    /**
+     * Prints a model's size and testing error.
+     *
+     * @param title        Model title
+     * @param model        Model
+     * @param testingError Testing error
+     */
+    private static void printModel(String title, RBFModel model, double testingError) {
+        System.out.println(title + ": " + model.getNumHiddenNodes() + " hidden nodes, "
+                + model.getCentreEncoding().getParameterName() + " centres of "
+                + model.getCentreMatrixBytes() + " bytes, testing error " + testingError);
+    }
+
+}
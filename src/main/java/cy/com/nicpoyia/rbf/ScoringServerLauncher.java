@@ -0,0 +1,59 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+import cy.com.nicpoyia.rbf.scoring.InferenceCache;
+import cy.com.nicpoyia.rbf.scoring.ModelRegistry;
+import cy.com.nicpoyia.rbf.scoring.ScoringServer;
+
+import java.io.File;
+
+/**
+ * RBF model scoring server launcher.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ScoringServerLauncher {
+    // Default server settings
+    private static final int defaultPort = 8080;
+    private static final long defaultLatencyWindowMicros = 500;
+    private static final int defaultMaxBatchSize = 64;
+    private static final long defaultCacheMegabytes = 256;
+    private static final int numRequestThreads = 16;
+
+    /**
+     * Launcher method. Arguments: model file (or directory of model files),
+     * and optionally port, latency window (us), maximum batch size, model
+     * cache size (MB), number of cached results (0: no inference cache) and
+     * input quantization resolution (0: exact inputs).
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ScoringServerLauncher modelFile|modelsDirectory [port] [latencyWindowMicros]"
+                    + " [maxBatchSize] [cacheMegabytes] [inferenceCacheEntries] [inferenceCacheResolution]");
+            System.exit(1);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : defaultPort;
+        long latencyWindowMicros = args.length > 2 ? Long.parseLong(args[2]) : defaultLatencyWindowMicros;
+        int maxBatchSize = args.length > 3 ? Integer.parseInt(args[3]) : defaultMaxBatchSize;
+        long cacheMegabytes = args.length > 4 ? Long.parseLong(args[4]) : defaultCacheMegabytes;
+        int inferenceCacheEntries = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        double inferenceCacheResolution = args.length > 6 ? Double.parseDouble(args[6]) : 0.0;
+        InferenceCache inferenceCache = inferenceCacheEntries > 0
+                ? new InferenceCache(inferenceCacheEntries, inferenceCacheResolution) : null;
+        // A directory is served as a registry of models, a file as the default model
+        RBFModel model = null;
+        ModelRegistry registry = null;
+        if (new File(args[0]).isDirectory())
+            registry = new ModelRegistry(args[0], cacheMegabytes * 1024 * 1024, inferenceCache);
+        else
+            model = RBFModelFile.load(args[0]);
+        ScoringServer server = new ScoringServer(model, registry, inferenceCache, port, latencyWindowMicros,
+                maxBatchSize, numRequestThreads);
+        server.start();
+        System.out.println("Scoring server listening on port " + server.getPort());
+    }
+
+}
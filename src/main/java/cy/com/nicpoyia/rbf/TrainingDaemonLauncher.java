@@ -0,0 +1,51 @@
+package cy.com.nicpoyia.rbf;
+
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.training.TrainingDaemon;
+
+/**
+ * RBF network training daemon launcher.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class TrainingDaemonLauncher {
+    // Default daemon settings
+    private static final int defaultMaxQueuedJobs = 16;
+    private static final long pollIntervalMillis = 500;
+
+    /**
+     * Launcher method. Arguments: job directory, and optionally the number of
+     * jobs trained concurrently (default: number of processors) and the
+     * maximum number of claimed jobs waiting for a thread. Jobs override the
+     * parameters file. On shutdown, claimed jobs are finished first.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: TrainingDaemonLauncher jobsDirectory [numThreads] [maxQueuedJobs]");
+            System.exit(1);
+        }
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxQueuedJobs = args.length > 2 ? Integer.parseInt(args[2]) : defaultMaxQueuedJobs;
+        final TrainingDaemon daemon = new TrainingDaemon(new Configuration(), args[0], numThreads, maxQueuedJobs,
+                pollIntervalMillis);
+        final Thread daemonThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                daemon.stop();
+                try {
+                    daemonThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }));
+        System.out.println("Training daemon watching " + args[0] + " with " + numThreads + " threads");
+        daemon.run();
+        System.out.println("Training daemon stopped after " + daemon.getNumOfCompletedJobs() + " completed and "
+                + daemon.getNumOfFailedJobs() + " failed jobs");
+    }
+
+}
@@ -9,26 +9,27 @@ package cy.com.nicpoyia.rbf.compound_activity_data;
 public class CompoundData {
 	// Number of attributes that should be contained within a compound sample
 	public static final int numOfAttributes = 53;
-	// Normalized attribute values
+	// Normalized attribute values (principal component values, once projected)
 	double[] normalizedAttributeValues;
-	// Normalized activity of the represented compound
-	double activity;
+	// Activities of the represented compound, one per network output
+	double[] activities;
 
 	/**
 	 * Constructs a compound data-set.
 	 * 
 	 * @param normalizedAttributeValues
 	 *            Normalized values for all attributes in the right order.
-	 * @param activity
-	 *            Normalized activity of the represented compound
+	 * @param activities
+	 *            Activities of the represented compound, one per network
+	 *            output
 	 */
-	public CompoundData(double[] normalizedAttributeValues, double activity) {
+	public CompoundData(double[] normalizedAttributeValues, double[] activities) {
 		// Check data-set's validity
 		if (normalizedAttributeValues.length != numOfAttributes)
 			throw new IllegalArgumentException("The attributes vector must have " + numOfAttributes + " values");
 		// Store data-set's data
 		this.normalizedAttributeValues = normalizedAttributeValues;
-		this.activity = activity;
+		this.activities = activities;
 	}
 
 	/**
@@ -38,9 +39,9 @@ public class CompoundData {
 	 */
 	public String getAttributesVectorString() {
 		StringBuilder vectorString = new StringBuilder();
-		for (int i = 0; i < numOfAttributes; i++) {
+		for (int i = 0; i < normalizedAttributeValues.length; i++) {
 			vectorString.append(normalizedAttributeValues[i]);
-			if (i < (numOfAttributes - 1))
+			if (i < (normalizedAttributeValues.length - 1))
 				vectorString.append(", ");
 		}
 		return vectorString.toString();
@@ -10,25 +10,34 @@ import java.util.Random;
 
 /**
  * Class responsible for compound data-sets handling (normalization of values,
- * training and testing data separation)
+ * training and testing data separation, optional principal components
+ * projection)
  *
  * @author Nicolas Poyiadjis
  */
 public class CompoundDataHandler {
     // Number of given data-sets
     int dataSetsCount;
+    // Number of activities per data-set (network outputs)
+    private final int numOfOutputs;
     // Original attribute values for each data-set
     List<Double[]> dataSetsAttributeValues;
-    // Represented character for each data-set
-    List<Double> dataSetsRepresentedActivities;
+    // Represented activities for each data-set
+    List<double[]> dataSetsRepresentedActivities;
     // Normalized attribute values per attribute
     List<Double[]> normalizedDataSetsAttributeValues;
     // Normalized data-sets
     List<CompoundData> dataSets;
+    // Min-max normalization of the attributes
+    private NormalizationTransform normalizationTransform;
     // Training data-sets
     private List<CompoundData> trainingDataSets;
     // Testing data-sets
     private List<CompoundData> testingDataSets;
+    // Indices of the training data-sets
+    private List<Integer> trainingDataSetIndices;
+    // Indices of the testing data-sets
+    private List<Integer> testingDataSetIndices;
 
     /**
      * Constructs a data-set handler.
@@ -38,12 +47,15 @@ public class CompoundDataHandler {
     public CompoundDataHandler(Configuration configuration) throws Exception {
         // Initialize instance attributes and structures
         dataSetsCount = 0;
+        numOfOutputs = Math.max(1, configuration.numOutputNeurons);
         dataSetsAttributeValues = new ArrayList<Double[]>();
-        dataSetsRepresentedActivities = new ArrayList<Double>();
+        dataSetsRepresentedActivities = new ArrayList<double[]>();
         normalizedDataSetsAttributeValues = new ArrayList<Double[]>();
         dataSets = new ArrayList<CompoundData>();
         trainingDataSets = new ArrayList<CompoundData>();
         testingDataSets = new ArrayList<CompoundData>();
+        trainingDataSetIndices = new ArrayList<Integer>();
+        testingDataSetIndices = new ArrayList<Integer>();
         // Read data-sets from file
         readDataSetsFile(configuration.dataFile);
         try {
@@ -57,6 +69,9 @@ public class CompoundDataHandler {
         }
         // Separate training and testing data-sets
         separateTrainingTestingDataSets();
+        // Project attribute values onto their principal components
+        if ((configuration.pcaComponents > 0) || (configuration.pcaVarianceThreshold > 0.0))
+            projectDataSets(configuration);
         // Select centres and save them into a file
         selectCentres(configuration.numHiddenLayerNeurons, configuration.centresFile);
     }
@@ -79,6 +94,29 @@ public class CompoundDataHandler {
         return testingDataSets;
     }
 
+    /**
+     * Normalization transform getter method.
+     *
+     * @return Min-max normalization of the attributes
+     */
+    public NormalizationTransform getNormalizationTransform() {
+        return normalizationTransform;
+    }
+
+    /**
+     * Generates an immutable data matrix of all normalized data-sets, that can
+     * be shared among networks.
+     *
+     * @return Data matrix
+     */
+    public CompoundDataMatrix getDataMatrix() {
+        double[][] attributeRows = new double[dataSets.size()][];
+        for (int i = 0; i < dataSets.size(); i++)
+            attributeRows[i] = dataSets.get(i).normalizedAttributeValues.clone();
+        return new CompoundDataMatrix(attributeRows, flattenActivities(dataSets), numOfOutputs,
+                toIndexArray(trainingDataSetIndices), toIndexArray(testingDataSetIndices), normalizationTransform);
+    }
+
     /**
      * Generates a list of the input values for each data-set.
      *
@@ -96,19 +134,17 @@ public class CompoundDataHandler {
     }
 
     /**
-     * Generates a list of the target output values for each data-set.
+     * Generates a flat array of the target output values for each data-set,
+     * one value per network output.
      *
      * @param trainingTesting true: Training Data-sets / false: Testing data-sets
-     * @return List of data-set target outputs.
+     * @return Data-set target outputs (data-sets x outputs).
      */
     public double[] getTargetOutputValuesDataSets(boolean trainingTesting) {
         List<CompoundData> dataSets = trainingDataSets;
         if (!trainingTesting)
             dataSets = testingDataSets;
-        double[] targetOutputValues = new double[dataSetsCount];
-        for (int i = 0; i < dataSets.size(); i++)
-            targetOutputValues[i] = dataSets.get(i).activity;
-        return targetOutputValues;
+        return flattenActivities(dataSets);
     }
 
     /**
@@ -141,7 +177,8 @@ public class CompoundDataHandler {
     }
 
     /**
-     * Decodes information from a data-set line.
+     * Decodes information from a data-set line: the compound, one activity per
+     * network output and the attribute values.
      *
      * @param dataSetLine Data-set line as a string
      * @return Whether data-set line has been successfully read
@@ -151,17 +188,24 @@ public class CompoundDataHandler {
             return false;
         // Get data-set line's elements
         String[] lineElements = dataSetLine.split(",");
-        if (lineElements.length != (CompoundData.numOfAttributes + 2))
+        if (lineElements.length != (CompoundData.numOfAttributes + numOfOutputs + 1))
             return false;
-        // Get compound's activity
-        String representedActivityString = lineElements[1];
-        if (representedActivityString.equals("<-1*"))
-            representedActivityString = "-1";
-        Double representedActivity = Double.parseDouble(representedActivityString);
+        // Get compound's activities
+        double[] representedActivities = new double[numOfOutputs];
+        for (int i = 0; i < numOfOutputs; i++) {
+            String representedActivityString = lineElements[i + 1];
+            if (representedActivityString.equals("<-1*"))
+                representedActivityString = "-1";
+            try {
+                representedActivities[i] = Double.parseDouble(representedActivityString);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
         // Get data-set's attribute values
         Double[] attributeValues = new Double[CompoundData.numOfAttributes];
         for (int i = 0; i < CompoundData.numOfAttributes; i++) {
-            String nextAttributeValueString = lineElements[i + 2];
+            String nextAttributeValueString = lineElements[i + numOfOutputs + 1];
             if (nextAttributeValueString.length() == 0)
                 return false;
             Double nextAttributeValue = null;
@@ -175,7 +219,7 @@ public class CompoundDataHandler {
         }
         // Store decoded data-set information
         dataSetsAttributeValues.add(attributeValues);
-        dataSetsRepresentedActivities.add(representedActivity);
+        dataSetsRepresentedActivities.add(representedActivities);
         return true;
     }
 
@@ -186,6 +230,9 @@ public class CompoundDataHandler {
      * @throws Exception In case of normalization error
      */
     private void normilizeAllAttributeValues() throws Exception {
+        double[] minValues = new double[CompoundData.numOfAttributes];
+        double[] ranges = new double[CompoundData.numOfAttributes];
+        normalizationTransform = new NormalizationTransform(minValues, ranges);
         for (int i = 0; i < CompoundData.numOfAttributes; i++) {
             Double[] attributeValues = new Double[dataSetsCount];
             for (int j = 0; j < dataSetsCount; j++) {
@@ -193,7 +240,7 @@ public class CompoundDataHandler {
             }
             Double[] normalizedAttributeValues = null;
             try {
-                normalizedAttributeValues = normilizeAttributeValues(attributeValues);
+                normalizedAttributeValues = normilizeAttributeValues(attributeValues, minValues, ranges, i);
             } catch (Exception e) {
                 throw new Exception("Error while normilizing values of attribute " + i + " (" + e.getMessage() + ")");
             }
@@ -203,13 +250,18 @@ public class CompoundDataHandler {
 
     /**
      * Normalizes the attribute value of a single data-set, by using min-max
-     * normalization, between [0,1].
+     * normalization, between [0,1]. The attribute's minimum value and range are
+     * stored into the normalization transform's arrays.
      *
      * @param attributeValues All data-sets' values for a single attribute
+     * @param minValues       Minimum value of each attribute
+     * @param ranges          Range of each attribute
+     * @param attribute       Attribute index
      * @return Normalized attribute values in corresponding order.
      * @throws Exception IllegalArgumentException | NullPointerException
      */
-    private Double[] normilizeAttributeValues(Double[] attributeValues) throws Exception {
+    private Double[] normilizeAttributeValues(Double[] attributeValues, double[] minValues, double[] ranges,
+                                              int attribute) throws Exception {
         if (attributeValues == null)
             throw new IllegalArgumentException("attributeValues should not be null");
         // Detect maximum and minimum values
@@ -226,9 +278,11 @@ public class CompoundDataHandler {
         }
         // Normalize values by using min-max normalization
         Double minMaxVariance = maxValue - minValue;
+        minValues[attribute] = minValue;
+        ranges[attribute] = minMaxVariance;
         Double[] normalizedValues = new Double[dataSetsCount];
         for (int i = 0; i < dataSetsCount; i++) {
-            normalizedValues[i] = (attributeValues[i] - minValue) / minMaxVariance;
+            normalizedValues[i] = normalizationTransform.normalize(attribute, attributeValues[i]);
         }
         return normalizedValues;
     }
@@ -240,14 +294,14 @@ public class CompoundDataHandler {
     private void generateDataSets() throws Exception {
         for (int i = 0; i < dataSetsCount; i++) {
             // Generate the DataSet instance
-            Double representedActivity = dataSetsRepresentedActivities.get(i);
+            double[] representedActivities = dataSetsRepresentedActivities.get(i);
             double normalizedAttributeValues[] = new double[CompoundData.numOfAttributes];
             for (int j = 0; j < CompoundData.numOfAttributes; j++) {
                 normalizedAttributeValues[j] = normalizedDataSetsAttributeValues.get(j)[i];
             }
             CompoundData nextDataSet = null;
             try {
-                nextDataSet = new CompoundData(normalizedAttributeValues, representedActivity);
+                nextDataSet = new CompoundData(normalizedAttributeValues, representedActivities);
             } catch (IllegalArgumentException e) {
                 throw new Exception("Error while intantiating DataSet " + i + " (" + e.getMessage() + ")");
             }
@@ -266,15 +320,40 @@ public class CompoundDataHandler {
             int[] nextGroup = new int[]{i, i + 1, i + 2};
             for (int j = 0; j < nextGroup.length; j++) {
                 if ((i + j) < dataSetsCount) {
-                    if (j <= 1)
+                    if (j <= 1) {
                         trainingDataSets.add(dataSets.get(i + j));
-                    else
+                        trainingDataSetIndices.add(i + j);
+                    } else {
                         testingDataSets.add(dataSets.get(i + j));
+                        testingDataSetIndices.add(i + j);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Projects the normalized attribute values of all data-sets onto their
+     * principal components, which are computed over all data-sets, as the
+     * min-max normalization is. The projection is appended to the
+     * normalization transform, and the configuration's number of inputs is
+     * set to the number of components.
+     *
+     * @param configuration Configuration
+     * @throws Exception In case the principal components could not be computed
+     */
+    private void projectDataSets(Configuration configuration) throws Exception {
+        double[][] attributeRows = new double[dataSetsCount][];
+        for (int i = 0; i < dataSetsCount; i++)
+            attributeRows[i] = dataSets.get(i).normalizedAttributeValues;
+        PrincipalComponents principalComponents = PrincipalComponents.compute(attributeRows,
+                configuration.pcaComponents, configuration.pcaVarianceThreshold);
+        for (CompoundData dataSet : dataSets)
+            dataSet.normalizedAttributeValues = principalComponents.project(dataSet.normalizedAttributeValues);
+        normalizationTransform = normalizationTransform.withPrincipalComponents(principalComponents);
+        configuration.numInputNeurons = principalComponents.getNumOfComponents();
+    }
+
     /**
      * Selects the initial centres to be used and saves them into a file.
      *
@@ -311,4 +390,31 @@ public class CompoundDataHandler {
         }
     }
 
+    /**
+     * Flattens the activities of data-sets into a single array, numOfOutputs
+     * values per data-set.
+     *
+     * @param dataSets Data-sets
+     * @return Activities (data-sets x outputs)
+     */
+    private double[] flattenActivities(List<CompoundData> dataSets) {
+        double[] activities = new double[dataSets.size() * numOfOutputs];
+        for (int i = 0; i < dataSets.size(); i++)
+            System.arraycopy(dataSets.get(i).activities, 0, activities, i * numOfOutputs, numOfOutputs);
+        return activities;
+    }
+
+    /**
+     * Converts a list of data-set indices into an array.
+     *
+     * @param indices List of data-set indices
+     * @return Array of data-set indices
+     */
+    private static int[] toIndexArray(List<Integer> indices) {
+        int[] indexArray = new int[indices.size()];
+        for (int i = 0; i < indexArray.length; i++)
+            indexArray[i] = indices.get(i);
+        return indexArray;
+    }
+
 }
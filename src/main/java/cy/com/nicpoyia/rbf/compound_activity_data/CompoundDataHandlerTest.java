@@ -33,7 +33,7 @@ public class CompoundDataHandlerTest {
 		List<CompoundData> trainingSets = compoundDataHandler.getTrainingDataSets();
 		for (int i = 0; i < trainingSets.size(); i++) {
 			CompoundData nextDataSet = trainingSets.get(i);
-			double nextDataSetRepresentedActivity = nextDataSet.activity;
+			String nextDataSetRepresentedActivity = Arrays.toString(nextDataSet.activities);
 			String nextDataSetAttributeValues = Arrays.toString(nextDataSet.normalizedAttributeValues);
 			System.out.println("Training data-set " + i + ":");
 			System.out.println("\t" + nextDataSetRepresentedActivity + " ---> " + nextDataSetAttributeValues);
@@ -43,7 +43,7 @@ public class CompoundDataHandlerTest {
 		List<CompoundData> testingSets = compoundDataHandler.getTestingDataSets();
 		for (int i = 0; i < testingSets.size(); i++) {
 			CompoundData nextDataSet = testingSets.get(i);
-			double nextDataSetRepresentedActivity = nextDataSet.activity;
+			String nextDataSetRepresentedActivity = Arrays.toString(nextDataSet.activities);
 			String nextDataSetAttributeValues = Arrays.toString(nextDataSet.normalizedAttributeValues);
 			System.out.println("Testing data-set " + i + ":");
 			System.out.println("\t" + nextDataSetRepresentedActivity + " ---> " + nextDataSetAttributeValues);
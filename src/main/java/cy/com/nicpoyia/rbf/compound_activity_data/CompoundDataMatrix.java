@@ -0,0 +1,205 @@
+package cy.com.nicpoyia.rbf.compound_activity_data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class representing an immutable, in-memory matrix of normalized compound
+ * data-sets, together with the default training and testing separation. A
+ * single instance can be shared by any number of networks trained
+ * concurrently, which only ever read from it. Subsets of the data-sets are
+ * addressed by arrays of row indices, so that no attribute values are copied.
+ * Each data-set may carry several activities (e.g. assay endpoints), one per
+ * network output, held in a single flat data-sets x outputs matrix.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class CompoundDataMatrix {
+    // Normalized attribute values of each data-set (row)
+    private final double[][] attributeRows;
+    // Activities of each data-set (numOfDataSets x numOfOutputs)
+    private final double[] activities;
+    // Number of activities per data-set
+    private final int numOfOutputs;
+    // Rows of the default training data-sets
+    private final int[] trainingIndices;
+    // Rows of the default testing data-sets
+    private final int[] testingIndices;
+    // Normalization the attribute values were produced with, or null
+    private final NormalizationTransform normalizationTransform;
+
+    /**
+     * Constructs a data matrix of a single activity per data-set. The given
+     * arrays are owned by the matrix from then on and must not be modified.
+     *
+     * @param attributeRows          Normalized attribute values of each data-set
+     * @param activities             Activity of each data-set
+     * @param trainingIndices        Rows of the default training data-sets
+     * @param testingIndices         Rows of the default testing data-sets
+     * @param normalizationTransform Normalization of the attribute values, or null
+     */
+    public CompoundDataMatrix(double[][] attributeRows, double[] activities, int[] trainingIndices,
+                              int[] testingIndices, NormalizationTransform normalizationTransform) {
+        this(attributeRows, activities, 1, trainingIndices, testingIndices, normalizationTransform);
+    }
+
+    /**
+     * Constructs a data matrix. The given arrays are owned by the matrix from
+     * then on and must not be modified.
+     *
+     * @param attributeRows          Normalized attribute values of each data-set
+     * @param activities             Activities of each data-set, numOfOutputs per data-set
+     * @param numOfOutputs           Number of activities per data-set
+     * @param trainingIndices        Rows of the default training data-sets
+     * @param testingIndices         Rows of the default testing data-sets
+     * @param normalizationTransform Normalization of the attribute values, or null
+     */
+    public CompoundDataMatrix(double[][] attributeRows, double[] activities, int numOfOutputs, int[] trainingIndices,
+                              int[] testingIndices, NormalizationTransform normalizationTransform) {
+        if ((numOfOutputs <= 0) || (attributeRows.length * numOfOutputs != activities.length))
+            throw new IllegalArgumentException(numOfOutputs + " activities are required per data-set");
+        this.attributeRows = attributeRows;
+        this.activities = activities;
+        this.numOfOutputs = numOfOutputs;
+        this.trainingIndices = trainingIndices;
+        this.testingIndices = testingIndices;
+        this.normalizationTransform = normalizationTransform;
+    }
+
+    /**
+     * Number of data-sets getter method.
+     *
+     * @return Number of data-sets (rows)
+     */
+    public int getNumOfDataSets() {
+        return attributeRows.length;
+    }
+
+    /**
+     * Number of attributes getter method.
+     *
+     * @return Number of attributes (columns)
+     */
+    public int getNumOfAttributes() {
+        return attributeRows.length == 0 ? 0 : attributeRows[0].length;
+    }
+
+    /**
+     * Number of outputs getter method.
+     *
+     * @return Number of activities per data-set
+     */
+    public int getNumOfOutputs() {
+        return numOfOutputs;
+    }
+
+    /**
+     * Default training rows getter method.
+     *
+     * @return Rows of the default training data-sets
+     */
+    public int[] getTrainingIndices() {
+        return trainingIndices.clone();
+    }
+
+    /**
+     * Default testing rows getter method.
+     *
+     * @return Rows of the default testing data-sets
+     */
+    public int[] getTestingIndices() {
+        return testingIndices.clone();
+    }
+
+    /**
+     * Normalization transform getter method.
+     *
+     * @return Normalization the attribute values were produced with, or null
+     */
+    public NormalizationTransform getNormalizationTransform() {
+        return normalizationTransform;
+    }
+
+    /**
+     * Returns the normalized attribute values of a data-set. The returned array
+     * is shared and must not be modified.
+     *
+     * @param row Data-set row
+     * @return Normalized attribute values
+     */
+    public double[] getAttributeValues(int row) {
+        return attributeRows[row];
+    }
+
+    /**
+     * Returns the (first) activity of a data-set.
+     *
+     * @param row Data-set row
+     * @return Activity
+     */
+    public double getActivity(int row) {
+        return activities[row * numOfOutputs];
+    }
+
+    /**
+     * Returns an activity of a data-set.
+     *
+     * @param row    Data-set row
+     * @param output Output index
+     * @return Activity
+     */
+    public double getActivity(int row, int output) {
+        return activities[row * numOfOutputs + output];
+    }
+
+    /**
+     * Generates a list of the input values of the given rows. The list holds
+     * references to the shared rows, which must not be modified.
+     *
+     * @param rows Data-set rows
+     * @return List of data-set inputs
+     */
+    public List<double[]> getInputValues(int[] rows) {
+        List<double[]> inputValues = new ArrayList<double[]>(rows.length);
+        for (int row : rows)
+            inputValues.add(attributeRows[row]);
+        return inputValues;
+    }
+
+    /**
+     * Generates a flat array of the target output values of the given rows,
+     * numOfOutputs values per row.
+     *
+     * @param rows Data-set rows
+     * @return Data-set target outputs (rows x numOfOutputs)
+     */
+    public double[] getTargetOutputValues(int[] rows) {
+        double[] targetOutputValues = new double[rows.length * numOfOutputs];
+        for (int i = 0; i < rows.length; i++)
+            System.arraycopy(activities, rows[i] * numOfOutputs, targetOutputValues, i * numOfOutputs, numOfOutputs);
+        return targetOutputValues;
+    }
+
+    /**
+     * Selects initial centres among the given rows, evenly spaced and filled in
+     * randomly if more centres than rows are requested. The centres are copies,
+     * so they can be moved during training.
+     *
+     * @param numOfCentres    Number of centres to select
+     * @param rows            Data-set rows to select from
+     * @param randomGenerator Random generator used to fill in centres
+     * @return Centre vectors
+     */
+    public double[][] selectCentres(int numOfCentres, int[] rows, Random randomGenerator) {
+        double[][] centres = new double[numOfCentres][];
+        int selectionStep = Math.max(1, rows.length / Math.max(1, numOfCentres));
+        int centresSelected = 0;
+        for (int i = 0; (i < rows.length) && (centresSelected < numOfCentres); i += selectionStep)
+            centres[centresSelected++] = attributeRows[rows[i]].clone();
+        while (centresSelected < numOfCentres)
+            centres[centresSelected++] = attributeRows[rows[randomGenerator.nextInt(rows.length)]].clone();
+        return centres;
+    }
+
+}
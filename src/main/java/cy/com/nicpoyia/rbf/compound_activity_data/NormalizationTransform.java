@@ -0,0 +1,155 @@
+package cy.com.nicpoyia.rbf.compound_activity_data;
+
+/**
+ * Class representing the immutable min-max normalization of the compound
+ * attributes, as computed from the data-sets file, optionally followed by a
+ * projection onto principal components. Keeping it next to a trained model
+ * allows raw attribute values of new compounds to be scored, using exactly the
+ * arithmetic the training data-sets were normalized with.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class NormalizationTransform {
+    // Minimum value of each attribute
+    private final double[] minValues;
+    // Difference between the maximum and the minimum value of each attribute
+    private final double[] ranges;
+    // Projection of the normalized values, or null
+    private final PrincipalComponents principalComponents;
+
+    /**
+     * Constructs a normalization transform. The given arrays are owned by the
+     * transform from then on.
+     *
+     * @param minValues Minimum value of each attribute
+     * @param ranges    Difference between maximum and minimum value of each attribute
+     */
+    public NormalizationTransform(double[] minValues, double[] ranges) {
+        this(minValues, ranges, null);
+    }
+
+    /**
+     * Constructs a normalization transform followed by a principal components
+     * projection. The given arrays are owned by the transform from then on.
+     *
+     * @param minValues           Minimum value of each attribute
+     * @param ranges              Difference between maximum and minimum value of each attribute
+     * @param principalComponents Projection of the normalized values, or null
+     */
+    public NormalizationTransform(double[] minValues, double[] ranges, PrincipalComponents principalComponents) {
+        if (minValues.length != ranges.length)
+            throw new IllegalArgumentException("One range is required per minimum value");
+        if ((principalComponents != null) && (principalComponents.getNumOfAttributes() != minValues.length))
+            throw new IllegalArgumentException("Principal components do not match the number of attributes");
+        this.minValues = minValues;
+        this.ranges = ranges;
+        this.principalComponents = principalComponents;
+    }
+
+    /**
+     * Creates a copy of the transform followed by a principal components
+     * projection.
+     *
+     * @param principalComponents Projection of the normalized values
+     * @return Normalization transform
+     */
+    public NormalizationTransform withPrincipalComponents(PrincipalComponents principalComponents) {
+        return new NormalizationTransform(minValues, ranges, principalComponents);
+    }
+
+    /**
+     * Number of attributes getter method.
+     *
+     * @return Number of (raw) attributes
+     */
+    public int getNumOfAttributes() {
+        return minValues.length;
+    }
+
+    /**
+     * Number of inputs getter method.
+     *
+     * @return Number of transformed values, the network inputs
+     */
+    public int getNumOfInputs() {
+        return principalComponents != null ? principalComponents.getNumOfComponents() : minValues.length;
+    }
+
+    /**
+     * Principal components getter method.
+     *
+     * @return Projection of the normalized values, or null
+     */
+    public PrincipalComponents getPrincipalComponents() {
+        return principalComponents;
+    }
+
+    /**
+     * Returns an attribute's minimum value.
+     *
+     * @param attribute Attribute index
+     * @return Minimum value
+     */
+    public double getMinValue(int attribute) {
+        return minValues[attribute];
+    }
+
+    /**
+     * Returns an attribute's range.
+     *
+     * @param attribute Attribute index
+     * @return Difference between maximum and minimum value
+     */
+    public double getRange(int attribute) {
+        return ranges[attribute];
+    }
+
+    /**
+     * Normalizes a single attribute value.
+     *
+     * @param attribute Attribute index
+     * @param value     Raw attribute value
+     * @return Normalized attribute value
+     */
+    public double normalize(int attribute, double value) {
+        return (value - minValues[attribute]) / ranges[attribute];
+    }
+
+    /**
+     * Normalizes a vector of raw attribute values, and projects it if the
+     * transform has principal components.
+     *
+     * @param rawValues Raw attribute values
+     * @return Network input values
+     */
+    public double[] normalize(double[] rawValues) {
+        double[] normalizedValues = rawValues.clone();
+        normalizeInPlace(normalizedValues);
+        return project(normalizedValues);
+    }
+
+    /**
+     * Projects a vector of normalized attribute values onto the principal
+     * components, if the transform has any.
+     *
+     * @param normalizedValues Normalized attribute values
+     * @return Network input values (the given array without principal components)
+     */
+    public double[] project(double[] normalizedValues) {
+        return principalComponents != null ? principalComponents.project(normalizedValues) : normalizedValues;
+    }
+
+    /**
+     * Normalizes a vector of raw attribute values in place, without projecting
+     * it.
+     *
+     * @param values Raw attribute values, replaced by the normalized ones
+     */
+    public void normalizeInPlace(double[] values) {
+        if (values.length != minValues.length)
+            throw new IllegalArgumentException("Input vector must have " + minValues.length + " values");
+        for (int i = 0; i < values.length; i++)
+            values[i] = (values[i] - minValues[i]) / ranges[i];
+    }
+
+}
@@ -0,0 +1,76 @@
+package cy.com.nicpoyia.rbf.compound_activity_data;
+
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Test Driver class for NormalizationTransform class. Checks that the stored
+ * transform reproduces the normalized data-sets, and that a stored model
+ * scores raw attribute values exactly as their normalized counterparts.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class NormalizationTransformTest {
+    // Test sizes
+    private static final int numOfEpochs = 20;
+    private static final int numOfTimedScorings = 100000;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        CompoundDataHandler compoundDataHandler = new CompoundDataHandler(configuration);
+        NormalizationTransform normalizationTransform = compoundDataHandler.getNormalizationTransform();
+        // Raw attribute values of each data-set
+        double[][] rawInputs = new double[compoundDataHandler.dataSetsCount][CompoundData.numOfAttributes];
+        for (int i = 0; i < rawInputs.length; i++)
+            for (int j = 0; j < CompoundData.numOfAttributes; j++)
+                rawInputs[i][j] = compoundDataHandler.dataSetsAttributeValues.get(i)[j];
+        // The transform must reproduce the normalized data-sets exactly
+        int mismatches = 0;
+        for (int i = 0; i < rawInputs.length; i++) {
+            double[] normalizedInput = normalizationTransform.normalize(rawInputs[i]);
+            double[] expectedInput = compoundDataHandler.dataSets.get(i).normalizedAttributeValues;
+            for (int j = 0; j < normalizedInput.length; j++)
+                if (Double.compare(normalizedInput[j], expectedInput[j]) != 0)
+                    mismatches++;
+        }
+        System.out.println("Mismatching normalized values: " + mismatches);
+        // Train a network briefly and pass its model through the model file format
+        Configuration networkConfiguration = new Configuration(configuration);
+        networkConfiguration.resultsFile = null;
+        networkConfiguration.weightsFile = null;
+        networkConfiguration.modelFile = null;
+        CompoundDataMatrix dataMatrix = compoundDataHandler.getDataMatrix();
+        RBFNetwork network = new RBFNetwork(networkConfiguration, dataMatrix);
+        network.executeEpochs(numOfEpochs);
+        ByteArrayOutputStream modelBytes = new ByteArrayOutputStream();
+        RBFModelFile.write(network.createModelSnapshot(), new DataOutputStream(modelBytes));
+        RBFModel model = RBFModelFile.read(new DataInputStream(new ByteArrayInputStream(modelBytes.toByteArray())));
+        double maxDeviation = 0.0;
+        for (int i = 0; i < rawInputs.length; i++) {
+            double rawOutput = model.getRawOutputVector(rawInputs[i])[0];
+            double normalizedOutput = model.getOutputVector(dataMatrix.getAttributeValues(i))[0];
+            maxDeviation = Math.max(maxDeviation, Math.abs(rawOutput - normalizedOutput));
+        }
+        System.out.println("Maximum raw/normalized output deviation: " + maxDeviation);
+        // Single compound scoring latency
+        double checksum = 0.0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numOfTimedScorings; i++)
+            checksum += model.getRawOutputVector(rawInputs[i % rawInputs.length])[0];
+        double meanMicros = (System.nanoTime() - startTime) / 1000.0 / numOfTimedScorings;
+        System.out.println("Mean single compound scoring latency: " + meanMicros + " us (checksum " + checksum + ")");
+    }
+
+}
@@ -0,0 +1,313 @@
+package cy.com.nicpoyia.rbf.compound_activity_data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class representing the immutable projection of normalized attribute values
+ * onto their leading principal components. Distances between projected
+ * vectors cost k instead of 53 operations, while the discarded components
+ * carry the least of the data-sets' variance. The components are the
+ * eigenvectors of the attributes' covariance matrix, whose build is split
+ * over threads by data-set, decomposed by the cyclic Jacobi method.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class PrincipalComponents {
+    // Minimum number of data-sets per covariance chunk
+    private static final int minChunkSize = 64;
+    // Maximum number of Jacobi sweeps
+    private static final int maxSweeps = 100;
+    // Mean of each attribute
+    private final double[] means;
+    // Components (numOfComponents x numOfAttributes), unit vectors by decreasing variance
+    private final double[] components;
+    // Variance along each component
+    private final double[] variances;
+
+    /**
+     * Constructs a principal components projection. The given arrays are owned
+     * by the projection from then on.
+     *
+     * @param means      Mean of each attribute
+     * @param components Components, one unit vector of numOfAttributes values after the other
+     * @param variances  Variance along each component
+     */
+    public PrincipalComponents(double[] means, double[] components, double[] variances) {
+        if ((variances.length == 0) || (components.length != variances.length * means.length))
+            throw new IllegalArgumentException("One component of " + means.length + " values is required per variance");
+        this.means = means;
+        this.components = components;
+        this.variances = variances;
+    }
+
+    /**
+     * Number of attributes getter method.
+     *
+     * @return Number of attributes projected
+     */
+    public int getNumOfAttributes() {
+        return means.length;
+    }
+
+    /**
+     * Number of components getter method.
+     *
+     * @return Number of components, the dimension of projected vectors
+     */
+    public int getNumOfComponents() {
+        return variances.length;
+    }
+
+    /**
+     * Returns an attribute's mean.
+     *
+     * @param attribute Attribute index
+     * @return Mean value
+     */
+    public double getMean(int attribute) {
+        return means[attribute];
+    }
+
+    /**
+     * Returns an attribute's weight in a component.
+     *
+     * @param component Component index
+     * @param attribute Attribute index
+     * @return Component value
+     */
+    public double getComponentValue(int component, int attribute) {
+        return components[component * means.length + attribute];
+    }
+
+    /**
+     * Returns the variance along a component.
+     *
+     * @param component Component index
+     * @return Variance
+     */
+    public double getVariance(int component) {
+        return variances[component];
+    }
+
+    /**
+     * Projects a vector of normalized attribute values.
+     *
+     * @param values Normalized attribute values
+     * @return Component values
+     */
+    public double[] project(double[] values) {
+        if (values.length != means.length)
+            throw new IllegalArgumentException("Input vector must have " + means.length + " values");
+        int numOfAttributes = means.length;
+        double[] projectedValues = new double[variances.length];
+        for (int c = 0; c < projectedValues.length; c++) {
+            double projectedValue = 0.0;
+            int offset = c * numOfAttributes;
+            for (int i = 0; i < numOfAttributes; i++)
+                projectedValue += components[offset + i] * (values[i] - means[i]);
+            projectedValues[c] = projectedValue;
+        }
+        return projectedValues;
+    }
+
+    /**
+     * Computes the principal components of data-sets. The number of components
+     * is either given, or the smallest one whose components explain a given
+     * fraction of the total variance.
+     *
+     * @param rows              Normalized attribute values of each data-set
+     * @param numOfComponents   Number of components (0: use the variance threshold)
+     * @param varianceThreshold Fraction of the total variance the components must explain
+     * @return Principal components
+     * @throws Exception If the covariance matrix could not be built
+     */
+    public static PrincipalComponents compute(double[][] rows, int numOfComponents, double varianceThreshold)
+            throws Exception {
+        if (rows.length < 2)
+            throw new IllegalArgumentException("At least 2 data-sets are required");
+        if ((numOfComponents <= 0) && ((varianceThreshold <= 0.0) || (varianceThreshold > 1.0)))
+            throw new IllegalArgumentException(
+                    "Either a number of components or a variance threshold in (0,1] is required");
+        int numOfAttributes = rows[0].length;
+        double[] means = new double[numOfAttributes];
+        for (double[] row : rows)
+            for (int i = 0; i < numOfAttributes; i++)
+                means[i] += row[i];
+        for (int i = 0; i < numOfAttributes; i++)
+            means[i] /= rows.length;
+        double[] covariance = computeCovariance(rows, means);
+        // Eigenvectors are found as the columns of the accumulated rotations
+        double[] eigenvectors = new double[numOfAttributes * numOfAttributes];
+        for (int i = 0; i < numOfAttributes; i++)
+            eigenvectors[i * numOfAttributes + i] = 1.0;
+        diagonalize(covariance, eigenvectors, numOfAttributes);
+        // Order the components by decreasing variance
+        Integer[] order = new Integer[numOfAttributes];
+        double totalVariance = 0.0;
+        for (int i = 0; i < numOfAttributes; i++) {
+            order[i] = i;
+            totalVariance += Math.max(0.0, covariance[i * numOfAttributes + i]);
+        }
+        final double[] eigenvalues = new double[numOfAttributes];
+        for (int i = 0; i < numOfAttributes; i++)
+            eigenvalues[i] = covariance[i * numOfAttributes + i];
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Double.compare(eigenvalues[second], eigenvalues[first]);
+            }
+        });
+        if (numOfComponents <= 0) {
+            double explainedVariance = 0.0;
+            numOfComponents = 0;
+            while ((numOfComponents < numOfAttributes)
+                    && (explainedVariance < varianceThreshold * totalVariance))
+                explainedVariance += Math.max(0.0, eigenvalues[order[numOfComponents++]]);
+            numOfComponents = Math.max(1, numOfComponents);
+        }
+        numOfComponents = Math.min(numOfComponents, numOfAttributes);
+        double[] components = new double[numOfComponents * numOfAttributes];
+        double[] variances = new double[numOfComponents];
+        for (int c = 0; c < numOfComponents; c++) {
+            int column = order[c];
+            variances[c] = Math.max(0.0, eigenvalues[column]);
+            // Signs are fixed by making the largest weight positive, for reproducible projections
+            int largest = 0;
+            for (int i = 1; i < numOfAttributes; i++)
+                if (Math.abs(eigenvectors[i * numOfAttributes + column])
+                        > Math.abs(eigenvectors[largest * numOfAttributes + column]))
+                    largest = i;
+            double sign = eigenvectors[largest * numOfAttributes + column] < 0.0 ? -1.0 : 1.0;
+            for (int i = 0; i < numOfAttributes; i++)
+                components[c * numOfAttributes + i] = sign * eigenvectors[i * numOfAttributes + column];
+        }
+        return new PrincipalComponents(means, components, variances);
+    }
+
+    /**
+     * Builds the (sample) covariance matrix of data-sets, summing the upper
+     * triangle of each chunk of data-sets on its own thread.
+     *
+     * @param rows  Normalized attribute values of each data-set
+     * @param means Mean of each attribute
+     * @return Row-major covariance matrix
+     * @throws Exception If a chunk could not be summed
+     */
+    private static double[] computeCovariance(final double[][] rows, final double[] means) throws Exception {
+        final int numOfAttributes = means.length;
+        int numOfChunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                rows.length / minChunkSize));
+        List<Callable<double[]>> tasks = new ArrayList<Callable<double[]>>(numOfChunks);
+        for (int chunk = 0; chunk < numOfChunks; chunk++) {
+            final int firstRow = (int) ((long) rows.length * chunk / numOfChunks);
+            final int lastRow = (int) ((long) rows.length * (chunk + 1) / numOfChunks);
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() {
+                    double[] scatter = new double[numOfAttributes * numOfAttributes];
+                    double[] centred = new double[numOfAttributes];
+                    for (int row = firstRow; row < lastRow; row++) {
+                        for (int i = 0; i < numOfAttributes; i++)
+                            centred[i] = rows[row][i] - means[i];
+                        for (int i = 0; i < numOfAttributes; i++) {
+                            double value = centred[i];
+                            int offset = i * numOfAttributes;
+                            for (int j = i; j < numOfAttributes; j++)
+                                scatter[offset + j] += value * centred[j];
+                        }
+                    }
+                    return scatter;
+                }
+            });
+        }
+        double[] covariance = new double[numOfAttributes * numOfAttributes];
+        ExecutorService executor = Executors.newFixedThreadPool(numOfChunks);
+        try {
+            for (Future<double[]> future : executor.invokeAll(tasks)) {
+                double[] scatter;
+                try {
+                    scatter = future.get();
+                } catch (ExecutionException e) {
+                    throw new Exception("Error while building the covariance matrix (" + e.getCause().getMessage()
+                            + ")", e.getCause());
+                }
+                for (int i = 0; i < covariance.length; i++)
+                    covariance[i] += scatter[i];
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < numOfAttributes; i++) {
+            for (int j = i; j < numOfAttributes; j++) {
+                double value = covariance[i * numOfAttributes + j] / (rows.length - 1);
+                covariance[i * numOfAttributes + j] = value;
+                covariance[j * numOfAttributes + i] = value;
+            }
+        }
+        return covariance;
+    }
+
+    /**
+     * Diagonalizes a symmetric matrix in place by cyclic Jacobi rotations,
+     * leaving the eigenvalues on its diagonal and accumulating the rotations
+     * into the eigenvector matrix, whose columns become the eigenvectors.
+     *
+     * @param matrix       Row-major symmetric matrix, replaced by its eigenvalues' diagonal matrix
+     * @param eigenvectors Row-major identity matrix, replaced by the eigenvectors
+     * @param n            Matrix dimension
+     */
+    static void diagonalize(double[] matrix, double[] eigenvectors, int n) {
+        double diagonalNorm = 0.0;
+        for (int i = 0; i < n; i++)
+            diagonalNorm += matrix[i * n + i] * matrix[i * n + i];
+        for (int sweep = 0; sweep < maxSweeps; sweep++) {
+            double offDiagonalNorm = 0.0;
+            for (int p = 0; p < n; p++)
+                for (int q = p + 1; q < n; q++)
+                    offDiagonalNorm += matrix[p * n + q] * matrix[p * n + q];
+            if (offDiagonalNorm <= 1e-30 * diagonalNorm)
+                return;
+            for (int p = 0; p < n; p++) {
+                for (int q = p + 1; q < n; q++) {
+                    double apq = matrix[p * n + q];
+                    if (apq == 0.0)
+                        continue;
+                    // Rotation angle zeroing matrix[p][q]
+                    double theta = (matrix[q * n + q] - matrix[p * n + p]) / (2.0 * apq);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1.0));
+                    if (theta == 0.0)
+                        t = 1.0;
+                    double c = 1.0 / Math.sqrt(t * t + 1.0);
+                    double s = t * c;
+                    for (int k = 0; k < n; k++) {
+                        double akp = matrix[k * n + p];
+                        double akq = matrix[k * n + q];
+                        matrix[k * n + p] = c * akp - s * akq;
+                        matrix[k * n + q] = s * akp + c * akq;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double apk = matrix[p * n + k];
+                        double aqk = matrix[q * n + k];
+                        matrix[p * n + k] = c * apk - s * aqk;
+                        matrix[q * n + k] = s * apk + c * aqk;
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double vkp = eigenvectors[k * n + p];
+                        double vkq = eigenvectors[k * n + q];
+                        eigenvectors[k * n + p] = c * vkp - s * vkq;
+                        eigenvectors[k * n + q] = s * vkp + c * vkq;
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package cy.com.nicpoyia.rbf.compound_activity_data;
+
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Test Driver class for PrincipalComponents class. Checks the eigenvectors
+ * against the covariance matrix, compares networks trained with and without
+ * the projection, and checks that a stored model scores raw attribute values
+ * through the projection exactly as the projected data-sets.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class PrincipalComponentsTest {
+    // Fraction of the total variance kept
+    private static final double varianceThreshold = 0.99;
+    // Epochs each network is trained for
+    private static final int numOfEpochs = 500;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.resultsFile = null;
+        configuration.weightsFile = null;
+        configuration.modelFile = null;
+        configuration.pcaComponents = 0;
+        configuration.pcaVarianceThreshold = 0.0;
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        Configuration pcaConfiguration = new Configuration(configuration);
+        pcaConfiguration.pcaVarianceThreshold = varianceThreshold;
+        CompoundDataHandler pcaDataHandler = new CompoundDataHandler(pcaConfiguration);
+        CompoundDataMatrix pcaDataMatrix = pcaDataHandler.getDataMatrix();
+        PrincipalComponents principalComponents = pcaDataMatrix.getNormalizationTransform().getPrincipalComponents();
+        int numOfAttributes = principalComponents.getNumOfAttributes();
+        int numOfComponents = principalComponents.getNumOfComponents();
+        System.out.println(numOfComponents + " of " + numOfAttributes + " components keep " + varianceThreshold
+                + " of the variance");
+        // Each component must satisfy C v = variance v, and the components must be orthonormal
+        double[][] covariance = new double[numOfAttributes][numOfAttributes];
+        int numOfDataSets = dataMatrix.getNumOfDataSets();
+        for (int row = 0; row < numOfDataSets; row++) {
+            double[] values = dataMatrix.getAttributeValues(row);
+            for (int i = 0; i < numOfAttributes; i++)
+                for (int j = 0; j < numOfAttributes; j++)
+                    covariance[i][j] += (values[i] - principalComponents.getMean(i))
+                            * (values[j] - principalComponents.getMean(j)) / (numOfDataSets - 1);
+        }
+        double maxEigenResidual = 0.0;
+        double maxOrthogonalityError = 0.0;
+        for (int c = 0; c < numOfComponents; c++) {
+            double variance = principalComponents.getVariance(c);
+            for (int i = 0; i < numOfAttributes; i++) {
+                double product = 0.0;
+                for (int j = 0; j < numOfAttributes; j++)
+                    product += covariance[i][j] * principalComponents.getComponentValue(c, j);
+                maxEigenResidual = Math.max(maxEigenResidual,
+                        Math.abs(product - variance * principalComponents.getComponentValue(c, i)));
+            }
+            for (int d = 0; d < numOfComponents; d++) {
+                double dotProduct = 0.0;
+                for (int i = 0; i < numOfAttributes; i++)
+                    dotProduct += principalComponents.getComponentValue(c, i)
+                            * principalComponents.getComponentValue(d, i);
+                maxOrthogonalityError = Math.max(maxOrthogonalityError, Math.abs(dotProduct - (c == d ? 1.0 : 0.0)));
+            }
+        }
+        System.out.println("Maximum eigenvector residual: " + maxEigenResidual);
+        System.out.println("Maximum orthonormality error: " + maxOrthogonalityError);
+        // Train on the same rows with and without the projection
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        int[] testingRows = dataMatrix.getTestingIndices();
+        RBFNetwork network = new RBFNetwork(configuration, dataMatrix, trainingRows, testingRows);
+        long startTime = System.nanoTime();
+        network.executeEpochs(numOfEpochs);
+        System.out.println("Without projection: testing error " + network.getResults().getLastTestingError() + " in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        RBFNetwork pcaNetwork = new RBFNetwork(pcaConfiguration, pcaDataMatrix, trainingRows, testingRows);
+        startTime = System.nanoTime();
+        pcaNetwork.executeEpochs(numOfEpochs);
+        System.out.println("With projection: testing error " + pcaNetwork.getResults().getLastTestingError() + " in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms");
+        // Pass the model through the model file format and score raw attribute values
+        ByteArrayOutputStream modelBytes = new ByteArrayOutputStream();
+        RBFModelFile.write(pcaNetwork.createModelSnapshot(), new DataOutputStream(modelBytes));
+        RBFModel model = RBFModelFile.read(new DataInputStream(new ByteArrayInputStream(modelBytes.toByteArray())));
+        double maxDeviation = 0.0;
+        for (int row = 0; row < numOfDataSets; row++) {
+            double[] rawInput = new double[numOfAttributes];
+            for (int i = 0; i < numOfAttributes; i++)
+                rawInput[i] = pcaDataHandler.dataSetsAttributeValues.get(row)[i];
+            double rawOutput = model.getRawOutputVector(rawInput)[0];
+            double projectedOutput = model.getOutputVector(pcaDataMatrix.getAttributeValues(row))[0];
+            maxDeviation = Math.max(maxDeviation, Math.abs(rawOutput - projectedOutput));
+        }
+        System.out.println("Maximum raw/projected output deviation: " + maxDeviation);
+    }
+
+}
@@ -0,0 +1,373 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class representing the basis activations of a fixed set of input patterns
+ * over the hidden layer, kept across epochs. Each hidden node's activations
+ * form one row of a K x N matrix, stored with the centre and width they were
+ * calculated from. A row is recalculated only when its node's centre or width
+ * has moved beyond the tolerance since then, so that epochs with (nearly)
+ * fixed nodes cost a matrix-vector product instead of K x N distances.
+ * <p>
+ * For basis functions with compact support the rows are sparse: only the
+ * non-zero activations are stored, as (pattern index, value) lists, and a
+ * pattern-major copy of them is kept for the per-pattern outputs and updates.
+ * Outputs and coefficient updates then only visit the nodes whose support
+ * holds the pattern.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ActivationCache {
+    // Input patterns (columns)
+    private final List<double[]> inputs;
+    // Centre or width movement beyond which a node's activations are recalculated
+    private final double tolerance;
+    // Whether only the non-zero activations are stored
+    private final boolean sparse;
+    // Cached rows of the hidden nodes, in hidden layer order
+    private CachedNode[] cachedNodes = new CachedNode[0];
+    // Pattern-major copy of the sparse rows: index of each pattern's first entry, followed by the number of entries
+    private int[] patternPointers;
+    // Row and activation of each pattern-major entry
+    private CachedNode[] patternNodes;
+    private double[] patternActivations;
+    // Number of node rows calculated so far
+    private long numOfCalculatedRows;
+
+    /**
+     * Constructs an empty activation cache.
+     *
+     * @param inputs    Input patterns
+     * @param tolerance Centre (euclidean distance) or width movement beyond which a node's activations are recalculated
+     * @param sparse    Whether only the non-zero activations are stored, for basis functions with compact support
+     */
+    public ActivationCache(List<double[]> inputs, double tolerance, boolean sparse) {
+        this.inputs = inputs;
+        this.tolerance = tolerance;
+        this.sparse = sparse;
+    }
+
+    /**
+     * Brings the cache up to date with the hidden layer. Rows of nodes that
+     * have been added, or have moved beyond the tolerance, are recalculated;
+     * rows of removed nodes are discarded.
+     *
+     * @param hiddenNodes    Hidden nodes
+     * @param numHiddenNodes Number of (non-bias) hidden nodes
+     */
+    public void validate(RBFHiddenNode[] hiddenNodes, int numHiddenNodes) {
+        // Rows are matched to nodes by identity, as growing and pruning reorder them
+        Map<RBFHiddenNode, CachedNode> previousNodes = new IdentityHashMap<RBFHiddenNode, CachedNode>();
+        for (CachedNode cachedNode : cachedNodes)
+            previousNodes.put(cachedNode.node, cachedNode);
+        CachedNode[] validNodes = new CachedNode[numHiddenNodes];
+        double squaredTolerance = tolerance * tolerance;
+        boolean rowsCalculated = false;
+        for (int i = 0; i < numHiddenNodes; i++) {
+            RBFHiddenNode node = hiddenNodes[i];
+            CachedNode cachedNode = previousNodes.remove(node);
+            if ((cachedNode == null) || (Math.abs(node.sigma - cachedNode.sigma) > tolerance)
+                    || (node.calculateSquaredDistance(cachedNode.centre) > squaredTolerance)) {
+                if (cachedNode != null)
+                    cachedNode.index = -1;
+                cachedNode = new CachedNode(node);
+                rowsCalculated = true;
+            }
+            cachedNode.index = i;
+            validNodes[i] = cachedNode;
+        }
+        // Rows of removed nodes stay in the pattern-major copy until it is rebuilt, marked as discarded
+        for (CachedNode cachedNode : previousNodes.values())
+            cachedNode.index = -1;
+        cachedNodes = validNodes;
+        if (sparse && (rowsCalculated || (patternPointers == null)))
+            transposeRows();
+    }
+
+    /**
+     * Builds the pattern-major copy of the sparse rows.
+     */
+    private void transposeRows() {
+        patternPointers = new int[inputs.size() + 1];
+        for (CachedNode cachedNode : cachedNodes)
+            for (int pattern : cachedNode.patterns)
+                patternPointers[pattern + 1]++;
+        for (int pattern = 0; pattern < inputs.size(); pattern++)
+            patternPointers[pattern + 1] += patternPointers[pattern];
+        patternNodes = new CachedNode[patternPointers[inputs.size()]];
+        patternActivations = new double[patternNodes.length];
+        int[] nextEntries = Arrays.copyOf(patternPointers, inputs.size());
+        for (CachedNode cachedNode : cachedNodes) {
+            for (int k = 0; k < cachedNode.patterns.length; k++) {
+                int entry = nextEntries[cachedNode.patterns[k]]++;
+                patternNodes[entry] = cachedNode;
+                patternActivations[entry] = cachedNode.activations[k];
+            }
+        }
+    }
+
+    /**
+     * Generates the network's output vector for an input pattern from the
+     * cached activations, keeping the activations of the pattern.
+     *
+     * @param pattern          Input pattern index
+     * @param hiddenNodes      Hidden nodes, providing the current output coefficients
+     * @param numOutputNeurons Number of network outputs
+     * @param activations      Activation of each hidden node for the pattern
+     * @return Output vector
+     */
+    public double[] getOutputVector(int pattern, RBFHiddenNode[] hiddenNodes, int numOutputNeurons,
+                                    double[] activations) {
+        double[] outputVector = new double[numOutputNeurons];
+        if (sparse) {
+            Arrays.fill(activations, 0, cachedNodes.length, 0.0);
+            for (int k = patternPointers[pattern]; k < patternPointers[pattern + 1]; k++) {
+                int node = patternNodes[k].index;
+                if (node < 0)
+                    continue;
+                activations[node] = patternActivations[k];
+                VectorKernels.accumulateWeighted(patternActivations[k], hiddenNodes[node].outputCoefficients,
+                        outputVector);
+            }
+            return outputVector;
+        }
+        for (int i = 0; i < cachedNodes.length; i++) {
+            double activation = cachedNodes[i].activations[pattern];
+            activations[i] = activation;
+            if (activation != 0.0)
+                VectorKernels.accumulateWeighted(activation, hiddenNodes[i].outputCoefficients, outputVector);
+        }
+        return outputVector;
+    }
+
+    /**
+     * Updates the output coefficients of the hidden nodes activated by an
+     * input pattern, from the cached activations. Only the nodes whose
+     * activation is stored are visited.
+     *
+     * @param pattern      Input pattern index
+     * @param hiddenNodes  Hidden nodes, in the order the cache was validated for
+     * @param errorVector  Error vector
+     * @param learningRate Output coefficients learning rate
+     */
+    public void updateOutputCoefficients(int pattern, RBFHiddenNode[] hiddenNodes, double[] errorVector,
+                                         double learningRate) {
+        if (sparse) {
+            for (int k = patternPointers[pattern]; k < patternPointers[pattern + 1]; k++) {
+                int node = patternNodes[k].index;
+                if (node >= 0)
+                    hiddenNodes[node].updateOutputCoefficients(patternActivations[k], errorVector, learningRate);
+            }
+            return;
+        }
+        for (int i = 0; i < cachedNodes.length; i++) {
+            double activation = cachedNodes[i].activations[pattern];
+            if (activation != 0.0)
+                hiddenNodes[i].updateOutputCoefficients(activation, errorVector, learningRate);
+        }
+    }
+
+    /**
+     * Generates the network's output vectors for all input patterns from the
+     * cached activations, one hidden node row at a time.
+     *
+     * @param hiddenNodes      Hidden nodes, providing the current output coefficients
+     * @param numOutputNeurons Number of network outputs
+     * @return Output vector of each input pattern
+     */
+    public double[][] getOutputVectors(RBFHiddenNode[] hiddenNodes, int numOutputNeurons) {
+        double[][] outputVectors = new double[inputs.size()][numOutputNeurons];
+        for (int i = 0; i < cachedNodes.length; i++) {
+            double[] nodeActivations = cachedNodes[i].activations;
+            double[] outputCoefficients = hiddenNodes[i].outputCoefficients;
+            if (sparse) {
+                int[] patterns = cachedNodes[i].patterns;
+                for (int k = 0; k < patterns.length; k++)
+                    VectorKernels.accumulateWeighted(nodeActivations[k], outputCoefficients,
+                            outputVectors[patterns[k]]);
+                continue;
+            }
+            for (int pattern = 0; pattern < nodeActivations.length; pattern++)
+                if (nodeActivations[pattern] != 0.0)
+                    VectorKernels.accumulateWeighted(nodeActivations[pattern], outputCoefficients,
+                            outputVectors[pattern]);
+        }
+        return outputVectors;
+    }
+
+    /**
+     * Number of calculated rows getter method.
+     *
+     * @return Number of node rows calculated so far
+     */
+    public long getNumOfCalculatedRows() {
+        return numOfCalculatedRows;
+    }
+
+    /**
+     * Number of stored activations getter method.
+     *
+     * @return Number of activations stored over the current rows (all K x N of them unless sparse)
+     */
+    public long getNumOfStoredActivations() {
+        long numOfStoredActivations = 0;
+        for (CachedNode cachedNode : cachedNodes)
+            numOfStoredActivations += cachedNode.activations.length;
+        return numOfStoredActivations;
+    }
+
+    /**
+     * Test Driver, checks the cached outputs against the hidden nodes' own
+     * outputs and counts the rows recalculated as nodes move. Then caches
+     * compactly supported nodes over the demo training data-sets sparsely,
+     * checks the outputs and coefficient updates against a dense cache and
+     * counts the node activations skipped.
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        int numOfInputs = 53;
+        int numHiddenNodes = 10;
+        Random randomGenerator = new Random(39);
+        List<double[]> inputs = new ArrayList<double[]>();
+        for (int pattern = 0; pattern < 1000; pattern++) {
+            double[] input = new double[numOfInputs];
+            for (int i = 0; i < numOfInputs; i++)
+                input[i] = randomGenerator.nextDouble();
+            inputs.add(input);
+        }
+        RBFHiddenNode[] hiddenNodes = new RBFHiddenNode[numHiddenNodes];
+        for (int node = 0; node < numHiddenNodes; node++)
+            hiddenNodes[node] = new RBFHiddenNode(new double[]{randomGenerator.nextDouble() - 0.5},
+                    inputs.get(node).clone(), 3.5);
+        ActivationCache activationCache = new ActivationCache(inputs, 1e-3, false);
+        activationCache.validate(hiddenNodes, numHiddenNodes);
+        System.out.println("Rows calculated initially: " + activationCache.getNumOfCalculatedRows());
+        // Move one node within and another one beyond the tolerance
+        hiddenNodes[0].centre[0] += 1e-4;
+        hiddenNodes[1].centre[0] += 1e-2;
+        hiddenNodes[1].outputCoefficients[0] += 0.25;
+        activationCache.validate(hiddenNodes, numHiddenNodes);
+        System.out.println("Rows calculated after moving two nodes: " + activationCache.getNumOfCalculatedRows());
+        double[][] cachedOutputs = activationCache.getOutputVectors(hiddenNodes, 1);
+        double maxOutputDeviation = 0.0;
+        for (int pattern = 0; pattern < inputs.size(); pattern++) {
+            double[] outputVector = new double[1];
+            for (int node = 0; node < numHiddenNodes; node++)
+                hiddenNodes[node].accumulateOutputVector(inputs.get(pattern), outputVector);
+            maxOutputDeviation = Math.max(maxOutputDeviation, Math.abs(outputVector[0] - cachedOutputs[pattern][0]));
+        }
+        System.out.println("Max output deviation: " + maxOutputDeviation);
+        // Wendland nodes over the demo training data-sets, with a sparse and a dense cache
+        Configuration configuration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        List<double[]> trainingInputs = dataMatrix.getInputValues(trainingRows);
+        numHiddenNodes = configuration.numHiddenLayerNeurons;
+        double[][] centres = dataMatrix.selectCentres(numHiddenNodes, trainingRows, randomGenerator);
+        RBFHiddenNode[] sparseNodes = new RBFHiddenNode[numHiddenNodes];
+        RBFHiddenNode[] denseNodes = new RBFHiddenNode[numHiddenNodes];
+        for (int node = 0; node < numHiddenNodes; node++) {
+            double coefficient = randomGenerator.nextDouble() - 0.5;
+            sparseNodes[node] = new RBFHiddenNode(new double[]{coefficient}, centres[node].clone(),
+                    configuration.sigmas[node], BasisFunction.WENDLAND);
+            denseNodes[node] = new RBFHiddenNode(new double[]{coefficient}, centres[node].clone(),
+                    configuration.sigmas[node], BasisFunction.WENDLAND);
+        }
+        ActivationCache sparseCache = new ActivationCache(trainingInputs, configuration.activationCacheTolerance, true);
+        ActivationCache denseCache = new ActivationCache(trainingInputs, configuration.activationCacheTolerance, false);
+        sparseCache.validate(sparseNodes, numHiddenNodes);
+        denseCache.validate(denseNodes, numHiddenNodes);
+        // One coefficients-only training pass through both caches
+        double[] sparseActivations = new double[numHiddenNodes];
+        double[] denseActivations = new double[numHiddenNodes];
+        maxOutputDeviation = 0.0;
+        for (int pattern = 0; pattern < trainingInputs.size(); pattern++) {
+            double[] sparseOutput = sparseCache.getOutputVector(pattern, sparseNodes, 1, sparseActivations);
+            double[] denseOutput = denseCache.getOutputVector(pattern, denseNodes, 1, denseActivations);
+            maxOutputDeviation = Math.max(maxOutputDeviation, Math.abs(sparseOutput[0] - denseOutput[0]));
+            for (int node = 0; node < numHiddenNodes; node++)
+                maxOutputDeviation = Math.max(maxOutputDeviation,
+                        Math.abs(sparseActivations[node] - denseActivations[node]));
+            double[] errorVector = {dataMatrix.getActivity(trainingRows[pattern]) - denseOutput[0]};
+            sparseCache.updateOutputCoefficients(pattern, sparseNodes, errorVector, configuration.learningRates[0]);
+            denseCache.updateOutputCoefficients(pattern, denseNodes, errorVector, configuration.learningRates[0]);
+        }
+        double[][] sparseOutputs = sparseCache.getOutputVectors(sparseNodes, 1);
+        for (int pattern = 0; pattern < trainingInputs.size(); pattern++) {
+            double[] outputVector = new double[1];
+            for (int node = 0; node < numHiddenNodes; node++)
+                denseNodes[node].accumulateOutputVector(trainingInputs.get(pattern), outputVector);
+            maxOutputDeviation = Math.max(maxOutputDeviation, Math.abs(outputVector[0] - sparseOutputs[pattern][0]));
+        }
+        System.out.println("Max sparse deviation: " + maxOutputDeviation);
+        long numOfActivations = (long) numHiddenNodes * trainingInputs.size();
+        long numOfStoredActivations = sparseCache.getNumOfStoredActivations();
+        System.out.println("Demo data, wendland: " + numOfStoredActivations + " of " + numOfActivations
+                + " activations stored, " + (numOfActivations - numOfStoredActivations)
+                + " node evaluations skipped per output and update pass");
+    }
+
+    /**
+     * Class representing a hidden node's cached row, with the centre and width
+     * it was calculated from.
+     */
+    private class CachedNode {
+        // Hidden node
+        final RBFHiddenNode node;
+        // Centre the activations were calculated from
+        final double[] centre;
+        // Width the activations were calculated from
+        final double sigma;
+        // Activation for each input pattern, or only the non-zero ones if sparse
+        final double[] activations;
+        // Input pattern of each non-zero activation if sparse, in ascending order
+        final int[] patterns;
+        // Position of the node in the hidden layer (-1: discarded)
+        int index;
+
+        /**
+         * Calculates a hidden node's row.
+         *
+         * @param node Hidden node
+         */
+        CachedNode(RBFHiddenNode node) {
+            this.node = node;
+            this.centre = node.getCentreVector().clone();
+            this.sigma = node.sigma;
+            double[] rowActivations = new double[inputs.size()];
+            int numOfNonZeros = 0;
+            for (int pattern = 0; pattern < rowActivations.length; pattern++) {
+                rowActivations[pattern] = node.calculateActivation(inputs.get(pattern));
+                if (rowActivations[pattern] != 0.0)
+                    numOfNonZeros++;
+            }
+            if (sparse) {
+                this.activations = new double[numOfNonZeros];
+                this.patterns = new int[numOfNonZeros];
+                int k = 0;
+                for (int pattern = 0; pattern < rowActivations.length; pattern++) {
+                    if (rowActivations[pattern] != 0.0) {
+                        activations[k] = rowActivations[pattern];
+                        patterns[k] = pattern;
+                        k++;
+                    }
+                }
+            } else {
+                this.activations = rowActivations;
+                this.patterns = null;
+            }
+            numOfCalculatedRows++;
+        }
+    }
+
+}
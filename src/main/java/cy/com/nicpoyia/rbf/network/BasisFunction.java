@@ -0,0 +1,198 @@
+package cy.com.nicpoyia.rbf.network;
+
+/**
+ * Radial basis functions supported by the hidden nodes. All functions take the
+ * squared input distance and the node's width (sigma). The values and
+ * derivatives are evaluated by a switch over the constant, so that hot loops
+ * branch on a single predictable value instead of dispatching virtually.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public enum BasisFunction {
+    /**
+     * Gaussian, as originally used by the network: exp(-d^2 / (2 * sigma^2)),
+     * where d is the squared input distance.
+     */
+    GAUSSIAN("gaussian"),
+    /**
+     * Multiquadric: sqrt(d + sigma^2).
+     */
+    MULTIQUADRIC("multiquadric"),
+    /**
+     * Inverse multiquadric: 1 / sqrt(d + sigma^2).
+     */
+    INVERSE_MULTIQUADRIC("inverseMultiquadric"),
+    /**
+     * Wendland C2 function with support radius sigma: (1 - r)^4 * (4r + 1) for
+     * r = sqrt(d) / sigma below 1, exactly zero otherwise.
+     */
+    WENDLAND("wendland");
+
+    // Name used in the parameters file
+    private final String parameterName;
+
+    /**
+     * Constructs a basis function constant.
+     *
+     * @param parameterName Name used in the parameters file
+     */
+    BasisFunction(String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    /**
+     * Parameter name getter method.
+     *
+     * @return Name used in the parameters file
+     */
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * Looks up a basis function by its parameters file name.
+     *
+     * @param parameterName Name used in the parameters file
+     * @return Basis function
+     * @throws IllegalArgumentException If the name is unknown
+     */
+    public static BasisFunction fromParameterName(String parameterName) {
+        for (BasisFunction basisFunction : values()) {
+            if (basisFunction.parameterName.equals(parameterName))
+                return basisFunction;
+        }
+        throw new IllegalArgumentException("Unknown basis function: " + parameterName);
+    }
+
+    /**
+     * Whether the function is exactly zero beyond a finite radius.
+     *
+     * @return Whether the function has compact support
+     */
+    public boolean hasCompactSupport() {
+        return this == WENDLAND;
+    }
+
+    /**
+     * Squared distance beyond which the function is zero, for functions with
+     * compact support.
+     *
+     * @param sigma Node width
+     * @return Squared support radius, or positive infinity
+     */
+    public double squaredSupportRadius(double sigma) {
+        if (this == WENDLAND)
+            return sigma * sigma;
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the basis function value.
+     *
+     * @param squaredDistance Squared distance between input and centre
+     * @param sigma           Node width
+     * @return Basis function value
+     */
+    public double value(double squaredDistance, double sigma) {
+        switch (this) {
+            case MULTIQUADRIC:
+                return Math.sqrt(squaredDistance + sigma * sigma);
+            case INVERSE_MULTIQUADRIC:
+                return 1.0 / Math.sqrt(squaredDistance + sigma * sigma);
+            case WENDLAND: {
+                if (squaredDistance >= sigma * sigma)
+                    return 0.0;
+                double r = Math.sqrt(squaredDistance) / sigma;
+                double oneMinusR = 1.0 - r;
+                double oneMinusRSquared = oneMinusR * oneMinusR;
+                return oneMinusRSquared * oneMinusRSquared * (4.0 * r + 1.0);
+            }
+            default:
+                return Math.exp((-(squaredDistance * squaredDistance)) / (2 * sigma * sigma));
+        }
+    }
+
+    /**
+     * Calculates the partial derivative of the basis function with respect to
+     * the squared distance.
+     *
+     * @param squaredDistance Squared distance between input and centre
+     * @param sigma           Node width
+     * @param value           Basis function value at the same point
+     * @return Derivative with respect to the squared distance
+     */
+    public double squaredDistanceDerivative(double squaredDistance, double sigma, double value) {
+        switch (this) {
+            case MULTIQUADRIC:
+                return 0.5 / value;
+            case INVERSE_MULTIQUADRIC:
+                return -0.5 * value * value * value;
+            case WENDLAND: {
+                if (squaredDistance >= sigma * sigma)
+                    return 0.0;
+                double oneMinusR = 1.0 - Math.sqrt(squaredDistance) / sigma;
+                return -10.0 * oneMinusR * oneMinusR * oneMinusR / (sigma * sigma);
+            }
+            default:
+                return -value * squaredDistance / (sigma * sigma);
+        }
+    }
+
+    /**
+     * Calculates the partial derivative of the basis function with respect to
+     * the node width.
+     *
+     * @param squaredDistance Squared distance between input and centre
+     * @param sigma           Node width
+     * @param value           Basis function value at the same point
+     * @return Derivative with respect to sigma
+     */
+    public double sigmaDerivative(double squaredDistance, double sigma, double value) {
+        switch (this) {
+            case MULTIQUADRIC:
+                return sigma / value;
+            case INVERSE_MULTIQUADRIC:
+                return -sigma * value * value * value;
+            case WENDLAND: {
+                if (squaredDistance >= sigma * sigma)
+                    return 0.0;
+                double oneMinusR = 1.0 - Math.sqrt(squaredDistance) / sigma;
+                return 20.0 * squaredDistance * oneMinusR * oneMinusR * oneMinusR / (sigma * sigma * sigma);
+            }
+            default:
+                return value * squaredDistance * squaredDistance / (sigma * sigma * sigma);
+        }
+    }
+
+    /**
+     * Calculates the factor by which the input-centre difference is scaled in a
+     * (unit rate, unit error) centre update.
+     *
+     * @param squaredDistance Squared distance between input and centre
+     * @param sigma           Node width
+     * @param value           Basis function value at the same point
+     * @return Centre update factor
+     */
+    public double centreUpdateFactor(double squaredDistance, double sigma, double value) {
+        // The Gaussian keeps the update rule the default parameters were tuned with
+        if (this == GAUSSIAN)
+            return value / (sigma * sigma);
+        return -2.0 * squaredDistanceDerivative(squaredDistance, sigma, value);
+    }
+
+    /**
+     * Calculates the (unit rate, unit error) sigma update value.
+     *
+     * @param squaredDistance Squared distance between input and centre
+     * @param sigma           Node width
+     * @param value           Basis function value at the same point
+     * @return Sigma update value
+     */
+    public double sigmaUpdateValue(double squaredDistance, double sigma, double value) {
+        // The Gaussian keeps the update rule the default parameters were tuned with
+        if (this == GAUSSIAN)
+            return value * squaredDistance / (sigma * sigma * sigma);
+        return sigmaDerivative(squaredDistance, sigma, value);
+    }
+
+}
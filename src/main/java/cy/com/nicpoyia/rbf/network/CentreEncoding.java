@@ -0,0 +1,78 @@
+package cy.com.nicpoyia.rbf.network;
+
+/**
+ * Storage encodings of the hidden node centres of a model. Narrower encodings
+ * trade centre precision for smaller models, and thus for faster scoring and
+ * more models per registry cache.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public enum CentreEncoding {
+    /**
+     * 64-bit floating point coordinates.
+     */
+    DOUBLE("double", 8),
+    /**
+     * 32-bit floating point coordinates.
+     */
+    FLOAT("float", 4),
+    /**
+     * 16-bit (IEEE 754 half precision) floating point coordinates.
+     */
+    FLOAT16("float16", 2),
+    /**
+     * 8-bit signed integer coordinates, with a scale and an offset per input
+     * dimension: coordinate = value * scale + offset.
+     */
+    INT8("int8", 1);
+
+    // Name used in arguments
+    private final String parameterName;
+    // Bytes per centre coordinate
+    private final int bytesPerValue;
+
+    /**
+     * Constructs a centre encoding constant.
+     *
+     * @param parameterName Name used in arguments
+     * @param bytesPerValue Bytes per centre coordinate
+     */
+    CentreEncoding(String parameterName, int bytesPerValue) {
+        this.parameterName = parameterName;
+        this.bytesPerValue = bytesPerValue;
+    }
+
+    /**
+     * Parameter name getter method.
+     *
+     * @return Name used in arguments
+     */
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * Bytes per value getter method.
+     *
+     * @return Bytes per centre coordinate
+     */
+    public int getBytesPerValue() {
+        return bytesPerValue;
+    }
+
+    /**
+     * Looks up a centre encoding by its name.
+     *
+     * @param parameterName Name used in arguments
+     * @return Centre encoding
+     * @throws IllegalArgumentException If the name is unknown
+     */
+    public static CentreEncoding fromParameterName(String parameterName) {
+        for (CentreEncoding centreEncoding : values()) {
+            if (centreEncoding.parameterName.equals(parameterName))
+                return centreEncoding;
+        }
+        throw new IllegalArgumentException("Unknown centre encoding: " + parameterName);
+    }
+
+}
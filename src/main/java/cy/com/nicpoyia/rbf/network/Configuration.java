@@ -21,12 +21,35 @@ public class Configuration {
     public boolean useBias;
     public double biasValue;
     public double[] learningRates;
+    public Optimizer optimizer = Optimizer.SGD;
+    public double[] optimizerParameters = {0.9, 0.999, 1e-8};
+    public LearningRateSchedule learningRateSchedule = LearningRateSchedule.CONSTANT;
+    public double learningRateDecay;
+    public long learningRateDecayEpochs;
     public double[] sigmas;
     public long maxIterations;
+    public boolean singlePrecision;
+    public BasisFunction basisFunction = BasisFunction.GAUSSIAN;
+    public boolean growingPruning;
+    public double growErrorThreshold;
+    public double growDistanceThreshold;
+    public int maxHiddenLayerNeurons;
+    public double pruneContributionThreshold;
+    public int pruneWindow;
+    public boolean activationCache;
+    public double activationCacheTolerance;
+    public boolean asyncTesting;
+    public int testingInterval;
+    public boolean levenbergMarquardt;
+    public double initialDamping;
+    public double dampingFactor;
+    public int pcaComponents;
+    public double pcaVarianceThreshold;
     public String dataFile;
     public String centresFile;
     public String resultsFile;
     public String weightsFile;
+    public String modelFile;
 
     /**
      * Constructs a configuration instance using a file containing all required
@@ -41,12 +64,11 @@ public class Configuration {
         }
         FileInputStream parametersFileInputStream = new FileInputStream(parametersFilePath.getFile());
         BufferedReader parametersFileReader = new BufferedReader(new InputStreamReader(parametersFileInputStream));
-        String nextParameterLine = null;
-        while ((nextParameterLine = parametersFileReader.readLine()) != null) {
-            if (!readParameter(nextParameterLine))
-                throw new Exception("Invalid parameter line: " + nextParameterLine);
+        try {
+            readParameters(parametersFileReader);
+        } finally {
+            parametersFileReader.close();
         }
-        parametersFileReader.close();
     }
 
     /**
@@ -56,6 +78,91 @@ public class Configuration {
         this(defaultParametersFilename);
     }
 
+    /**
+     * Constructs a configuration instance from in-memory parameters, without
+     * a parameters file. The remaining parameters keep their defaults (no bias,
+     * no iterations, gaussian basis function, fixed hidden layer, no files) and
+     * can be set through the instance attributes.
+     *
+     * @param numHiddenLayerNeurons Number of hidden nodes
+     * @param numInputNeurons       Number of inputs
+     * @param numOutputNeurons      Number of outputs
+     * @param learningRates         Coefficient, centre and sigma learning rates
+     * @param sigmas                Initial width of each hidden node
+     */
+    public Configuration(int numHiddenLayerNeurons, int numInputNeurons, int numOutputNeurons,
+                         double[] learningRates, double[] sigmas) {
+        if ((learningRates.length != 3) || (sigmas.length != numHiddenLayerNeurons))
+            throw new IllegalArgumentException("3 learning rates and one sigma per hidden node are required");
+        this.numHiddenLayerNeurons = numHiddenLayerNeurons;
+        this.numInputNeurons = numInputNeurons;
+        this.numOutputNeurons = numOutputNeurons;
+        this.learningRates = learningRates.clone();
+        this.sigmas = sigmas.clone();
+    }
+
+    /**
+     * Constructs a copy of a configuration, so that it can be modified
+     * independently.
+     *
+     * @param configuration Configuration to copy
+     */
+    public Configuration(Configuration configuration) {
+        this.numHiddenLayerNeurons = configuration.numHiddenLayerNeurons;
+        this.numInputNeurons = configuration.numInputNeurons;
+        this.numOutputNeurons = configuration.numOutputNeurons;
+        this.useBias = configuration.useBias;
+        this.biasValue = configuration.biasValue;
+        this.learningRates = configuration.learningRates == null ? null : configuration.learningRates.clone();
+        this.optimizer = configuration.optimizer;
+        this.optimizerParameters = configuration.optimizerParameters == null ? null
+                : configuration.optimizerParameters.clone();
+        this.learningRateSchedule = configuration.learningRateSchedule;
+        this.learningRateDecay = configuration.learningRateDecay;
+        this.learningRateDecayEpochs = configuration.learningRateDecayEpochs;
+        this.sigmas = configuration.sigmas == null ? null : configuration.sigmas.clone();
+        this.maxIterations = configuration.maxIterations;
+        this.singlePrecision = configuration.singlePrecision;
+        this.basisFunction = configuration.basisFunction;
+        this.growingPruning = configuration.growingPruning;
+        this.growErrorThreshold = configuration.growErrorThreshold;
+        this.growDistanceThreshold = configuration.growDistanceThreshold;
+        this.maxHiddenLayerNeurons = configuration.maxHiddenLayerNeurons;
+        this.pruneContributionThreshold = configuration.pruneContributionThreshold;
+        this.pruneWindow = configuration.pruneWindow;
+        this.activationCache = configuration.activationCache;
+        this.activationCacheTolerance = configuration.activationCacheTolerance;
+        this.asyncTesting = configuration.asyncTesting;
+        this.testingInterval = configuration.testingInterval;
+        this.levenbergMarquardt = configuration.levenbergMarquardt;
+        this.initialDamping = configuration.initialDamping;
+        this.dampingFactor = configuration.dampingFactor;
+        this.pcaComponents = configuration.pcaComponents;
+        this.pcaVarianceThreshold = configuration.pcaVarianceThreshold;
+        this.dataFile = configuration.dataFile;
+        this.centresFile = configuration.centresFile;
+        this.resultsFile = configuration.resultsFile;
+        this.weightsFile = configuration.weightsFile;
+        this.modelFile = configuration.modelFile;
+    }
+
+    /**
+     * Reads parameter lines, overriding the values of the parameters given and
+     * keeping the rest. Empty lines are skipped.
+     *
+     * @param parametersReader Reader of parameter lines
+     * @throws Exception In case of an invalid parameter line
+     */
+    public void readParameters(BufferedReader parametersReader) throws Exception {
+        String nextParameterLine = null;
+        while ((nextParameterLine = parametersReader.readLine()) != null) {
+            if (nextParameterLine.trim().isEmpty())
+                continue;
+            if (!readParameter(nextParameterLine))
+                throw new Exception("Invalid parameter line: " + nextParameterLine);
+        }
+    }
+
     /**
      * Reads a parameter and stores it into the appropriate instance attribute.
      *
@@ -64,6 +171,8 @@ public class Configuration {
      */
     private boolean readParameter(String parameterLine) {
         String[] parameterLineElements = parameterLine.split(" ");
+        if (parameterLineElements.length != 2)
+            return false;
         String parameterName = parameterLineElements[0];
         String parameterValueString = parameterLineElements[1];
         if (parameterName.equals("numHiddenLayerNeurons"))
@@ -85,7 +194,32 @@ public class Configuration {
             } catch (Exception e) {
                 return false;
             }
-        } else if (parameterName.equals("sigmas")) {
+        } else if (parameterName.equals("optimizer")) {
+            try {
+                optimizer = Optimizer.fromParameterName(parameterValueString);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        } else if (parameterName.equals("optimizerParameters")) {
+            try {
+                optimizerParameters = new double[3];
+                String[] optimizerParametersStrings = parameterValueString.split(",");
+                for (int i = 0; i < 3; i++)
+                    optimizerParameters[i] = Double.parseDouble(optimizerParametersStrings[i]);
+            } catch (Exception e) {
+                return false;
+            }
+        } else if (parameterName.equals("learningRateSchedule")) {
+            try {
+                learningRateSchedule = LearningRateSchedule.fromParameterName(parameterValueString);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        } else if (parameterName.equals("learningRateDecay"))
+            learningRateDecay = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("learningRateDecayEpochs"))
+            learningRateDecayEpochs = Long.parseLong(parameterValueString);
+        else if (parameterName.equals("sigmas")) {
             try {
                 sigmas = new double[numHiddenLayerNeurons];
                 String[] sigmasStrings = parameterValueString.split(",");
@@ -96,6 +230,44 @@ public class Configuration {
             }
         } else if (parameterName.equals("maxIterations"))
             maxIterations = Long.parseLong(parameterValueString);
+        else if (parameterName.equals("singlePrecision"))
+            singlePrecision = Boolean.parseBoolean(parameterValueString);
+        else if (parameterName.equals("basisFunction")) {
+            try {
+                basisFunction = BasisFunction.fromParameterName(parameterValueString);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        } else if (parameterName.equals("growingPruning"))
+            growingPruning = Boolean.parseBoolean(parameterValueString);
+        else if (parameterName.equals("growErrorThreshold"))
+            growErrorThreshold = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("growDistanceThreshold"))
+            growDistanceThreshold = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("maxHiddenLayerNeurons"))
+            maxHiddenLayerNeurons = Integer.parseInt(parameterValueString);
+        else if (parameterName.equals("pruneContributionThreshold"))
+            pruneContributionThreshold = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("pruneWindow"))
+            pruneWindow = Integer.parseInt(parameterValueString);
+        else if (parameterName.equals("activationCache"))
+            activationCache = Boolean.parseBoolean(parameterValueString);
+        else if (parameterName.equals("activationCacheTolerance"))
+            activationCacheTolerance = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("asyncTesting"))
+            asyncTesting = Boolean.parseBoolean(parameterValueString);
+        else if (parameterName.equals("testingInterval"))
+            testingInterval = Integer.parseInt(parameterValueString);
+        else if (parameterName.equals("levenbergMarquardt"))
+            levenbergMarquardt = Boolean.parseBoolean(parameterValueString);
+        else if (parameterName.equals("initialDamping"))
+            initialDamping = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("dampingFactor"))
+            dampingFactor = Double.parseDouble(parameterValueString);
+        else if (parameterName.equals("pcaComponents"))
+            pcaComponents = Integer.parseInt(parameterValueString);
+        else if (parameterName.equals("pcaVarianceThreshold"))
+            pcaVarianceThreshold = Double.parseDouble(parameterValueString);
         else if (parameterName.equals("dataFile"))
             dataFile = parameterValueString;
         else if (parameterName.equals("centresFile"))
@@ -104,6 +276,8 @@ public class Configuration {
             resultsFile = parameterValueString;
         else if (parameterName.equals("weightsFile"))
             weightsFile = parameterValueString;
+        else if (parameterName.equals("modelFile"))
+            modelFile = parameterValueString;
         else
             return false;
         return true;
@@ -122,12 +296,35 @@ public class Configuration {
         System.out.println("useBias: " + conf.useBias);
         System.out.println("biasValue: " + conf.biasValue);
         System.out.println("learningRates: " + Arrays.toString(conf.learningRates));
+        System.out.println("optimizer: " + conf.optimizer.getParameterName());
+        System.out.println("optimizerParameters: " + Arrays.toString(conf.optimizerParameters));
+        System.out.println("learningRateSchedule: " + conf.learningRateSchedule.getParameterName());
+        System.out.println("learningRateDecay: " + conf.learningRateDecay);
+        System.out.println("learningRateDecayEpochs: " + conf.learningRateDecayEpochs);
         System.out.println("sigmas: " + Arrays.toString(conf.sigmas));
         System.out.println("maxIterations: " + conf.maxIterations);
+        System.out.println("singlePrecision: " + conf.singlePrecision);
+        System.out.println("basisFunction: " + conf.basisFunction.getParameterName());
+        System.out.println("growingPruning: " + conf.growingPruning);
+        System.out.println("growErrorThreshold: " + conf.growErrorThreshold);
+        System.out.println("growDistanceThreshold: " + conf.growDistanceThreshold);
+        System.out.println("maxHiddenLayerNeurons: " + conf.maxHiddenLayerNeurons);
+        System.out.println("pruneContributionThreshold: " + conf.pruneContributionThreshold);
+        System.out.println("pruneWindow: " + conf.pruneWindow);
+        System.out.println("activationCache: " + conf.activationCache);
+        System.out.println("activationCacheTolerance: " + conf.activationCacheTolerance);
+        System.out.println("asyncTesting: " + conf.asyncTesting);
+        System.out.println("testingInterval: " + conf.testingInterval);
+        System.out.println("levenbergMarquardt: " + conf.levenbergMarquardt);
+        System.out.println("initialDamping: " + conf.initialDamping);
+        System.out.println("dampingFactor: " + conf.dampingFactor);
+        System.out.println("pcaComponents: " + conf.pcaComponents);
+        System.out.println("pcaVarianceThreshold: " + conf.pcaVarianceThreshold);
         System.out.println("dataFile: " + conf.dataFile);
         System.out.println("centresFile: " + conf.centresFile);
         System.out.println("resultsFile: " + conf.resultsFile);
         System.out.println("weightsFile: " + conf.weightsFile);
+        System.out.println("modelFile: " + conf.modelFile);
     }
 
 }
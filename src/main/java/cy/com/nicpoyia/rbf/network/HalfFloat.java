@@ -0,0 +1,94 @@
+package cy.com.nicpoyia.rbf.network;
+
+/**
+ * Static conversions between floats and IEEE 754 half precision values, stored
+ * as shorts. Decoding goes through a precomputed table of all 65536 values, so
+ * that half precision centres are widened with a single load per coordinate.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class HalfFloat {
+    // Float value of each half precision bit pattern
+    private static final float[] floatValues = new float[1 << 16];
+
+    static {
+        for (int bits = 0; bits < floatValues.length; bits++)
+            floatValues[bits] = decode(bits);
+    }
+
+    /**
+     * Not instantiable.
+     */
+    private HalfFloat() {
+    }
+
+    /**
+     * Converts a half precision value to a float.
+     *
+     * @param half Half precision bit pattern
+     * @return Float value
+     */
+    public static float toFloat(short half) {
+        return floatValues[half & 0xffff];
+    }
+
+    /**
+     * Converts a float to the nearest half precision value (ties to even).
+     * Values beyond the half precision range become infinite.
+     *
+     * @param value Float value
+     * @return Half precision bit pattern
+     */
+    public static short fromFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int floatExponent = (bits >>> 23) & 0xff;
+        int mantissa = bits & 0x7fffff;
+        // Infinity and NaN
+        if (floatExponent == 0xff)
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+        int exponent = floatExponent - 127 + 15;
+        if (exponent >= 0x1f)
+            return (short) (sign | 0x7c00);
+        // Subnormal half precision values
+        if (exponent <= 0) {
+            if (exponent < -10)
+                return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int halfMantissa = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if ((remainder > halfway) || ((remainder == halfway) && ((halfMantissa & 1) != 0)))
+                halfMantissa++;
+            return (short) (sign | halfMantissa);
+        }
+        // Normal values, rounding may carry into the exponent
+        int half = sign | (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1fff;
+        if ((remainder > 0x1000) || ((remainder == 0x1000) && ((half & 1) != 0)))
+            half++;
+        return (short) half;
+    }
+
+    /**
+     * Decodes a half precision bit pattern.
+     *
+     * @param half Half precision bit pattern
+     * @return Float value
+     */
+    private static float decode(int half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        if (exponent == 0x1f)
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        if (exponent == 0) {
+            // Zero and subnormal values: mantissa * 2^-24
+            float magnitude = mantissa * 0x1p-24f;
+            return sign != 0 ? -magnitude : magnitude;
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+}
@@ -0,0 +1,90 @@
+package cy.com.nicpoyia.rbf.network;
+
+/**
+ * Schedules of the learning rates over the training epochs. Each schedule
+ * gives the factor by which the configured learning rates are scaled in an
+ * epoch, from the decay and the number of decay epochs.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public enum LearningRateSchedule {
+    /**
+     * Constant learning rates.
+     */
+    CONSTANT("constant"),
+    /**
+     * Learning rates multiplied by the decay every decay epochs.
+     */
+    STEP("step"),
+    /**
+     * Learning rates decaying smoothly by the decay every decay epochs.
+     */
+    EXPONENTIAL("exponential"),
+    /**
+     * Learning rates annealed along a half cosine from their configured values
+     * down to decay times their values over the decay epochs, constant then.
+     */
+    COSINE("cosine");
+
+    // Name used in the parameters file
+    private final String parameterName;
+
+    /**
+     * Constructs a learning rate schedule constant.
+     *
+     * @param parameterName Name used in the parameters file
+     */
+    LearningRateSchedule(String parameterName) {
+        this.parameterName = parameterName;
+    }
+
+    /**
+     * Parameter name getter method.
+     *
+     * @return Name used in the parameters file
+     */
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * Looks up a learning rate schedule by its name in the parameters file.
+     *
+     * @param parameterName Name used in the parameters file
+     * @return Learning rate schedule
+     * @throws IllegalArgumentException If the name is unknown
+     */
+    public static LearningRateSchedule fromParameterName(String parameterName) {
+        for (LearningRateSchedule schedule : values()) {
+            if (schedule.parameterName.equals(parameterName))
+                return schedule;
+        }
+        throw new IllegalArgumentException("Unknown learning rate schedule: " + parameterName);
+    }
+
+    /**
+     * Calculates the learning rates factor of an epoch.
+     *
+     * @param epoch       Epoch, starting from 0
+     * @param decay       Decay
+     * @param decayEpochs Number of decay epochs
+     * @return Learning rates factor
+     */
+    public double factor(long epoch, double decay, long decayEpochs) {
+        if (decayEpochs <= 0)
+            return 1.0;
+        switch (this) {
+            case STEP:
+                return Math.pow(decay, epoch / decayEpochs);
+            case EXPONENTIAL:
+                return Math.pow(decay, (double) epoch / decayEpochs);
+            case COSINE: {
+                double progress = Math.min(epoch, decayEpochs) / (double) decayEpochs;
+                return decay + (1.0 - decay) * 0.5 * (1.0 + Math.cos(Math.PI * progress));
+            }
+            default:
+                return 1.0;
+        }
+    }
+
+}
@@ -0,0 +1,447 @@
+package cy.com.nicpoyia.rbf.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Class responsible for full-batch Levenberg-Marquardt training of the hidden
+ * nodes' output coefficients, centres and sigmas. Each iteration calculates the
+ * Jacobian of the outputs analytically, in parallel over chunks of patterns,
+ * and solves the damped least squares step by Cholesky decomposition, in
+ * residual space when there are fewer residuals than parameters. Steps that
+ * do not reduce the error are retried with more damping, accepted steps
+ * reduce the damping.
+ * <p>
+ * Parameter vectors hold, for each hidden node, its output coefficients, centre
+ * coordinates and sigma, in that order (see RBFNetwork.getParameterVector).
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class LevenbergMarquardtTrainer {
+    // Threads calculating the Jacobian, shared by all trainers
+    private static final ExecutorService jacobianExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "rbf-lm-jacobian");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    // Minimum number of patterns per parallel chunk
+    private static final int minChunkSize = 8;
+    // Maximum number of damping increases per iteration
+    private static final int maxDampingIncreases = 10;
+    // Basis function
+    private final BasisFunction basisFunction;
+    // Network dimensions
+    private final int numInputNeurons;
+    private final int numOutputNeurons;
+    // Training input values and target output values (numOutputNeurons per pattern)
+    private final List<double[]> inputs;
+    private final double[] targets;
+    // Initial damping, relative to the largest diagonal element of the normal equations
+    private final double initialDamping;
+    // Factor by which the damping is increased or decreased
+    private final double dampingFactor;
+    // Current damping, set on the first iteration
+    private double damping = Double.NaN;
+
+    /**
+     * Constructs a Levenberg-Marquardt trainer.
+     *
+     * @param basisFunction    Basis function
+     * @param numInputNeurons  Number of inputs
+     * @param numOutputNeurons Number of outputs
+     * @param inputs           Training input values
+     * @param targets          Training target output values, numOutputNeurons per pattern
+     * @param initialDamping   Initial damping, relative to the largest diagonal element of the normal equations
+     * @param dampingFactor    Factor by which the damping is increased or decreased
+     */
+    public LevenbergMarquardtTrainer(BasisFunction basisFunction, int numInputNeurons, int numOutputNeurons,
+                                     List<double[]> inputs, double[] targets, double initialDamping,
+                                     double dampingFactor) {
+        if (dampingFactor <= 1.0)
+            throw new IllegalArgumentException("dampingFactor should be greater than 1");
+        this.basisFunction = basisFunction;
+        this.numInputNeurons = numInputNeurons;
+        this.numOutputNeurons = numOutputNeurons;
+        this.inputs = inputs;
+        this.targets = targets;
+        this.initialDamping = initialDamping;
+        this.dampingFactor = dampingFactor;
+    }
+
+    /**
+     * Damping getter method.
+     *
+     * @return Current damping, NaN before the first iteration
+     */
+    public double getDamping() {
+        return damping;
+    }
+
+    /**
+     * Executes an iteration, updating the parameters in place if a step that
+     * reduces the error has been found. With fewer residuals than parameters,
+     * as for small data-sets, the step is solved from the equivalent residual
+     * space system (J J^T + damping I) y = r, step = J^T y, instead of the
+     * parameter space normal equations (J^T J + damping I) step = J^T r.
+     *
+     * @param parameters Parameter vector
+     * @return Training error, before the iteration
+     */
+    public double iterate(double[] parameters) {
+        int numOfParameters = parameters.length;
+        boolean residualSpace = inputs.size() * numOutputNeurons < numOfParameters;
+        Linearization linearization = linearize(parameters, residualSpace);
+        if (Double.isNaN(damping)) {
+            double maxDiagonal = 0.0;
+            for (double columnSquares : linearization.columnSquares)
+                maxDiagonal = Math.max(maxDiagonal, columnSquares);
+            damping = initialDamping * Math.max(maxDiagonal, 1.0);
+        }
+        double[] matrix = residualSpace ? linearization.calculateGramMatrix() : linearization.normalMatrix;
+        int systemSize = residualSpace ? linearization.numOfResiduals : numOfParameters;
+        double[] dampedMatrix = new double[matrix.length];
+        double[] solution = new double[systemSize];
+        double[] trialParameters = new double[numOfParameters];
+        for (int attempt = 0; attempt <= maxDampingIncreases; attempt++) {
+            System.arraycopy(matrix, 0, dampedMatrix, 0, matrix.length);
+            for (int i = 0; i < systemSize; i++)
+                dampedMatrix[i * systemSize + i] += damping;
+            System.arraycopy(residualSpace ? linearization.residuals : linearization.gradient, 0, solution, 0,
+                    systemSize);
+            if (solveCholesky(dampedMatrix, solution, systemSize)) {
+                double[] step = residualSpace ? linearization.multiplyTransposed(solution) : solution;
+                for (int i = 0; i < numOfParameters; i++)
+                    trialParameters[i] = parameters[i] + step[i];
+                if (calculateError(trialParameters) < linearization.error) {
+                    System.arraycopy(trialParameters, 0, parameters, 0, numOfParameters);
+                    damping /= dampingFactor;
+                    return linearization.error;
+                }
+            }
+            damping *= dampingFactor;
+        }
+        return linearization.error;
+    }
+
+    /**
+     * Calculates the training error of a parameter vector.
+     *
+     * @param parameters Parameter vector
+     * @return Training error
+     */
+    public double calculateError(double[] parameters) {
+        int numHiddenNodes = parameters.length / (numOutputNeurons + numInputNeurons + 1);
+        double totalSquaredSum = 0.0;
+        double[] outputVector = new double[numOutputNeurons];
+        for (int pattern = 0; pattern < inputs.size(); pattern++) {
+            double[] input = inputs.get(pattern);
+            Arrays.fill(outputVector, 0.0);
+            for (int node = 0; node < numHiddenNodes; node++) {
+                int offset = node * (numOutputNeurons + numInputNeurons + 1);
+                double basisValue = basisFunction.value(
+                        VectorKernels.squaredDistance(input, parameters, offset + numOutputNeurons, numInputNeurons),
+                        parameters[offset + numOutputNeurons + numInputNeurons]);
+                for (int j = 0; j < numOutputNeurons; j++)
+                    outputVector[j] += basisValue * parameters[offset + j];
+            }
+            for (int j = 0; j < numOutputNeurons; j++) {
+                double error = targets[pattern * numOutputNeurons + j] - outputVector[j];
+                totalSquaredSum += (error * error);
+            }
+        }
+        return 0.5 * totalSquaredSum;
+    }
+
+    /**
+     * Linearizes the outputs around a parameter vector, in parallel over
+     * chunks of patterns.
+     *
+     * @param parameters    Parameter vector
+     * @param residualSpace Whether to keep the Jacobian rows, instead of accumulating the normal equations
+     * @return Linearization
+     */
+    private Linearization linearize(final double[] parameters, boolean residualSpace) {
+        int numOfPatterns = inputs.size();
+        final Linearization linearization = new Linearization(numOfPatterns * numOutputNeurons, parameters.length,
+                residualSpace);
+        int numOfChunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                numOfPatterns / minChunkSize));
+        List<Future<Linearization>> futures = new ArrayList<Future<Linearization>>(numOfChunks);
+        for (int chunk = 1; chunk < numOfChunks; chunk++) {
+            final int firstPattern = (int) ((long) numOfPatterns * chunk / numOfChunks);
+            final int lastPattern = (int) ((long) numOfPatterns * (chunk + 1) / numOfChunks);
+            futures.add(jacobianExecutor.submit(new Callable<Linearization>() {
+                @Override
+                public Linearization call() {
+                    return linearize(parameters, firstPattern, lastPattern, linearization);
+                }
+            }));
+        }
+        // The calling thread linearizes the first chunk
+        linearize(parameters, 0, numOfPatterns / numOfChunks, linearization).addTo(linearization);
+        try {
+            for (Future<Linearization> future : futures)
+                future.get().addTo(linearization);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating the Jacobian");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while calculating the Jacobian (" + e.getCause().getMessage()
+                    + ")", e.getCause());
+        }
+        if (!residualSpace)
+            linearization.mirrorUpperTriangle();
+        return linearization;
+    }
+
+    /**
+     * Linearizes the outputs of a range of patterns. Each output of each
+     * pattern has a Jacobian row J and a residual r, with the derivatives of an
+     * output y = sum of w * f(d, sigma): dy/dw = f, dy/dc = w * df/dd * -2 (x - c)
+     * and dy/dsigma = w * df/dsigma. Rows are either stored into the complete
+     * linearization, or accumulated as J^T J and J^T r into the chunk's own.
+     *
+     * @param parameters    Parameter vector
+     * @param firstPattern  First pattern (inclusive)
+     * @param lastPattern   Last pattern (exclusive)
+     * @param linearization Complete linearization, receiving the Jacobian rows and residuals
+     * @return Linearization of the chunk, to be added to the complete one
+     */
+    private Linearization linearize(double[] parameters, int firstPattern, int lastPattern,
+                                    Linearization linearization) {
+        int numOfParameters = parameters.length;
+        int nodeParameters = numOutputNeurons + numInputNeurons + 1;
+        int numHiddenNodes = numOfParameters / nodeParameters;
+        boolean residualSpace = linearization.jacobian != null;
+        Linearization chunkLinearization = new Linearization(0, numOfParameters, residualSpace);
+        double[] basisValues = new double[numHiddenNodes];
+        double[] distanceDerivatives = new double[numHiddenNodes];
+        double[] sigmaDerivatives = new double[numHiddenNodes];
+        double[] outputVector = new double[numOutputNeurons];
+        double[] jacobianRow = new double[numOfParameters];
+        for (int pattern = firstPattern; pattern < lastPattern; pattern++) {
+            double[] input = inputs.get(pattern);
+            Arrays.fill(outputVector, 0.0);
+            for (int node = 0; node < numHiddenNodes; node++) {
+                int offset = node * nodeParameters;
+                double sigma = parameters[offset + nodeParameters - 1];
+                double squaredDistance = VectorKernels.squaredDistance(input, parameters, offset + numOutputNeurons,
+                        numInputNeurons);
+                double basisValue = basisFunction.value(squaredDistance, sigma);
+                basisValues[node] = basisValue;
+                distanceDerivatives[node] = basisFunction.squaredDistanceDerivative(squaredDistance, sigma,
+                        basisValue);
+                sigmaDerivatives[node] = basisFunction.sigmaDerivative(squaredDistance, sigma, basisValue);
+                for (int j = 0; j < numOutputNeurons; j++)
+                    outputVector[j] += basisValue * parameters[offset + j];
+            }
+            for (int j = 0; j < numOutputNeurons; j++) {
+                int residualIndex = pattern * numOutputNeurons + j;
+                double residual = targets[residualIndex] - outputVector[j];
+                chunkLinearization.error += 0.5 * residual * residual;
+                // Jacobian row of output j
+                Arrays.fill(jacobianRow, 0.0);
+                for (int node = 0; node < numHiddenNodes; node++) {
+                    int offset = node * nodeParameters;
+                    double coefficient = parameters[offset + j];
+                    jacobianRow[offset + j] = basisValues[node];
+                    double centreFactor = -2.0 * coefficient * distanceDerivatives[node];
+                    if (centreFactor != 0.0)
+                        for (int i = 0; i < numInputNeurons; i++)
+                            jacobianRow[offset + numOutputNeurons + i] = centreFactor
+                                    * (input[i] - parameters[offset + numOutputNeurons + i]);
+                    jacobianRow[offset + nodeParameters - 1] = coefficient * sigmaDerivatives[node];
+                }
+                for (int i = 0; i < numOfParameters; i++)
+                    chunkLinearization.columnSquares[i] += jacobianRow[i] * jacobianRow[i];
+                if (residualSpace) {
+                    System.arraycopy(jacobianRow, 0, linearization.jacobian, residualIndex * numOfParameters,
+                            numOfParameters);
+                    linearization.residuals[residualIndex] = residual;
+                } else
+                    chunkLinearization.accumulateNormalEquations(jacobianRow, residual);
+            }
+        }
+        return chunkLinearization;
+    }
+
+    /**
+     * Solves a symmetric positive definite system in place, by Cholesky
+     * decomposition.
+     *
+     * @param matrix Row-major n x n matrix, overwritten by its decomposition
+     * @param vector Right-hand side, overwritten by the solution
+     * @param n      System size
+     * @return Whether the matrix is positive definite
+     */
+    static boolean solveCholesky(double[] matrix, double[] vector, int n) {
+        // Decomposition into L L^T, L stored in the lower triangle
+        for (int j = 0; j < n; j++) {
+            int rowJ = j * n;
+            double diagonal = matrix[rowJ + j];
+            for (int k = 0; k < j; k++)
+                diagonal -= matrix[rowJ + k] * matrix[rowJ + k];
+            if (!(diagonal > 0.0))
+                return false;
+            double pivot = Math.sqrt(diagonal);
+            matrix[rowJ + j] = pivot;
+            for (int i = j + 1; i < n; i++) {
+                int rowI = i * n;
+                double sum = matrix[rowI + j];
+                for (int k = 0; k < j; k++)
+                    sum -= matrix[rowI + k] * matrix[rowJ + k];
+                matrix[rowI + j] = sum / pivot;
+            }
+        }
+        // Forward substitution: L y = b
+        for (int i = 0; i < n; i++) {
+            int rowI = i * n;
+            double sum = vector[i];
+            for (int k = 0; k < i; k++)
+                sum -= matrix[rowI + k] * vector[k];
+            vector[i] = sum / matrix[rowI + i];
+        }
+        // Back substitution: L^T x = y
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = vector[i];
+            for (int k = i + 1; k < n; k++)
+                sum -= matrix[k * n + i] * vector[k];
+            vector[i] = sum / matrix[i * n + i];
+        }
+        return true;
+    }
+
+    /**
+     * Class representing the linearization of the outputs around a parameter
+     * vector: either the Jacobian rows and residuals (residual space), or the
+     * normal equations J^T J and J^T r (parameter space), with the error and
+     * the diagonal of J^T J.
+     */
+    private static class Linearization {
+        // Number of residuals and parameters
+        final int numOfResiduals;
+        final int numOfParameters;
+        // Jacobian, row-major, and residuals (residual space only)
+        final double[] jacobian;
+        final double[] residuals;
+        // J^T J, row-major, and J^T r (parameter space only)
+        final double[] normalMatrix;
+        final double[] gradient;
+        // Diagonal of J^T J
+        final double[] columnSquares;
+        // Error of the patterns
+        double error;
+
+        /**
+         * Constructs an empty linearization.
+         *
+         * @param numOfResiduals  Number of residuals kept (residual space), or 0 for a chunk's linearization
+         * @param numOfParameters Number of parameters
+         * @param residualSpace   Whether the Jacobian rows are kept, instead of the normal equations
+         */
+        Linearization(int numOfResiduals, int numOfParameters, boolean residualSpace) {
+            this.numOfResiduals = numOfResiduals;
+            this.numOfParameters = numOfParameters;
+            this.jacobian = residualSpace ? new double[numOfResiduals * numOfParameters] : null;
+            this.residuals = residualSpace ? new double[numOfResiduals] : null;
+            this.normalMatrix = residualSpace ? null : new double[numOfParameters * numOfParameters];
+            this.gradient = residualSpace ? null : new double[numOfParameters];
+            this.columnSquares = new double[numOfParameters];
+        }
+
+        /**
+         * Accumulates a Jacobian row and its residual into the upper triangle
+         * of J^T J and into J^T r, skipping zero entries.
+         *
+         * @param jacobianRow Jacobian row
+         * @param residual    Residual
+         */
+        void accumulateNormalEquations(double[] jacobianRow, double residual) {
+            for (int a = 0; a < numOfParameters; a++) {
+                double value = jacobianRow[a];
+                if (value == 0.0)
+                    continue;
+                gradient[a] += value * residual;
+                int rowOffset = a * numOfParameters;
+                for (int b = a; b < numOfParameters; b++)
+                    normalMatrix[rowOffset + b] += value * jacobianRow[b];
+            }
+        }
+
+        /**
+         * Adds a chunk's error, column squares and normal equations.
+         *
+         * @param linearization Complete linearization
+         */
+        void addTo(Linearization linearization) {
+            linearization.error += error;
+            for (int i = 0; i < numOfParameters; i++)
+                linearization.columnSquares[i] += columnSquares[i];
+            if (normalMatrix == null)
+                return;
+            for (int i = 0; i < normalMatrix.length; i++)
+                linearization.normalMatrix[i] += normalMatrix[i];
+            for (int i = 0; i < numOfParameters; i++)
+                linearization.gradient[i] += gradient[i];
+        }
+
+        /**
+         * Copies the accumulated upper triangle of J^T J to its lower triangle.
+         */
+        void mirrorUpperTriangle() {
+            for (int i = 0; i < numOfParameters; i++)
+                for (int j = i + 1; j < numOfParameters; j++)
+                    normalMatrix[j * numOfParameters + i] = normalMatrix[i * numOfParameters + j];
+        }
+
+        /**
+         * Calculates J J^T.
+         *
+         * @return Row-major Gram matrix of the Jacobian rows
+         */
+        double[] calculateGramMatrix() {
+            double[] gramMatrix = new double[numOfResiduals * numOfResiduals];
+            for (int a = 0; a < numOfResiduals; a++) {
+                for (int b = a; b < numOfResiduals; b++) {
+                    double dotProduct = 0.0;
+                    int rowA = a * numOfParameters;
+                    int rowB = b * numOfParameters;
+                    for (int i = 0; i < numOfParameters; i++)
+                        dotProduct += jacobian[rowA + i] * jacobian[rowB + i];
+                    gramMatrix[a * numOfResiduals + b] = dotProduct;
+                    gramMatrix[b * numOfResiduals + a] = dotProduct;
+                }
+            }
+            return gramMatrix;
+        }
+
+        /**
+         * Calculates J^T y.
+         *
+         * @param vector Residual space vector y
+         * @return Parameter space vector
+         */
+        double[] multiplyTransposed(double[] vector) {
+            double[] product = new double[numOfParameters];
+            for (int a = 0; a < numOfResiduals; a++) {
+                double value = vector[a];
+                int row = a * numOfParameters;
+                for (int i = 0; i < numOfParameters; i++)
+                    product[i] += jacobian[row + i] * value;
+            }
+            return product;
+        }
+    }
+
+}
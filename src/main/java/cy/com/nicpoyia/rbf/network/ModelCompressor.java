@@ -0,0 +1,195 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+
+/**
+ * Class responsible for compressing trained models. Hidden nodes whose centres
+ * lie closer than a tolerance are merged into one node, nodes whose output
+ * coefficients are all negligible are dropped, and the remaining centres are
+ * finally stored in the requested encoding.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ModelCompressor {
+    // Distance below which centres are merged
+    private final double mergeTolerance;
+    // Absolute output coefficient below which a node is dropped
+    private final double dropThreshold;
+    // Encoding of the compressed model's centres, or null to keep the model's encoding
+    private final CentreEncoding centreEncoding;
+
+    /**
+     * Constructs a model compressor.
+     *
+     * @param mergeTolerance Distance below which centres are merged (0: no merging)
+     * @param dropThreshold  Absolute output coefficient below which a node is dropped (0: no dropping)
+     * @param centreEncoding Encoding of the compressed centres, or null to keep the model's encoding
+     */
+    public ModelCompressor(double mergeTolerance, double dropThreshold, CentreEncoding centreEncoding) {
+        this.mergeTolerance = mergeTolerance;
+        this.dropThreshold = dropThreshold;
+        this.centreEncoding = centreEncoding;
+    }
+
+    /**
+     * Compresses a snapshot of a trained network.
+     *
+     * @param network Trained network
+     * @return Compressed model
+     */
+    public RBFModel compress(RBFNetwork network) {
+        return compress(network.createModelSnapshot());
+    }
+
+    /**
+     * Compresses a trained model.
+     *
+     * @param model Trained model
+     * @return Compressed model
+     */
+    public RBFModel compress(RBFModel model) {
+        CentreEncoding encoding = centreEncoding != null ? centreEncoding : model.getCentreEncoding();
+        return dropNodes(mergeCentres(model)).withCentreEncoding(encoding);
+    }
+
+    /**
+     * Calculates a model's error over data-set rows, as the network calculates
+     * its epoch errors.
+     *
+     * @param model      Model
+     * @param dataMatrix Data matrix
+     * @param rows       Data-set rows
+     * @return Total error
+     */
+    public static double calculateError(RBFModel model, CompoundDataMatrix dataMatrix, int[] rows) {
+        double totalSquaredSum = 0.0;
+        for (int row : rows) {
+            double[] outputVector = model.getOutputVector(dataMatrix.getAttributeValues(row));
+            for (int i = 0; i < outputVector.length; i++) {
+                double error = dataMatrix.getActivity(row, i) - outputVector[i];
+                totalSquaredSum += (error * error);
+            }
+        }
+        return 0.5 * totalSquaredSum;
+    }
+
+    /**
+     * Merges the nodes whose centres lie within the merge tolerance of a
+     * node's centre. Output coefficients of merged nodes are added, as the
+     * nodes respond almost identically, while centres and widths are averaged
+     * weighted by the nodes' coefficient magnitudes.
+     *
+     * @param model Model
+     * @return Model with merged nodes, in double precision
+     */
+    private RBFModel mergeCentres(RBFModel model) {
+        int numInputNeurons = model.getNumInputNeurons();
+        int numOutputNeurons = model.getNumOutputNeurons();
+        int numHiddenNodes = model.getNumHiddenNodes();
+        double[][] nodeCentres = new double[numHiddenNodes][];
+        for (int node = 0; node < numHiddenNodes; node++)
+            nodeCentres[node] = model.getCentre(node);
+        double squaredMergeTolerance = mergeTolerance * mergeTolerance;
+        boolean[] merged = new boolean[numHiddenNodes];
+        double[] centres = new double[numHiddenNodes * numInputNeurons];
+        double[] sigmas = new double[numHiddenNodes];
+        double[] coefficients = new double[numHiddenNodes * numOutputNeurons];
+        int numOfMergedNodes = 0;
+        for (int node = 0; node < numHiddenNodes; node++) {
+            if (merged[node])
+                continue;
+            // Node's group: the node and the unmerged nodes close to its centre
+            double[] weightedCentre = new double[numInputNeurons];
+            double[] meanCentre = new double[numInputNeurons];
+            double weightedSigma = 0.0;
+            double meanSigma = 0.0;
+            double totalWeight = 0.0;
+            int groupSize = 0;
+            for (int other = node; other < numHiddenNodes; other++) {
+                if (merged[other] || ((other != node)
+                        && (VectorKernels.squaredDistance(nodeCentres[node], nodeCentres[other]) >= squaredMergeTolerance)))
+                    continue;
+                merged[other] = true;
+                double weight = 0.0;
+                for (int i = 0; i < numOutputNeurons; i++) {
+                    double coefficient = model.getCoefficient(other, i);
+                    coefficients[numOfMergedNodes * numOutputNeurons + i] += coefficient;
+                    weight += Math.abs(coefficient);
+                }
+                VectorKernels.accumulateWeighted(weight, nodeCentres[other], weightedCentre);
+                VectorKernels.accumulateWeighted(1.0, nodeCentres[other], meanCentre);
+                weightedSigma += weight * model.getSigma(other);
+                meanSigma += model.getSigma(other);
+                totalWeight += weight;
+                groupSize++;
+            }
+            // Nodes without any coefficient weigh equally
+            if (totalWeight == 0.0) {
+                weightedCentre = meanCentre;
+                weightedSigma = meanSigma;
+                totalWeight = groupSize;
+            }
+            for (int i = 0; i < numInputNeurons; i++)
+                centres[numOfMergedNodes * numInputNeurons + i] = weightedCentre[i] / totalWeight;
+            sigmas[numOfMergedNodes] = weightedSigma / totalWeight;
+            numOfMergedNodes++;
+        }
+        return createModel(model, numOfMergedNodes, centres, sigmas, coefficients);
+    }
+
+    /**
+     * Drops the nodes whose output coefficients are all below the drop
+     * threshold in magnitude.
+     *
+     * @param model Model, in double precision
+     * @return Model without negligible nodes
+     */
+    private RBFModel dropNodes(RBFModel model) {
+        int numInputNeurons = model.getNumInputNeurons();
+        int numOutputNeurons = model.getNumOutputNeurons();
+        int numHiddenNodes = model.getNumHiddenNodes();
+        double[] centres = new double[numHiddenNodes * numInputNeurons];
+        double[] sigmas = new double[numHiddenNodes];
+        double[] coefficients = new double[numHiddenNodes * numOutputNeurons];
+        int numOfKeptNodes = 0;
+        for (int node = 0; node < numHiddenNodes; node++) {
+            boolean negligible = true;
+            for (int i = 0; (i < numOutputNeurons) && negligible; i++)
+                negligible = Math.abs(model.getCoefficient(node, i)) < dropThreshold;
+            if (negligible)
+                continue;
+            System.arraycopy(model.getCentre(node), 0, centres, numOfKeptNodes * numInputNeurons, numInputNeurons);
+            sigmas[numOfKeptNodes] = model.getSigma(node);
+            for (int i = 0; i < numOutputNeurons; i++)
+                coefficients[numOfKeptNodes * numOutputNeurons + i] = model.getCoefficient(node, i);
+            numOfKeptNodes++;
+        }
+        return createModel(model, numOfKeptNodes, centres, sigmas, coefficients);
+    }
+
+    /**
+     * Creates a double precision model from the first nodes of parameter
+     * arrays, keeping the original model's other properties.
+     *
+     * @param model          Original model
+     * @param numHiddenNodes Number of hidden nodes
+     * @param centres        Centres, possibly longer than needed
+     * @param sigmas         Widths, possibly longer than needed
+     * @param coefficients   Output coefficients, possibly longer than needed
+     * @return Model
+     */
+    private static RBFModel createModel(RBFModel model, int numHiddenNodes, double[] centres, double[] sigmas,
+                                        double[] coefficients) {
+        int numInputNeurons = model.getNumInputNeurons();
+        int numOutputNeurons = model.getNumOutputNeurons();
+        double[] modelCentres = new double[numHiddenNodes * numInputNeurons];
+        double[] modelSigmas = new double[numHiddenNodes];
+        double[] modelCoefficients = new double[numHiddenNodes * numOutputNeurons];
+        System.arraycopy(centres, 0, modelCentres, 0, modelCentres.length);
+        System.arraycopy(sigmas, 0, modelSigmas, 0, numHiddenNodes);
+        System.arraycopy(coefficients, 0, modelCoefficients, 0, modelCoefficients.length);
+        return new RBFModel(numInputNeurons, numOutputNeurons, model.getBasisFunction(), modelCentres, null,
+                modelSigmas, modelCoefficients, model.getNormalizationTransform());
+    }
+
+}
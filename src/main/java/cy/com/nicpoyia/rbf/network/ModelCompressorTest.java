@@ -0,0 +1,107 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+/**
+ * Test Driver class for ModelCompressor class. Checks the half precision
+ * conversions, trains a network whose centres include near duplicates,
+ * compresses it with several settings comparing the testing errors, and checks
+ * that the narrow centre encodings survive a model file round trip.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ModelCompressorTest {
+    // Number of passes over the training data-sets
+    private static final int numOfPasses = 300;
+    // Number of near duplicate centres
+    private static final int numOfDuplicates = 4;
+    // Compression settings
+    private static final double mergeTolerance = 0.3;
+    private static final double dropThreshold = 0.1;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        // Half precision round trip of all non NaN values
+        int halfMismatches = 0;
+        for (int bits = 0; bits < (1 << 16); bits++) {
+            float value = HalfFloat.toFloat((short) bits);
+            if (!Float.isNaN(value) && ((HalfFloat.fromFloat(value) & 0xffff) != bits))
+                halfMismatches++;
+        }
+        System.out.println("Half precision round trip mismatches: " + halfMismatches);
+        // Train a network whose last centres nearly duplicate the first ones
+        Configuration fileConfiguration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(fileConfiguration).getDataMatrix();
+        int numHiddenNodes = fileConfiguration.numHiddenLayerNeurons + numOfDuplicates;
+        double[] sigmas = new double[numHiddenNodes];
+        for (int node = 0; node < numHiddenNodes; node++)
+            sigmas[node] = fileConfiguration.sigmas[node % fileConfiguration.sigmas.length];
+        Configuration configuration = new Configuration(numHiddenNodes, fileConfiguration.numInputNeurons,
+                fileConfiguration.numOutputNeurons, fileConfiguration.learningRates, sigmas);
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        Random randomGenerator = new Random(38);
+        double[][] centres = new double[numHiddenNodes][];
+        double[][] selectedCentres = dataMatrix.selectCentres(fileConfiguration.numHiddenLayerNeurons, trainingRows,
+                randomGenerator);
+        System.arraycopy(selectedCentres, 0, centres, 0, selectedCentres.length);
+        for (int node = selectedCentres.length; node < numHiddenNodes; node++) {
+            centres[node] = selectedCentres[node - selectedCentres.length].clone();
+            for (int i = 0; i < centres[node].length; i++)
+                centres[node][i] += 1e-3 * randomGenerator.nextGaussian();
+        }
+        RBFNetwork network = new RBFNetwork(configuration, centres, dataMatrix.getNormalizationTransform());
+        for (int pass = 0; pass < numOfPasses; pass++)
+            for (int row : trainingRows)
+                network.partialFit(dataMatrix.getAttributeValues(row), new double[]{dataMatrix.getActivity(row)});
+        RBFModel model = network.createModelSnapshot();
+        int[] testingRows = dataMatrix.getTestingIndices();
+        printModel("Trained model", model, dataMatrix, testingRows);
+        // Compress with several settings
+        printModel("Merged", new ModelCompressor(mergeTolerance, 0.0, null).compress(model), dataMatrix, testingRows);
+        printModel("Merged and dropped", new ModelCompressor(mergeTolerance, dropThreshold, null).compress(model),
+                dataMatrix, testingRows);
+        for (CentreEncoding centreEncoding : CentreEncoding.values()) {
+            RBFModel compressedModel = new ModelCompressor(mergeTolerance, 0.0, centreEncoding).compress(model);
+            printModel("Merged, " + centreEncoding.getParameterName() + " centres", compressedModel, dataMatrix,
+                    testingRows);
+            // Model file round trip
+            ByteArrayOutputStream modelBytes = new ByteArrayOutputStream();
+            RBFModelFile.write(compressedModel, new DataOutputStream(modelBytes));
+            RBFModel readModel = RBFModelFile.read(new DataInputStream(new ByteArrayInputStream(modelBytes.toByteArray())));
+            int mismatches = 0;
+            for (int row : testingRows) {
+                double[] input = dataMatrix.getAttributeValues(row);
+                if (compressedModel.getOutputVector(input)[0] != readModel.getOutputVector(input)[0])
+                    mismatches++;
+            }
+            System.out.println("    " + readModel.getCentreEncoding().getParameterName() + " file of "
+                    + modelBytes.size() + " bytes, mismatching outputs: " + mismatches);
+        }
+    }
+
+    /**
+     * Prints a model's size and testing error.
+     *
+     * @param title       Model title
+     * @param model       Model
+     * @param dataMatrix  Data matrix
+     * @param testingRows Testing data-set rows
+     */
+    private static void printModel(String title, RBFModel model, CompoundDataMatrix dataMatrix, int[] testingRows) {
+        System.out.println(title + ": " + model.getNumHiddenNodes() + " hidden nodes, "
+                + model.getCentreMatrixBytes() + " centre bytes, testing error "
+                + ModelCompressor.calculateError(model, dataMatrix, testingRows));
+    }
+
+}
@@ -0,0 +1,139 @@
+package cy.com.nicpoyia.rbf.network;
+
+/**
+ * Update rules of the hidden nodes parameters. Each rule turns a parameter's
+ * update direction (the negative error gradient, as used by plain gradient
+ * descent) into the parameter's update value. Rules with state keep it in a
+ * flat array per node, holding numOfStateValues values per parameter: the
+ * first moments of all parameters, followed by their second moments. The
+ * optimizer parameters are {momentum, decay, epsilon}: momentum is the first
+ * moment decay (momentum, Adam), decay the second moment decay (RMSProp, Adam)
+ * and epsilon the denominator offset (RMSProp, Adam).
+ *
+ * @author Nicolas Poyiadjis
+ */
+public enum Optimizer {
+    /**
+     * Plain stochastic gradient descent: rate * direction.
+     */
+    SGD("sgd", 0),
+    /**
+     * Gradient descent with momentum: v = momentum * v + rate * direction.
+     */
+    MOMENTUM("momentum", 1),
+    /**
+     * RMSProp: rate * direction / (sqrt(mean squared direction) + epsilon).
+     */
+    RMSPROP("rmsprop", 1),
+    /**
+     * Adam: rate * mean direction / (sqrt(mean squared direction) + epsilon),
+     * with the bias correction of both moments folded into the step scale.
+     */
+    ADAM("adam", 2);
+
+    // Name used in the parameters file
+    private final String parameterName;
+    // State values kept per parameter
+    private final int numOfStateValues;
+
+    /**
+     * Constructs an optimizer constant.
+     *
+     * @param parameterName    Name used in the parameters file
+     * @param numOfStateValues State values kept per parameter
+     */
+    Optimizer(String parameterName, int numOfStateValues) {
+        this.parameterName = parameterName;
+        this.numOfStateValues = numOfStateValues;
+    }
+
+    /**
+     * Parameter name getter method.
+     *
+     * @return Name used in the parameters file
+     */
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * Number of state values getter method.
+     *
+     * @return State values kept per parameter
+     */
+    public int getNumOfStateValues() {
+        return numOfStateValues;
+    }
+
+    /**
+     * Looks up an optimizer by its name in the parameters file.
+     *
+     * @param parameterName Name used in the parameters file
+     * @return Optimizer
+     * @throws IllegalArgumentException If the name is unknown
+     */
+    public static Optimizer fromParameterName(String parameterName) {
+        for (Optimizer optimizer : values()) {
+            if (optimizer.parameterName.equals(parameterName))
+                return optimizer;
+        }
+        throw new IllegalArgumentException("Unknown optimizer: " + parameterName);
+    }
+
+    /**
+     * Calculates the factor by which the learning rates of a node's update are
+     * scaled. Adam's bias correction depends only on the number of updates, so
+     * it is applied once per node update rather than once per parameter.
+     *
+     * @param step                Number of the node's update, starting from 1
+     * @param optimizerParameters Optimizer parameters {momentum, decay, epsilon}
+     * @return Step scale
+     */
+    public double stepScale(long step, double[] optimizerParameters) {
+        if (this != ADAM)
+            return 1.0;
+        return Math.sqrt(1.0 - Math.pow(optimizerParameters[1], step))
+                / (1.0 - Math.pow(optimizerParameters[0], step));
+    }
+
+    /**
+     * Calculates a parameter's update value, updating its state.
+     *
+     * @param direction           Update direction (negative error gradient)
+     * @param learningRate        Learning rate, scaled by the step scale
+     * @param state               Node's optimizer state
+     * @param parameter           Index of the parameter within the node
+     * @param numOfParameters     Number of the node's parameters
+     * @param optimizerParameters Optimizer parameters {momentum, decay, epsilon}
+     * @return Update value, to be added to the parameter
+     */
+    public double updateValue(double direction, double learningRate, double[] state, int parameter,
+                              int numOfParameters, double[] optimizerParameters) {
+        switch (this) {
+            case MOMENTUM: {
+                double velocity = optimizerParameters[0] * state[parameter] + learningRate * direction;
+                state[parameter] = velocity;
+                return velocity;
+            }
+            case RMSPROP: {
+                double decay = optimizerParameters[1];
+                double meanSquare = decay * state[parameter] + (1.0 - decay) * direction * direction;
+                state[parameter] = meanSquare;
+                return learningRate * direction / (Math.sqrt(meanSquare) + optimizerParameters[2]);
+            }
+            case ADAM: {
+                double momentum = optimizerParameters[0];
+                double decay = optimizerParameters[1];
+                double mean = momentum * state[parameter] + (1.0 - momentum) * direction;
+                double meanSquare = decay * state[numOfParameters + parameter]
+                        + (1.0 - decay) * direction * direction;
+                state[parameter] = mean;
+                state[numOfParameters + parameter] = meanSquare;
+                return learningRate * mean / (Math.sqrt(meanSquare) + optimizerParameters[2]);
+            }
+            default:
+                return learningRate * direction;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test Driver class for Optimizer and LearningRateSchedule classes. Trains
+ * networks starting from the same parameters with each optimizer, printing
+ * the testing error along the epochs, prints the learning rate schedules and
+ * checks that synchronous and asynchronous testing train the same epochs
+ * with the same scheduled learning rates.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class OptimizerTest {
+    // Number of training epochs
+    private static final int numOfEpochs = 500;
+    // Epochs after which the testing error is printed
+    private static final int[] reportedEpochs = {25, 50, 100, 200, 500};
+    // Learning rates of each optimizer (SGD uses the parameters file ones)
+    private static final double[] adaptiveLearningRates = {0.01, 0.001, 0.01};
+    private static final double[] momentumLearningRates = {0.05, 0.025, 0.075};
+    // Number of epochs trained with synchronous and asynchronous testing
+    private static final int numOfScheduledEpochs = 3;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration fileConfiguration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(fileConfiguration).getDataMatrix();
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        double[][] inputs = new double[trainingRows.length][];
+        double[][] targets = new double[trainingRows.length][];
+        for (int i = 0; i < trainingRows.length; i++) {
+            inputs[i] = dataMatrix.getAttributeValues(trainingRows[i]);
+            targets[i] = new double[]{dataMatrix.getActivity(trainingRows[i])};
+        }
+        // Common starting parameters
+        Configuration configuration = new Configuration(fileConfiguration.numHiddenLayerNeurons,
+                fileConfiguration.numInputNeurons, fileConfiguration.numOutputNeurons,
+                fileConfiguration.learningRates, fileConfiguration.sigmas);
+        double[][] centres = dataMatrix.selectCentres(configuration.numHiddenLayerNeurons, trainingRows, new Random(41));
+        RBFModel startingModel = new RBFNetwork(configuration, centres, dataMatrix.getNormalizationTransform())
+                .createModelSnapshot();
+        for (Optimizer optimizer : Optimizer.values()) {
+            Configuration optimizerConfiguration = new Configuration(configuration);
+            optimizerConfiguration.optimizer = optimizer;
+            if (optimizer == Optimizer.MOMENTUM)
+                optimizerConfiguration.learningRates = momentumLearningRates.clone();
+            else if (optimizer != Optimizer.SGD)
+                optimizerConfiguration.learningRates = adaptiveLearningRates.clone();
+            RBFNetwork network = new RBFNetwork(optimizerConfiguration, startingModel);
+            StringBuilder testingErrors = new StringBuilder(optimizer.getParameterName() + " testing error:");
+            int nextReport = 0;
+            for (int epoch = 1; epoch <= numOfEpochs; epoch++) {
+                network.partialFit(inputs, targets);
+                if (epoch == reportedEpochs[nextReport]) {
+                    double testingError = ModelCompressor.calculateError(network.createModelSnapshot(), dataMatrix,
+                            dataMatrix.getTestingIndices());
+                    testingErrors.append(' ').append(epoch).append(": ").append(testingError);
+                    nextReport++;
+                }
+            }
+            System.out.println(testingErrors);
+        }
+        for (LearningRateSchedule schedule : LearningRateSchedule.values()) {
+            StringBuilder factors = new StringBuilder(schedule.getParameterName() + " factors:");
+            for (int epoch = 0; epoch <= 300; epoch += 50)
+                factors.append(' ').append(schedule.factor(epoch, 0.5, 100));
+            System.out.println(factors);
+        }
+        // Synchronous and asynchronous testing train with the same schedule, starting from the same parameters
+        Configuration scheduledConfiguration = new Configuration(fileConfiguration);
+        scheduledConfiguration.learningRateSchedule = LearningRateSchedule.STEP;
+        scheduledConfiguration.learningRateDecay = 0.5;
+        scheduledConfiguration.learningRateDecayEpochs = 1;
+        scheduledConfiguration.levenbergMarquardt = false;
+        scheduledConfiguration.useBias = false;
+        scheduledConfiguration.testingInterval = 1;
+        scheduledConfiguration.resultsFile = null;
+        scheduledConfiguration.weightsFile = null;
+        RBFNetwork[] scheduledNetworks = new RBFNetwork[2];
+        for (int i = 0; i < scheduledNetworks.length; i++) {
+            Configuration testingConfiguration = new Configuration(scheduledConfiguration);
+            testingConfiguration.asyncTesting = i == 1;
+            scheduledNetworks[i] = new RBFNetwork(testingConfiguration, dataMatrix);
+        }
+        scheduledNetworks[1].setParameterVector(scheduledNetworks[0].getParameterVector());
+        for (RBFNetwork network : scheduledNetworks)
+            network.executeEpochs(numOfScheduledEpochs);
+        TrainingTestingResults syncResults = scheduledNetworks[0].getResults();
+        TrainingTestingResults asyncResults = scheduledNetworks[1].getResults();
+        System.out.println("Synchronous testing error: " + syncResults.getLastTestingError()
+                + ", asynchronous testing error: " + asyncResults.getLastTestingError() + ", equal: "
+                + ((syncResults.getLastTrainingError() == asyncResults.getLastTrainingError())
+                && (syncResults.getLastTestingError() == asyncResults.getLastTestingError())
+                && Arrays.equals(scheduledNetworks[0].getParameterVector(),
+                scheduledNetworks[1].getParameterVector())));
+    }
+
+}
@@ -33,6 +33,34 @@ public class RBFBiasHiddenNode extends RBFHiddenNode {
 		return ouputVector;
 	}
 
+	/**
+	 * Adds the bias hidden node's weighted output vector to a network output
+	 * vector.
+	 * 
+	 * @param input
+	 *            Input vector
+	 * @param outputVector
+	 *            Output vector to accumulate into
+	 * @return Bias node activation (always one)
+	 */
+	@Override
+	public double accumulateOutputVector(double[] input, double[] outputVector) {
+		VectorKernels.accumulateWeighted(1.0, outputCoefficients, outputVector);
+		return 1.0;
+	}
+
+	/**
+	 * Calculates the bias node's activation, which does not depend on the input.
+	 * 
+	 * @param input
+	 *            Input vector
+	 * @return Bias node activation (always one)
+	 */
+	@Override
+	public double calculateActivation(double[] input) {
+		return 1.0;
+	}
+
 	/**
 	 * Updates the bias node's output coefficient, centre and sigma.
 	 * 
@@ -52,6 +80,32 @@ public class RBFBiasHiddenNode extends RBFHiddenNode {
 			outputCoefficients[i] += coefficientUpdateVector[i];
 	}
 
+	/**
+	 * Updates the bias node's output coefficient through an optimizer.
+	 * 
+	 * @param input
+	 *            Input vector
+	 * @param outputErrors
+	 *            Error of each network output
+	 * @param learningRates
+	 *            Coefficient learning rates
+	 * @param optimizer
+	 *            Optimizer
+	 * @param optimizerParameters
+	 *            Optimizer parameters {momentum, decay, epsilon}
+	 */
+	@Override
+	public void updateNodeParemeters(double[] input, double[] outputErrors, double[] learningRates,
+			Optimizer optimizer, double[] optimizerParameters) {
+		int numOfParameters = outputCoefficients.length;
+		if (optimizerState == null)
+			optimizerState = new double[optimizer.getNumOfStateValues() * numOfParameters];
+		double stepScale = optimizer.stepScale(++optimizerSteps, optimizerParameters);
+		for (int i = 0; i < numOfParameters; i++)
+			outputCoefficients[i] += optimizer.updateValue(outputErrors[i], stepScale * learningRates[0],
+					optimizerState, i, numOfParameters, optimizerParameters);
+	}
+
 	/**
 	 * Calculates the update value of the bias node's output coefficient.
 	 * 
@@ -0,0 +1,136 @@
+package cy.com.nicpoyia.rbf.network;
+
+import java.util.List;
+
+/**
+ * Class representing an immutable ensemble of RBF models. The hidden nodes of
+ * all members are concatenated into one centre matrix, so that an input is
+ * scored by every member in a single pass, giving the mean and variance of the
+ * members' outputs.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class RBFEnsembleModel {
+    // Ensemble dimensions
+    private final int numOfMembers;
+    private final int numInputNeurons;
+    private final int numOutputNeurons;
+    // Basis function of all hidden nodes
+    private final BasisFunction basisFunction;
+    // Index of each member's first hidden node, followed by the total number of nodes
+    private final int[] memberNodeOffsets;
+    // Concatenated hidden node centres, widths and output coefficients
+    private final double[] centres;
+    private final double[] sigmas;
+    private final double[] coefficients;
+
+    /**
+     * Constructs an ensemble model from its member models, which must share
+     * dimensions and basis function.
+     *
+     * @param members Member models
+     */
+    public RBFEnsembleModel(List<RBFModel> members) {
+        if (members.isEmpty())
+            throw new IllegalArgumentException("At least one member is required");
+        RBFModel firstMember = members.get(0);
+        this.numOfMembers = members.size();
+        this.numInputNeurons = firstMember.getNumInputNeurons();
+        this.numOutputNeurons = firstMember.getNumOutputNeurons();
+        this.basisFunction = firstMember.getBasisFunction();
+        this.memberNodeOffsets = new int[numOfMembers + 1];
+        for (int m = 0; m < numOfMembers; m++) {
+            RBFModel member = members.get(m);
+            if ((member.getNumInputNeurons() != numInputNeurons) || (member.getNumOutputNeurons() != numOutputNeurons)
+                    || (member.getBasisFunction() != basisFunction))
+                throw new IllegalArgumentException("Member " + m + " does not match the ensemble");
+            memberNodeOffsets[m + 1] = memberNodeOffsets[m] + member.getNumHiddenNodes();
+        }
+        int numOfNodes = memberNodeOffsets[numOfMembers];
+        this.centres = new double[numOfNodes * numInputNeurons];
+        this.sigmas = new double[numOfNodes];
+        this.coefficients = new double[numOfNodes * numOutputNeurons];
+        for (int m = 0; m < numOfMembers; m++) {
+            RBFModel member = members.get(m);
+            for (int i = 0; i < member.getNumHiddenNodes(); i++) {
+                int node = memberNodeOffsets[m] + i;
+                System.arraycopy(member.getCentre(i), 0, centres, node * numInputNeurons, numInputNeurons);
+                sigmas[node] = member.getSigma(i);
+                for (int j = 0; j < numOutputNeurons; j++)
+                    coefficients[node * numOutputNeurons + j] = member.getCoefficient(i, j);
+            }
+        }
+    }
+
+    /**
+     * Number of members getter method.
+     *
+     * @return Number of member models
+     */
+    public int getNumOfMembers() {
+        return numOfMembers;
+    }
+
+    /**
+     * Calculates each member's output vector for an input, in one pass over
+     * the concatenated centre matrix.
+     *
+     * @param input Input vector
+     * @return Flat member outputs (numOfMembers x numOutputNeurons)
+     */
+    public double[] getMemberOutputs(double[] input) {
+        double[] memberOutputs = new double[numOfMembers * numOutputNeurons];
+        boolean compactSupport = basisFunction.hasCompactSupport();
+        for (int m = 0; m < numOfMembers; m++) {
+            int outputOffset = m * numOutputNeurons;
+            for (int node = memberNodeOffsets[m]; node < memberNodeOffsets[m + 1]; node++) {
+                double sigma = sigmas[node];
+                int centreOffset = node * numInputNeurons;
+                double basisFunctionValue;
+                if (compactSupport) {
+                    double squaredSupportRadius = basisFunction.squaredSupportRadius(sigma);
+                    double squaredDistance = VectorKernels.boundedSquaredDistance(input, centres, centreOffset,
+                            numInputNeurons, squaredSupportRadius);
+                    if (squaredDistance >= squaredSupportRadius)
+                        continue;
+                    basisFunctionValue = basisFunction.value(squaredDistance, sigma);
+                } else {
+                    double squaredDistance = VectorKernels.squaredDistance(input, centres, centreOffset,
+                            numInputNeurons);
+                    basisFunctionValue = basisFunction.value(squaredDistance, sigma);
+                }
+                int coefficientsOffset = node * numOutputNeurons;
+                for (int i = 0; i < numOutputNeurons; i++)
+                    memberOutputs[outputOffset + i] += coefficients[coefficientsOffset + i] * basisFunctionValue;
+            }
+        }
+        return memberOutputs;
+    }
+
+    /**
+     * Calculates the mean and the variance of the members' outputs for an
+     * input.
+     *
+     * @param input Input vector
+     * @return Mean output vector (index 0) and output variance vector (index 1)
+     */
+    public double[][] getMeanAndVariance(double[] input) {
+        double[] memberOutputs = getMemberOutputs(input);
+        double[] mean = new double[numOutputNeurons];
+        double[] variance = new double[numOutputNeurons];
+        for (int m = 0; m < numOfMembers; m++)
+            for (int i = 0; i < numOutputNeurons; i++)
+                mean[i] += memberOutputs[m * numOutputNeurons + i];
+        for (int i = 0; i < numOutputNeurons; i++)
+            mean[i] /= numOfMembers;
+        for (int m = 0; m < numOfMembers; m++)
+            for (int i = 0; i < numOutputNeurons; i++) {
+                double deviation = memberOutputs[m * numOutputNeurons + i] - mean[i];
+                variance[i] += deviation * deviation;
+            }
+        for (int i = 0; i < numOutputNeurons; i++)
+            variance[i] /= numOfMembers;
+        return new double[][]{mean, variance};
+    }
+
+}
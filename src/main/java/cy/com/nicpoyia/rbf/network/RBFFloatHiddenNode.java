@@ -0,0 +1,220 @@
+package cy.com.nicpoyia.rbf.network;
+
+import java.util.Random;
+
+/**
+ * Class representing an RBF hidden node whose centre is stored in single
+ * precision. Distances and parameter updates are accumulated in double
+ * precision, only the stored centre coordinates are rounded to float.
+ *
+ * @author Nicolas Poyiadjis
+ *
+ */
+public class RBFFloatHiddenNode extends RBFHiddenNode {
+	// Centre of the hidden node (single precision)
+	public float[] floatCentre;
+
+	/**
+	 * Constructs a single precision RBF hidden node.
+	 *
+	 * @param outputCoefficients
+	 *            Initial coefficient of each output connection from the hidden
+	 *            node
+	 * @param centre
+	 *            Initial centre of the hidden node
+	 * @param sigma
+	 *            Initial basis function width
+	 * @param basisFunction
+	 *            Basis function
+	 */
+	public RBFFloatHiddenNode(double[] outputCoefficients, double[] centre, double sigma,
+			BasisFunction basisFunction) {
+		super(outputCoefficients, null, sigma, basisFunction);
+		this.floatCentre = new float[centre.length];
+		for (int i = 0; i < centre.length; i++)
+			floatCentre[i] = (float) centre[i];
+	}
+
+	/**
+	 * Constructs a single precision RBF hidden node with a gaussian basis
+	 * function.
+	 *
+	 * @param outputCoefficients
+	 *            Initial coefficient of each output connection from the hidden
+	 *            node
+	 * @param centre
+	 *            Initial centre of the hidden node
+	 * @param sigma
+	 *            Initial gaussian width
+	 */
+	public RBFFloatHiddenNode(double[] outputCoefficients, double[] centre, double sigma) {
+		this(outputCoefficients, centre, sigma, BasisFunction.GAUSSIAN);
+	}
+
+	/**
+	 * Centre vector getter method.
+	 *
+	 * @return Centre of the hidden node, widened to double precision
+	 */
+	@Override
+	public double[] getCentreVector() {
+		double[] centreVector = new double[floatCentre.length];
+		for (int i = 0; i < floatCentre.length; i++)
+			centreVector[i] = floatCentre[i];
+		return centreVector;
+	}
+
+	/**
+	 * Calculates the hidden node's basis function value for an input.
+	 *
+	 * @param input
+	 *            Input vector
+	 * @return Basis function value
+	 */
+	@Override
+	public double calculateActivation(double[] input) {
+		if (basisFunction.hasCompactSupport()) {
+			double squaredSupportRadius = basisFunction.squaredSupportRadius(sigma);
+			double squaredDistance = VectorKernels.boundedSquaredDistance(input, floatCentre, 0, floatCentre.length,
+					squaredSupportRadius);
+			if (squaredDistance >= squaredSupportRadius)
+				return 0.0;
+			return calculateBasisFunctionValue(squaredDistance);
+		}
+		return calculateBasisFunctionValue(calculateSquaredInputDistance(input));
+	}
+
+	/**
+	 * Calculates the squared euclidean distance between an input vector and the
+	 * hidden node centre, accumulated in double precision.
+	 *
+	 * @param input
+	 *            Input vector
+	 * @return Squared euclidean distance
+	 */
+	@Override
+	public double calculateSquaredDistance(double[] input) {
+		return calculateSquaredInputDistance(input);
+	}
+
+	/**
+	 * Updates the node's output coefficient, centre and sigma.
+	 *
+	 * @param input
+	 *            Input vector
+	 * @param outputErrors
+	 *            Error of each network output
+	 * @param learningRates
+	 *            Coefficient learning rates
+	 */
+	@Override
+	public void updateNodeParemeters(double[] input, double[] outputErrors, double[] learningRates) {
+		// Distance and basis value are shared by all update values
+		double squaredDistance = calculateSquaredInputDistance(input);
+		double distanceBasisValue = calculateBasisFunctionValue(squaredDistance);
+		// Outside a compact support all update values are zero
+		if (distanceBasisValue == 0.0 && basisFunction.hasCompactSupport())
+			return;
+		// Error weighted by the (not yet updated) output coefficients
+		double weightedError = 0.0;
+		for (int i = 0; i < outputErrors.length; i++)
+			weightedError += outputErrors[i] * outputCoefficients[i];
+		double centreUpdateFactor = learningRates[1] * weightedError
+				* basisFunction.centreUpdateFactor(squaredDistance, sigma, distanceBasisValue);
+		double sigmaUpdateValue = learningRates[2] * weightedError
+				* basisFunction.sigmaUpdateValue(squaredDistance, sigma, distanceBasisValue);
+		// Update node's parameters
+		VectorKernels.accumulateWeighted(learningRates[0] * distanceBasisValue, outputErrors, outputCoefficients);
+		VectorKernels.updateCentre(centreUpdateFactor, input, floatCentre);
+		sigma += sigmaUpdateValue;
+	}
+
+	/**
+	 * Moves the single precision centre through an optimizer, along the scaled
+	 * input-centre difference.
+	 *
+	 * @param input
+	 *            Input vector
+	 * @param directionFactor
+	 *            Factor of the input-centre difference giving the update
+	 *            direction
+	 * @param learningRate
+	 *            Centre learning rate
+	 * @param optimizer
+	 *            Optimizer
+	 * @param optimizerParameters
+	 *            Optimizer parameters {momentum, decay, epsilon}
+	 * @param firstParameter
+	 *            Index of the first centre coordinate within the node's
+	 *            parameters
+	 * @param numOfParameters
+	 *            Number of the node's parameters
+	 */
+	@Override
+	protected void updateCentre(double[] input, double directionFactor, double learningRate, Optimizer optimizer,
+			double[] optimizerParameters, int firstParameter, int numOfParameters) {
+		for (int i = 0; i < floatCentre.length; i++)
+			floatCentre[i] += (float) optimizer.updateValue(directionFactor * (input[i] - floatCentre[i]),
+					learningRate, optimizerState, firstParameter + i, numOfParameters, optimizerParameters);
+	}
+
+	/**
+	 * Calculates the squared euclidean distance between an input vector and the
+	 * current hidden node centre, accumulated in double precision.
+	 *
+	 * @param input
+	 *            Input vector
+	 * @return Squared euclidean distance
+	 */
+	private double calculateSquaredInputDistance(double[] input) {
+		return VectorKernels.squaredDistance(input, floatCentre);
+	}
+
+	/**
+	 * Calculates the basis function value.
+	 *
+	 * @param inputDistance
+	 *            Squared distance between input and centre
+	 * @return Basis function value
+	 */
+	private double calculateBasisFunctionValue(double inputDistance) {
+		return basisFunction.value(inputDistance, sigma);
+	}
+
+	/**
+	 * Test Driver, validates the single precision node against the double
+	 * precision one by training both on the same random patterns.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int numOfInputs = 53;
+		Random randomGenerator = new Random(26);
+		double[] centre = new double[numOfInputs];
+		for (int i = 0; i < numOfInputs; i++)
+			centre[i] = randomGenerator.nextDouble();
+		RBFHiddenNode doubleNode = new RBFHiddenNode(new double[] { 0.5 }, centre.clone(), 3.5);
+		RBFFloatHiddenNode floatNode = new RBFFloatHiddenNode(new double[] { 0.5 }, centre, 3.5);
+		double[] learningRates = { 0.5, 0.25, 0.75 };
+		double maxOutputDeviation = 0.0;
+		for (int i = 0; i < 10000; i++) {
+			double[] input = new double[numOfInputs];
+			for (int j = 0; j < numOfInputs; j++)
+				input[j] = randomGenerator.nextDouble();
+			double doubleOutput = doubleNode.getOutputVector(input)[0];
+			double floatOutput = floatNode.getOutputVector(input)[0];
+			maxOutputDeviation = Math.max(maxOutputDeviation, Math.abs(doubleOutput - floatOutput));
+			double[] outputErrors = { 0.01 * (randomGenerator.nextDouble() - 0.5) };
+			doubleNode.updateNodeParemeters(input, outputErrors, learningRates);
+			floatNode.updateNodeParemeters(input, outputErrors, learningRates);
+		}
+		double maxCentreDeviation = 0.0;
+		double[] floatCentreVector = floatNode.getCentreVector();
+		for (int i = 0; i < numOfInputs; i++)
+			maxCentreDeviation = Math.max(maxCentreDeviation, Math.abs(doubleNode.centre[i] - floatCentreVector[i]));
+		System.out.println("Max output deviation: " + maxOutputDeviation);
+		System.out.println("Max centre deviation: " + maxCentreDeviation);
+		System.out.println("Sigma deviation: " + Math.abs(doubleNode.sigma - floatNode.sigma));
+	}
+
+}
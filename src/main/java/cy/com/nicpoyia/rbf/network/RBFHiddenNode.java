@@ -11,8 +11,14 @@ public class RBFHiddenNode {
 	public double[] outputCoefficients;
 	// Centre of the hidden node
 	public double[] centre;
-	// Gaussian width
+	// Basis function width
 	public double sigma;
+	// Basis function
+	public final BasisFunction basisFunction;
+	// Optimizer state of the output coefficients, centre and sigma (see Optimizer)
+	protected double[] optimizerState;
+	// Number of updates through an optimizer
+	protected long optimizerSteps;
 
 	/**
 	 * Constructs an RBF hidden node.
@@ -23,12 +29,39 @@ public class RBFHiddenNode {
 	 * @param centre
 	 *            Initial centre of the hidden node
 	 * @param sigma
-	 *            Initial gaussian width
+	 *            Initial basis function width
+	 * @param basisFunction
+	 *            Basis function
 	 */
-	public RBFHiddenNode(double[] outputCoefficients, double[] centre, double sigma) {
+	public RBFHiddenNode(double[] outputCoefficients, double[] centre, double sigma, BasisFunction basisFunction) {
 		this.outputCoefficients = outputCoefficients;
 		this.centre = centre;
 		this.sigma = sigma;
+		this.basisFunction = basisFunction;
+	}
+
+	/**
+	 * Constructs an RBF hidden node with a gaussian basis function.
+	 * 
+	 * @param outputCoefficients
+	 *            Initial coefficient of each output connection from the hidden
+	 *            node
+	 * @param centre
+	 *            Initial centre of the hidden node
+	 * @param sigma
+	 *            Initial gaussian width
+	 */
+	public RBFHiddenNode(double[] outputCoefficients, double[] centre, double sigma) {
+		this(outputCoefficients, centre, sigma, BasisFunction.GAUSSIAN);
+	}
+
+	/**
+	 * Centre vector getter method.
+	 * 
+	 * @return Centre of the hidden node
+	 */
+	public double[] getCentreVector() {
+		return centre;
 	}
 
 	/**
@@ -40,135 +73,218 @@ public class RBFHiddenNode {
 	 */
 	public double[] getOutputVector(double[] input) {
 		double[] ouputVector = new double[outputCoefficients.length];
-		double inputDistance = calculateSquaredInputDistance(input);
-		double basisFunctionValue = calculateBasisFunctionValue(inputDistance);
-		for (int i = 0; i < outputCoefficients.length; i++)
-			ouputVector[i] = outputCoefficients[i] * basisFunctionValue;
+		accumulateOutputVector(input, ouputVector);
 		return ouputVector;
 	}
 
 	/**
-	 * Updates the node's output coefficient, centre and sigma.
+	 * Adds the hidden node's weighted output vector to a network output vector.
+	 * Nothing is added when the input lies outside a compact support.
 	 * 
 	 * @param input
 	 *            Input vector
-	 * @param outputErrors
-	 *            Error of each network output
-	 * @param learningRates
-	 *            Coefficient learning rates
+	 * @param outputVector
+	 *            Output vector to accumulate into
+	 * @return Basis function value
 	 */
-	public void updateNodeParemeters(double[] input, double[] outputErrors, double[] learningRates) {
-		// Calculate update values
-		double[] coefficientUpdateVector = coefficientUpdateVector(input, outputErrors, learningRates[0]);
-		double[] centreUpdateVector = centreUpdateVector(input, outputErrors, learningRates[1]);
-		double sigmaUpdateValue = sigmaUpdateValue(input, outputErrors, learningRates[2]);
-		// Update node's parameters
-		for (int i = 0; i < outputCoefficients.length; i++)
-			outputCoefficients[i] += coefficientUpdateVector[i];
-		for (int i = 0; i < centre.length; i++)
-			centre[i] += centreUpdateVector[i];
-		sigma += sigmaUpdateValue;
+	public double accumulateOutputVector(double[] input, double[] outputVector) {
+		double basisFunctionValue = calculateActivation(input);
+		if (basisFunctionValue != 0.0)
+			VectorKernels.accumulateWeighted(basisFunctionValue, outputCoefficients, outputVector);
+		return basisFunctionValue;
 	}
 
 	/**
-	 * Calculates the squared euclidean distance between an input vector and the
-	 * current hidden node centre.
+	 * Calculates the hidden node's basis function value for an input. For
+	 * functions with compact support the distance calculation is abandoned as
+	 * soon as the input is known to lie outside the support.
 	 * 
 	 * @param input
 	 *            Input vector
-	 * @return Squared euclidean distance
+	 * @return Basis function value
 	 */
-	private double calculateSquaredInputDistance(double[] input) {
-		double inputSquaredDistance = 0.0;
-		for (int i = 0; i < input.length; i++) {
-			inputSquaredDistance += ((input[i] - centre[i]) * (input[i] - centre[i]));
+	public double calculateActivation(double[] input) {
+		if (basisFunction.hasCompactSupport()) {
+			double squaredSupportRadius = basisFunction.squaredSupportRadius(sigma);
+			double squaredDistance = VectorKernels.boundedSquaredDistance(input, centre, 0, centre.length,
+					squaredSupportRadius);
+			if (squaredDistance >= squaredSupportRadius)
+				return 0.0;
+			return calculateBasisFunctionValue(squaredDistance);
 		}
-		return inputSquaredDistance;
+		return calculateBasisFunctionValue(calculateSquaredInputDistance(input));
 	}
 
 	/**
-	 * Calculates the euclidean distance between an input vector and the current
+	 * Calculates the squared euclidean distance between an input vector and the
 	 * hidden node centre.
 	 * 
 	 * @param input
 	 *            Input vector
-	 * @return Euclidean distance
+	 * @return Squared euclidean distance
 	 */
-	private double calculateInputDistance(double[] input) {
-		return Math.sqrt(calculateSquaredInputDistance(input));
+	public double calculateSquaredDistance(double[] input) {
+		return calculateSquaredInputDistance(input);
 	}
 
 	/**
-	 * Calculates the basis function value.
+	 * Updates the node's output coefficient, centre and sigma. All update values
+	 * are calculated from the current parameters before any of them is applied.
 	 * 
-	 * @param inputDistance
-	 *            Distance between input and centre
-	 * @return Basis function value
+	 * @param input
+	 *            Input vector
+	 * @param outputErrors
+	 *            Error of each network output
+	 * @param learningRates
+	 *            Coefficient learning rates
 	 */
-	private double calculateBasisFunctionValue(double inputDistance) {
-		return Math.exp((-(inputDistance * inputDistance)) / (2 * sigma * sigma));
+	public void updateNodeParemeters(double[] input, double[] outputErrors, double[] learningRates) {
+		// Distance and basis value are shared by all update values
+		double squaredDistance = calculateSquaredInputDistance(input);
+		double distanceBasisValue = calculateBasisFunctionValue(squaredDistance);
+		// Outside a compact support all update values are zero
+		if (distanceBasisValue == 0.0 && basisFunction.hasCompactSupport())
+			return;
+		// Error weighted by the (not yet updated) output coefficients
+		double weightedError = 0.0;
+		for (int i = 0; i < outputErrors.length; i++)
+			weightedError += outputErrors[i] * outputCoefficients[i];
+		double centreUpdateFactor = learningRates[1] * weightedError
+				* basisFunction.centreUpdateFactor(squaredDistance, sigma, distanceBasisValue);
+		double sigmaUpdateValue = learningRates[2] * weightedError
+				* basisFunction.sigmaUpdateValue(squaredDistance, sigma, distanceBasisValue);
+		// Update node's parameters
+		VectorKernels.accumulateWeighted(learningRates[0] * distanceBasisValue, outputErrors, outputCoefficients);
+		VectorKernels.updateCentre(centreUpdateFactor, input, centre);
+		sigma += sigmaUpdateValue;
 	}
 
 	/**
-	 * Calculates the update value of the node's output coefficient.
+	 * Updates the node's output coefficient, centre and sigma through an
+	 * optimizer, along the same directions as updateNodeParemeters. The
+	 * optimizer state is allocated on the first update.
 	 * 
 	 * @param input
 	 *            Input vector
 	 * @param outputErrors
 	 *            Error of each network output
-	 * @param learningRate
-	 *            Coefficient learning rate
-	 * @return Coefficient update value
+	 * @param learningRates
+	 *            Coefficient learning rates
+	 * @param optimizer
+	 *            Optimizer
+	 * @param optimizerParameters
+	 *            Optimizer parameters {momentum, decay, epsilon}
 	 */
-	private double[] coefficientUpdateVector(double[] input, double[] outputErrors, double learningRate) {
-		double distanceBasisValue = calculateBasisFunctionValue(calculateSquaredInputDistance(input));
-		double[] coefficientUpdateVector = new double[outputErrors.length];
+	public void updateNodeParemeters(double[] input, double[] outputErrors, double[] learningRates,
+			Optimizer optimizer, double[] optimizerParameters) {
+		// Distance and basis value are shared by all update directions
+		double squaredDistance = calculateSquaredDistance(input);
+		double distanceBasisValue = basisFunction.value(squaredDistance, sigma);
+		// Outside a compact support all update directions are zero
+		if (distanceBasisValue == 0.0 && basisFunction.hasCompactSupport())
+			return;
+		// Error weighted by the (not yet updated) output coefficients
+		double weightedError = 0.0;
 		for (int i = 0; i < outputErrors.length; i++)
-			coefficientUpdateVector[i] = learningRate * outputErrors[i] * distanceBasisValue;
-		return coefficientUpdateVector;
+			weightedError += outputErrors[i] * outputCoefficients[i];
+		double centreDirectionFactor = weightedError
+				* basisFunction.centreUpdateFactor(squaredDistance, sigma, distanceBasisValue);
+		double sigmaDirection = weightedError
+				* basisFunction.sigmaUpdateValue(squaredDistance, sigma, distanceBasisValue);
+		// Parameters: output coefficients, centre coordinates, sigma
+		int numOfOutputs = outputCoefficients.length;
+		int numOfParameters = numOfOutputs + input.length + 1;
+		if (optimizerState == null)
+			optimizerState = new double[optimizer.getNumOfStateValues() * numOfParameters];
+		double stepScale = optimizer.stepScale(++optimizerSteps, optimizerParameters);
+		// Update node's parameters
+		for (int i = 0; i < numOfOutputs; i++)
+			outputCoefficients[i] += optimizer.updateValue(distanceBasisValue * outputErrors[i],
+					stepScale * learningRates[0], optimizerState, i, numOfParameters, optimizerParameters);
+		updateCentre(input, centreDirectionFactor, stepScale * learningRates[1], optimizer, optimizerParameters,
+				numOfOutputs, numOfParameters);
+		sigma += optimizer.updateValue(sigmaDirection, stepScale * learningRates[2], optimizerState,
+				numOfParameters - 1, numOfParameters, optimizerParameters);
 	}
 
 	/**
-	 * Calculates the update vector of the node's centre.
+	 * Updates the node's output coefficients only, from a known basis function
+	 * value of the input. Equivalent to updateNodeParemeters when the centre and
+	 * sigma learning rates are zero, without recalculating the distance.
 	 * 
-	 * @param input
-	 *            Input vector
+	 * @param basisFunctionValue
+	 *            Basis function value of the input
 	 * @param outputErrors
 	 *            Error of each network output
 	 * @param learningRate
-	 *            Coefficient learning rate
+	 *            Output coefficients learning rate
 	 */
-	private double[] centreUpdateVector(double[] input, double[] outputErrors, double learningRate) {
-		double[] centreUpdateVector = new double[centre.length];
-		double distanceBasisValue = calculateBasisFunctionValue(calculateSquaredInputDistance(input));
-		for (int i = 0; i < centre.length; i++) {
-			double coordinateInputSpecialDistance = (input[i] - centre[i]) / (sigma * sigma);
-			centreUpdateVector[i] = 0.0;
-			for (int j = 0; j < outputErrors.length; j++)
-				centreUpdateVector[i] += (learningRate * outputErrors[j] * outputCoefficients[j] * distanceBasisValue
-						* coordinateInputSpecialDistance);
-		}
-		return centreUpdateVector;
+	public void updateOutputCoefficients(double basisFunctionValue, double[] outputErrors, double learningRate) {
+		if (basisFunctionValue != 0.0)
+			VectorKernels.accumulateWeighted(learningRate * basisFunctionValue, outputErrors, outputCoefficients);
 	}
 
 	/**
-	 * Calculates the update value of the node's sigma.
+	 * Moves the centre through an optimizer, along the scaled input-centre
+	 * difference.
 	 * 
 	 * @param input
 	 *            Input vector
-	 * @param outputErrors
-	 *            Error of each network output
+	 * @param directionFactor
+	 *            Factor of the input-centre difference giving the update
+	 *            direction
 	 * @param learningRate
-	 *            Coefficient learning rate
+	 *            Centre learning rate
+	 * @param optimizer
+	 *            Optimizer
+	 * @param optimizerParameters
+	 *            Optimizer parameters {momentum, decay, epsilon}
+	 * @param firstParameter
+	 *            Index of the first centre coordinate within the node's
+	 *            parameters
+	 * @param numOfParameters
+	 *            Number of the node's parameters
 	 */
-	private double sigmaUpdateValue(double[] input, double[] outputErrors, double learningRate) {
-		double distanceBasisValue = calculateBasisFunctionValue(calculateSquaredInputDistance(input));
-		double coordinateInputSpecialDistance = (calculateSquaredInputDistance(input)) / (sigma * sigma * sigma);
-		double sigmaUpdateValue = 0.0;
-		for (int i = 0; i < outputErrors.length; i++)
-			sigmaUpdateValue += learningRate * outputErrors[i] * outputCoefficients[i] * distanceBasisValue
-					* coordinateInputSpecialDistance;
-		return sigmaUpdateValue;
+	protected void updateCentre(double[] input, double directionFactor, double learningRate, Optimizer optimizer,
+			double[] optimizerParameters, int firstParameter, int numOfParameters) {
+		for (int i = 0; i < centre.length; i++)
+			centre[i] += optimizer.updateValue(directionFactor * (input[i] - centre[i]), learningRate, optimizerState,
+					firstParameter + i, numOfParameters, optimizerParameters);
+	}
+
+	/**
+	 * Calculates the squared euclidean distance between an input vector and the
+	 * current hidden node centre.
+	 * 
+	 * @param input
+	 *            Input vector
+	 * @return Squared euclidean distance
+	 */
+	private double calculateSquaredInputDistance(double[] input) {
+		return VectorKernels.squaredDistance(input, centre);
+	}
+
+	/**
+	 * Calculates the euclidean distance between an input vector and the current
+	 * hidden node centre.
+	 * 
+	 * @param input
+	 *            Input vector
+	 * @return Euclidean distance
+	 */
+	private double calculateInputDistance(double[] input) {
+		return Math.sqrt(calculateSquaredInputDistance(input));
+	}
+
+	/**
+	 * Calculates the basis function value.
+	 * 
+	 * @param inputDistance
+	 *            Squared distance between input and centre
+	 * @return Basis function value
+	 */
+	private double calculateBasisFunctionValue(double inputDistance) {
+		return basisFunction.value(inputDistance, sigma);
 	}
 
 }
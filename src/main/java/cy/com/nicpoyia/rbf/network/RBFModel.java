@@ -0,0 +1,492 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.NormalizationTransform;
+
+/**
+ * Class representing an immutable snapshot of a trained RBF network, used for
+ * scoring. Hidden node parameters are kept in flat row-major arrays, so that
+ * the output of an input is computed in a single pass over the centre matrix
+ * without per-node objects or allocations. A model gives exactly the outputs
+ * of the network it was taken from. Centres may also be stored in narrower
+ * encodings (half precision or 8-bit quantized), which are decoded on the fly.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class RBFModel {
+    // Network dimensions
+    private final int numInputNeurons;
+    private final int numOutputNeurons;
+    private final int numHiddenNodes;
+    // Basis function of all hidden nodes
+    private final BasisFunction basisFunction;
+    // Encoding of the hidden node centres
+    private final CentreEncoding centreEncoding;
+    // Hidden node centres (numHiddenNodes x numInputNeurons), only the array of the encoding is set
+    private final double[] centres;
+    private final float[] floatCentres;
+    private final short[] halfCentres;
+    private final byte[] quantizedCentres;
+    // Scale and offset of each input dimension of the quantized centres
+    private final double[] centreScales;
+    private final double[] centreOffsets;
+    // Hidden node widths
+    private final double[] sigmas;
+    // Hidden node output coefficients (numHiddenNodes x numOutputNeurons)
+    private final double[] coefficients;
+    // Normalization of raw input values, or null
+    private final NormalizationTransform normalizationTransform;
+
+    /**
+     * Constructs a model from flat parameter arrays, which are owned by the
+     * model from then on.
+     *
+     * @param numInputNeurons  Number of inputs
+     * @param numOutputNeurons Number of outputs
+     * @param basisFunction    Basis function of all hidden nodes
+     * @param centres          Double precision centres, or null
+     * @param floatCentres     Single precision centres, or null
+     * @param sigmas           Hidden node widths
+     * @param coefficients     Hidden node output coefficients
+     */
+    public RBFModel(int numInputNeurons, int numOutputNeurons, BasisFunction basisFunction, double[] centres,
+                    float[] floatCentres, double[] sigmas, double[] coefficients) {
+        this(numInputNeurons, numOutputNeurons, basisFunction, centres, floatCentres, sigmas, coefficients, null);
+    }
+
+    /**
+     * Constructs a model from flat parameter arrays, which are owned by the
+     * model from then on, that also scores raw input values.
+     *
+     * @param numInputNeurons        Number of inputs
+     * @param numOutputNeurons       Number of outputs
+     * @param basisFunction          Basis function of all hidden nodes
+     * @param centres                Double precision centres, or null
+     * @param floatCentres           Single precision centres, or null
+     * @param sigmas                 Hidden node widths
+     * @param coefficients           Hidden node output coefficients
+     * @param normalizationTransform Normalization of raw input values, or null
+     */
+    public RBFModel(int numInputNeurons, int numOutputNeurons, BasisFunction basisFunction, double[] centres,
+                    float[] floatCentres, double[] sigmas, double[] coefficients,
+                    NormalizationTransform normalizationTransform) {
+        this(numInputNeurons, numOutputNeurons, basisFunction, centreEncodingOf(centres, floatCentres), centres,
+                floatCentres, null, null, null, null, sigmas, coefficients, normalizationTransform);
+    }
+
+    /**
+     * Constructs a model with centres in any encoding. Only the centres array
+     * of the encoding is set, together with the scales and offsets for 8-bit
+     * quantized centres.
+     *
+     * @param numInputNeurons        Number of inputs
+     * @param numOutputNeurons       Number of outputs
+     * @param basisFunction          Basis function of all hidden nodes
+     * @param centreEncoding         Encoding of the centres
+     * @param centres                Double precision centres, or null
+     * @param floatCentres           Single precision centres, or null
+     * @param halfCentres            Half precision centres, or null
+     * @param quantizedCentres       8-bit quantized centres, or null
+     * @param centreScales           Scale of each input dimension of quantized centres, or null
+     * @param centreOffsets          Offset of each input dimension of quantized centres, or null
+     * @param sigmas                 Hidden node widths
+     * @param coefficients           Hidden node output coefficients
+     * @param normalizationTransform Normalization of raw input values, or null
+     */
+    RBFModel(int numInputNeurons, int numOutputNeurons, BasisFunction basisFunction, CentreEncoding centreEncoding,
+             double[] centres, float[] floatCentres, short[] halfCentres, byte[] quantizedCentres,
+             double[] centreScales, double[] centreOffsets, double[] sigmas, double[] coefficients,
+             NormalizationTransform normalizationTransform) {
+        int centresLength;
+        switch (centreEncoding) {
+            case FLOAT:
+                centresLength = floatCentres.length;
+                break;
+            case FLOAT16:
+                centresLength = halfCentres.length;
+                break;
+            case INT8:
+                centresLength = quantizedCentres.length;
+                if ((centreScales.length != numInputNeurons) || (centreOffsets.length != numInputNeurons))
+                    throw new IllegalArgumentException("One centre scale and offset is required per input");
+                break;
+            default:
+                centresLength = centres.length;
+        }
+        if ((centresLength != sigmas.length * numInputNeurons)
+                || (coefficients.length != sigmas.length * numOutputNeurons))
+            throw new IllegalArgumentException("Parameter arrays do not match the model dimensions");
+        if ((normalizationTransform != null) && (normalizationTransform.getNumOfInputs() != numInputNeurons))
+            throw new IllegalArgumentException("Normalization does not match the number of inputs");
+        this.numInputNeurons = numInputNeurons;
+        this.numOutputNeurons = numOutputNeurons;
+        this.numHiddenNodes = sigmas.length;
+        this.basisFunction = basisFunction;
+        this.centreEncoding = centreEncoding;
+        this.centres = centres;
+        this.floatCentres = floatCentres;
+        this.halfCentres = halfCentres;
+        this.quantizedCentres = quantizedCentres;
+        this.centreScales = centreScales;
+        this.centreOffsets = centreOffsets;
+        this.sigmas = sigmas;
+        this.coefficients = coefficients;
+        this.normalizationTransform = normalizationTransform;
+    }
+
+    /**
+     * Number of inputs getter method.
+     *
+     * @return Number of inputs
+     */
+    public int getNumInputNeurons() {
+        return numInputNeurons;
+    }
+
+    /**
+     * Number of outputs getter method.
+     *
+     * @return Number of outputs
+     */
+    public int getNumOutputNeurons() {
+        return numOutputNeurons;
+    }
+
+    /**
+     * Number of hidden nodes getter method.
+     *
+     * @return Number of hidden nodes
+     */
+    public int getNumHiddenNodes() {
+        return numHiddenNodes;
+    }
+
+    /**
+     * Basis function getter method.
+     *
+     * @return Basis function of all hidden nodes
+     */
+    public BasisFunction getBasisFunction() {
+        return basisFunction;
+    }
+
+    /**
+     * Normalization transform getter method.
+     *
+     * @return Normalization of raw input values, or null if the model only
+     * scores normalized input values
+     */
+    public NormalizationTransform getNormalizationTransform() {
+        return normalizationTransform;
+    }
+
+    /**
+     * Centre encoding getter method.
+     *
+     * @return Encoding of the hidden node centres
+     */
+    public CentreEncoding getCentreEncoding() {
+        return centreEncoding;
+    }
+
+    /**
+     * Whether centres are stored in single precision.
+     *
+     * @return Whether centres are stored as floats
+     */
+    public boolean isSinglePrecision() {
+        return centreEncoding == CentreEncoding.FLOAT;
+    }
+
+    /**
+     * Returns a hidden node's centre, widened to double precision.
+     *
+     * @param node Hidden node index
+     * @return Centre vector copy
+     */
+    public double[] getCentre(int node) {
+        double[] centre = new double[numInputNeurons];
+        int offset = node * numInputNeurons;
+        for (int i = 0; i < numInputNeurons; i++) {
+            switch (centreEncoding) {
+                case FLOAT:
+                    centre[i] = floatCentres[offset + i];
+                    break;
+                case FLOAT16:
+                    centre[i] = HalfFloat.toFloat(halfCentres[offset + i]);
+                    break;
+                case INT8:
+                    centre[i] = quantizedCentres[offset + i] * centreScales[i] + centreOffsets[i];
+                    break;
+                default:
+                    centre[i] = centres[offset + i];
+            }
+        }
+        return centre;
+    }
+
+    /**
+     * Returns a coordinate of a half precision centre.
+     *
+     * @param node  Hidden node index
+     * @param input Input index
+     * @return Half precision bit pattern
+     */
+    short getHalfCentreValue(int node, int input) {
+        return halfCentres[node * numInputNeurons + input];
+    }
+
+    /**
+     * Returns a coordinate of an 8-bit quantized centre.
+     *
+     * @param node  Hidden node index
+     * @param input Input index
+     * @return Quantized coordinate
+     */
+    byte getQuantizedCentreValue(int node, int input) {
+        return quantizedCentres[node * numInputNeurons + input];
+    }
+
+    /**
+     * Returns the scale of an input dimension of 8-bit quantized centres.
+     *
+     * @param input Input index
+     * @return Centre scale
+     */
+    public double getCentreScale(int input) {
+        return centreScales[input];
+    }
+
+    /**
+     * Returns the offset of an input dimension of 8-bit quantized centres.
+     *
+     * @param input Input index
+     * @return Centre offset
+     */
+    public double getCentreOffset(int input) {
+        return centreOffsets[input];
+    }
+
+    /**
+     * Returns a hidden node's width.
+     *
+     * @param node Hidden node index
+     * @return Hidden node width
+     */
+    public double getSigma(int node) {
+        return sigmas[node];
+    }
+
+    /**
+     * Returns a hidden node's output coefficient.
+     *
+     * @param node   Hidden node index
+     * @param output Output index
+     * @return Output coefficient
+     */
+    public double getCoefficient(int node, int output) {
+        return coefficients[node * numOutputNeurons + output];
+    }
+
+    /**
+     * Size of the centre matrix in memory.
+     *
+     * @return Centre matrix bytes
+     */
+    public long getCentreMatrixBytes() {
+        long centreMatrixBytes = (long) centreEncoding.getBytesPerValue() * numHiddenNodes * numInputNeurons;
+        if (centreEncoding == CentreEncoding.INT8)
+            centreMatrixBytes += 16L * numInputNeurons;
+        return centreMatrixBytes;
+    }
+
+    /**
+     * Creates a model with the same parameters and the centres stored in
+     * another encoding. 8-bit quantization maps the range of each input
+     * dimension over all centres onto [-127, 127].
+     *
+     * @param encoding Centre encoding
+     * @return Re-encoded model
+     */
+    public RBFModel withCentreEncoding(CentreEncoding encoding) {
+        int centresLength = numHiddenNodes * numInputNeurons;
+        double[] newCentres = null;
+        float[] newFloatCentres = null;
+        short[] newHalfCentres = null;
+        byte[] newQuantizedCentres = null;
+        double[] newCentreScales = null;
+        double[] newCentreOffsets = null;
+        double[][] widenedCentres = new double[numHiddenNodes][];
+        for (int node = 0; node < numHiddenNodes; node++)
+            widenedCentres[node] = getCentre(node);
+        switch (encoding) {
+            case FLOAT:
+                newFloatCentres = new float[centresLength];
+                for (int node = 0; node < numHiddenNodes; node++)
+                    for (int i = 0; i < numInputNeurons; i++)
+                        newFloatCentres[node * numInputNeurons + i] = (float) widenedCentres[node][i];
+                break;
+            case FLOAT16:
+                newHalfCentres = new short[centresLength];
+                for (int node = 0; node < numHiddenNodes; node++)
+                    for (int i = 0; i < numInputNeurons; i++)
+                        newHalfCentres[node * numInputNeurons + i] =
+                                HalfFloat.fromFloat((float) widenedCentres[node][i]);
+                break;
+            case INT8:
+                newQuantizedCentres = new byte[centresLength];
+                newCentreScales = new double[numInputNeurons];
+                newCentreOffsets = new double[numInputNeurons];
+                for (int i = 0; i < numInputNeurons; i++) {
+                    double minValue = Double.POSITIVE_INFINITY;
+                    double maxValue = Double.NEGATIVE_INFINITY;
+                    for (int node = 0; node < numHiddenNodes; node++) {
+                        minValue = Math.min(minValue, widenedCentres[node][i]);
+                        maxValue = Math.max(maxValue, widenedCentres[node][i]);
+                    }
+                    if (numHiddenNodes == 0)
+                        minValue = maxValue = 0.0;
+                    newCentreOffsets[i] = 0.5 * (maxValue + minValue);
+                    newCentreScales[i] = (maxValue - minValue) / 254.0;
+                    for (int node = 0; node < numHiddenNodes; node++) {
+                        long quantizedValue = newCentreScales[i] == 0.0 ? 0
+                                : Math.round((widenedCentres[node][i] - newCentreOffsets[i]) / newCentreScales[i]);
+                        newQuantizedCentres[node * numInputNeurons + i] =
+                                (byte) Math.max(-127, Math.min(127, quantizedValue));
+                    }
+                }
+                break;
+            default:
+                newCentres = new double[centresLength];
+                for (int node = 0; node < numHiddenNodes; node++)
+                    System.arraycopy(widenedCentres[node], 0, newCentres, node * numInputNeurons, numInputNeurons);
+        }
+        return new RBFModel(numInputNeurons, numOutputNeurons, basisFunction, encoding, newCentres, newFloatCentres,
+                newHalfCentres, newQuantizedCentres, newCentreScales, newCentreOffsets, sigmas.clone(),
+                coefficients.clone(), normalizationTransform);
+    }
+
+    /**
+     * Calculates the squared distance between an input and a hidden node's
+     * centre.
+     *
+     * @param input Input vector
+     * @param node  Hidden node index
+     * @return Squared euclidean distance
+     */
+    public double squaredDistance(double[] input, int node) {
+        int offset = node * numInputNeurons;
+        switch (centreEncoding) {
+            case FLOAT:
+                return VectorKernels.squaredDistance(input, floatCentres, offset, numInputNeurons);
+            case FLOAT16:
+                return VectorKernels.squaredDistance(input, halfCentres, offset, numInputNeurons);
+            case INT8:
+                return VectorKernels.squaredDistance(input, quantizedCentres, offset, numInputNeurons, centreScales,
+                        centreOffsets);
+            default:
+                return VectorKernels.squaredDistance(input, centres, offset, numInputNeurons);
+        }
+    }
+
+    /**
+     * Calculates a hidden node's basis function value for an input. For
+     * functions with compact support the distance calculation over double or
+     * single precision centres is abandoned as soon as the input is known to
+     * lie outside the support.
+     *
+     * @param input Input vector
+     * @param node  Hidden node index
+     * @return Basis function value
+     */
+    public double calculateActivation(double[] input, int node) {
+        double sigma = sigmas[node];
+        if (basisFunction.hasCompactSupport()) {
+            double squaredSupportRadius = basisFunction.squaredSupportRadius(sigma);
+            int offset = node * numInputNeurons;
+            double squaredDistance;
+            if (centreEncoding == CentreEncoding.DOUBLE)
+                squaredDistance = VectorKernels.boundedSquaredDistance(input, centres, offset, numInputNeurons,
+                        squaredSupportRadius);
+            else if (centreEncoding == CentreEncoding.FLOAT)
+                squaredDistance = VectorKernels.boundedSquaredDistance(input, floatCentres, offset, numInputNeurons,
+                        squaredSupportRadius);
+            else
+                squaredDistance = squaredDistance(input, node);
+            if (squaredDistance >= squaredSupportRadius)
+                return 0.0;
+            return basisFunction.value(squaredDistance, sigma);
+        }
+        return basisFunction.value(squaredDistance(input, node), sigma);
+    }
+
+    /**
+     * Generates the model's output vector for an input.
+     *
+     * @param input Input vector
+     * @return Output vector
+     */
+    public double[] getOutputVector(double[] input) {
+        double[] outputVector = new double[numOutputNeurons];
+        accumulateOutputVector(input, outputVector);
+        return outputVector;
+    }
+
+    /**
+     * Generates the model's output vector for raw input values, normalizing
+     * them with the model's normalization transform first.
+     *
+     * @param rawInput Raw input values
+     * @return Output vector
+     * @throws IllegalStateException If the model has no normalization transform
+     */
+    public double[] getRawOutputVector(double[] rawInput) {
+        if (normalizationTransform == null)
+            throw new IllegalStateException("Model has no normalization transform");
+        return getOutputVector(normalizationTransform.normalize(rawInput));
+    }
+
+    /**
+     * Generates the model's output vectors for a batch of inputs.
+     *
+     * @param inputs Input vectors
+     * @return Output vector of each input
+     */
+    public double[][] getOutputVectors(double[][] inputs) {
+        double[][] outputVectors = new double[inputs.length][numOutputNeurons];
+        for (int i = 0; i < inputs.length; i++)
+            accumulateOutputVector(inputs[i], outputVectors[i]);
+        return outputVectors;
+    }
+
+    /**
+     * Determines the encoding of double or single precision centres.
+     *
+     * @param centres      Double precision centres, or null
+     * @param floatCentres Single precision centres, or null
+     * @return Centre encoding
+     * @throws IllegalArgumentException If not exactly one centres matrix is given
+     */
+    private static CentreEncoding centreEncodingOf(double[] centres, float[] floatCentres) {
+        if ((centres == null) == (floatCentres == null))
+            throw new IllegalArgumentException("Exactly one centres matrix is required");
+        return centres != null ? CentreEncoding.DOUBLE : CentreEncoding.FLOAT;
+    }
+
+    /**
+     * Adds the model's output vector for an input to an output vector.
+     *
+     * @param input        Input vector
+     * @param outputVector Output vector to accumulate into
+     */
+    private void accumulateOutputVector(double[] input, double[] outputVector) {
+        for (int node = 0; node < numHiddenNodes; node++) {
+            double basisFunctionValue = calculateActivation(input, node);
+            if (basisFunctionValue == 0.0)
+                continue;
+            int coefficientsOffset = node * numOutputNeurons;
+            for (int i = 0; i < numOutputNeurons; i++)
+                outputVector[i] += coefficients[coefficientsOffset + i] * basisFunctionValue;
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.NormalizationTransform;
+import cy.com.nicpoyia.rbf.compound_activity_data.PrincipalComponents;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Class responsible for storing RBF models into binary model files and loading
+ * them back. Centres are stored in the model's centre encoding (64-bit,
+ * 32-bit or 16-bit floats, or 8-bit integers preceded by the scale and offset
+ * of each input dimension). The model's normalization transform, if any,
+ * follows the hidden nodes, together with its principal components since
+ * version 4; version 1 files, written before transforms were stored, are
+ * still read.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class RBFModelFile {
+    // Model file signature ("RBFM")
+    private static final int magicNumber = 0x5242464D;
+    // Model file format version
+    private static final int formatVersion = 4;
+    // Centre storage types
+    private static final byte doubleCentres = 0;
+    private static final byte floatCentres = 1;
+    private static final byte halfCentres = 2;
+    private static final byte quantizedCentres = 3;
+
+    /**
+     * Not instantiable.
+     */
+    private RBFModelFile() {
+    }
+
+    /**
+     * Saves a model into a binary model file.
+     *
+     * @param model         Model to save
+     * @param modelFilename Model file name
+     * @throws IOException If the model file could not be written
+     */
+    public static void save(RBFModel model, String modelFilename) throws IOException {
+        DataOutputStream modelWriter = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(modelFilename)));
+        try {
+            write(model, modelWriter);
+        } finally {
+            modelWriter.close();
+        }
+    }
+
+    /**
+     * Loads a model from a binary model file.
+     *
+     * @param modelFilename Model file name
+     * @return Loaded model
+     * @throws IOException If the model file could not be read or is invalid
+     */
+    public static RBFModel load(String modelFilename) throws IOException {
+        DataInputStream modelReader = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(modelFilename)));
+        try {
+            return read(modelReader);
+        } finally {
+            modelReader.close();
+        }
+    }
+
+    /**
+     * Writes a model to a data output stream.
+     *
+     * @param model       Model to write
+     * @param modelWriter Data output stream
+     * @throws IOException If the model could not be written
+     */
+    public static void write(RBFModel model, DataOutputStream modelWriter) throws IOException {
+        int numInputNeurons = model.getNumInputNeurons();
+        int numOutputNeurons = model.getNumOutputNeurons();
+        int numHiddenNodes = model.getNumHiddenNodes();
+        // Header
+        modelWriter.writeInt(magicNumber);
+        modelWriter.writeInt(formatVersion);
+        modelWriter.writeInt(numInputNeurons);
+        modelWriter.writeInt(numOutputNeurons);
+        modelWriter.writeInt(numHiddenNodes);
+        modelWriter.writeUTF(model.getBasisFunction().getParameterName());
+        CentreEncoding centreEncoding = model.getCentreEncoding();
+        modelWriter.writeByte(toCentresType(centreEncoding));
+        if (centreEncoding == CentreEncoding.INT8) {
+            for (int i = 0; i < numInputNeurons; i++) {
+                modelWriter.writeDouble(model.getCentreScale(i));
+                modelWriter.writeDouble(model.getCentreOffset(i));
+            }
+        }
+        // Hidden nodes
+        for (int node = 0; node < numHiddenNodes; node++) {
+            double[] centre = model.getCentre(node);
+            for (int i = 0; i < numInputNeurons; i++) {
+                switch (centreEncoding) {
+                    case FLOAT:
+                        modelWriter.writeFloat((float) centre[i]);
+                        break;
+                    case FLOAT16:
+                        modelWriter.writeShort(model.getHalfCentreValue(node, i));
+                        break;
+                    case INT8:
+                        modelWriter.writeByte(model.getQuantizedCentreValue(node, i));
+                        break;
+                    default:
+                        modelWriter.writeDouble(centre[i]);
+                }
+            }
+            modelWriter.writeDouble(model.getSigma(node));
+            for (int i = 0; i < numOutputNeurons; i++)
+                modelWriter.writeDouble(model.getCoefficient(node, i));
+        }
+        // Normalization transform
+        NormalizationTransform normalizationTransform = model.getNormalizationTransform();
+        modelWriter.writeBoolean(normalizationTransform != null);
+        if (normalizationTransform != null) {
+            int numOfAttributes = normalizationTransform.getNumOfAttributes();
+            modelWriter.writeInt(numOfAttributes);
+            for (int i = 0; i < numOfAttributes; i++) {
+                modelWriter.writeDouble(normalizationTransform.getMinValue(i));
+                modelWriter.writeDouble(normalizationTransform.getRange(i));
+            }
+            PrincipalComponents principalComponents = normalizationTransform.getPrincipalComponents();
+            modelWriter.writeInt(principalComponents != null ? principalComponents.getNumOfComponents() : 0);
+            if (principalComponents != null) {
+                for (int i = 0; i < numOfAttributes; i++)
+                    modelWriter.writeDouble(principalComponents.getMean(i));
+                for (int c = 0; c < principalComponents.getNumOfComponents(); c++)
+                    for (int i = 0; i < numOfAttributes; i++)
+                        modelWriter.writeDouble(principalComponents.getComponentValue(c, i));
+                for (int c = 0; c < principalComponents.getNumOfComponents(); c++)
+                    modelWriter.writeDouble(principalComponents.getVariance(c));
+            }
+        }
+    }
+
+    /**
+     * Reads a model from a data input stream.
+     *
+     * @param modelReader Data input stream
+     * @return Read model
+     * @throws IOException If the model could not be read or is invalid
+     */
+    public static RBFModel read(DataInputStream modelReader) throws IOException {
+        // Header
+        if (modelReader.readInt() != magicNumber)
+            throw new IOException("Not an RBF model file");
+        int version = modelReader.readInt();
+        if ((version < 1) || (version > formatVersion))
+            throw new IOException("Unsupported model file version " + version);
+        int numInputNeurons = modelReader.readInt();
+        int numOutputNeurons = modelReader.readInt();
+        int numHiddenNodes = modelReader.readInt();
+        if ((numInputNeurons <= 0) || (numOutputNeurons <= 0) || (numHiddenNodes < 0))
+            throw new IOException("Invalid model dimensions");
+        BasisFunction basisFunction;
+        try {
+            basisFunction = BasisFunction.fromParameterName(modelReader.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        CentreEncoding centreEncoding = fromCentresType(modelReader.readByte());
+        int centresLength = numHiddenNodes * numInputNeurons;
+        double[] centres = centreEncoding == CentreEncoding.DOUBLE ? new double[centresLength] : null;
+        float[] singleCentres = centreEncoding == CentreEncoding.FLOAT ? new float[centresLength] : null;
+        short[] halfPrecisionCentres = centreEncoding == CentreEncoding.FLOAT16 ? new short[centresLength] : null;
+        byte[] quantizedValues = null;
+        double[] centreScales = null;
+        double[] centreOffsets = null;
+        if (centreEncoding == CentreEncoding.INT8) {
+            quantizedValues = new byte[centresLength];
+            centreScales = new double[numInputNeurons];
+            centreOffsets = new double[numInputNeurons];
+            for (int i = 0; i < numInputNeurons; i++) {
+                centreScales[i] = modelReader.readDouble();
+                centreOffsets[i] = modelReader.readDouble();
+            }
+        }
+        // Hidden nodes
+        double[] sigmas = new double[numHiddenNodes];
+        double[] coefficients = new double[numHiddenNodes * numOutputNeurons];
+        for (int node = 0; node < numHiddenNodes; node++) {
+            for (int i = 0; i < numInputNeurons; i++) {
+                int index = node * numInputNeurons + i;
+                switch (centreEncoding) {
+                    case FLOAT:
+                        singleCentres[index] = modelReader.readFloat();
+                        break;
+                    case FLOAT16:
+                        halfPrecisionCentres[index] = modelReader.readShort();
+                        break;
+                    case INT8:
+                        quantizedValues[index] = modelReader.readByte();
+                        break;
+                    default:
+                        centres[index] = modelReader.readDouble();
+                }
+            }
+            sigmas[node] = modelReader.readDouble();
+            for (int i = 0; i < numOutputNeurons; i++)
+                coefficients[node * numOutputNeurons + i] = modelReader.readDouble();
+        }
+        // Normalization transform
+        NormalizationTransform normalizationTransform = null;
+        if ((version >= 2) && modelReader.readBoolean()) {
+            int numOfAttributes = version >= 4 ? modelReader.readInt() : numInputNeurons;
+            if (numOfAttributes <= 0)
+                throw new IOException("Invalid number of attributes");
+            double[] minValues = new double[numOfAttributes];
+            double[] ranges = new double[numOfAttributes];
+            for (int i = 0; i < numOfAttributes; i++) {
+                minValues[i] = modelReader.readDouble();
+                ranges[i] = modelReader.readDouble();
+            }
+            PrincipalComponents principalComponents = null;
+            int numOfComponents = version >= 4 ? modelReader.readInt() : 0;
+            if (numOfComponents != 0) {
+                if ((numOfComponents < 0) || (numOfComponents > numOfAttributes))
+                    throw new IOException("Invalid number of principal components");
+                double[] means = new double[numOfAttributes];
+                double[] components = new double[numOfComponents * numOfAttributes];
+                double[] variances = new double[numOfComponents];
+                for (int i = 0; i < means.length; i++)
+                    means[i] = modelReader.readDouble();
+                for (int i = 0; i < components.length; i++)
+                    components[i] = modelReader.readDouble();
+                for (int i = 0; i < variances.length; i++)
+                    variances[i] = modelReader.readDouble();
+                principalComponents = new PrincipalComponents(means, components, variances);
+            }
+            normalizationTransform = new NormalizationTransform(minValues, ranges, principalComponents);
+        }
+        return new RBFModel(numInputNeurons, numOutputNeurons, basisFunction, centreEncoding, centres, singleCentres,
+                halfPrecisionCentres, quantizedValues, centreScales, centreOffsets, sigmas, coefficients,
+                normalizationTransform);
+    }
+
+    /**
+     * Converts a centre encoding to its centres type.
+     *
+     * @param centreEncoding Centre encoding
+     * @return Centres type stored in the file
+     */
+    private static byte toCentresType(CentreEncoding centreEncoding) {
+        switch (centreEncoding) {
+            case FLOAT:
+                return floatCentres;
+            case FLOAT16:
+                return halfCentres;
+            case INT8:
+                return quantizedCentres;
+            default:
+                return doubleCentres;
+        }
+    }
+
+    /**
+     * Converts a centres type to its centre encoding.
+     *
+     * @param centresType Centres type stored in the file
+     * @return Centre encoding
+     * @throws IOException If the centres type is invalid
+     */
+    private static CentreEncoding fromCentresType(byte centresType) throws IOException {
+        switch (centresType) {
+            case doubleCentres:
+                return CentreEncoding.DOUBLE;
+            case floatCentres:
+                return CentreEncoding.FLOAT;
+            case halfCentres:
+                return CentreEncoding.FLOAT16;
+            case quantizedCentres:
+                return CentreEncoding.INT8;
+            default:
+                throw new IOException("Invalid centres type " + centresType);
+        }
+    }
+
+}
@@ -1,12 +1,20 @@
 package cy.com.nicpoyia.rbf.network;
 
 import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.compound_activity_data.NormalizationTransform;
 
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class representing an RBF network.
@@ -23,19 +31,39 @@ public class RBFNetwork {
     private boolean useBias;
     private double biasValue;
     private double[] learningRates;
+    // Learning rates of the current epoch, following the learning rate schedule
+    private double[] epochLearningRates;
+    private Optimizer optimizer;
+    private double[] optimizerParameters;
     private double[] sigmas;
     private double[][] centres;
     private long maxIterations;
+    private BasisFunction basisFunction;
     // Network structure
     private RBFHiddenNode[] hiddenLayer;
-    // Training input and target output values
+    // Hidden nodes activations for the latest input given to the network
+    private double[] hiddenLayerActivations;
+    // Number of consecutive patterns each hidden node contributed little to (growing/pruning mode)
+    private int[] lowContributionCounts;
+    // Training input and target output values (numOutputNeurons per pattern)
     private List<double[]> trainingInputs;
     private double[] trainingTargetOutputs;
-    // Testing input and target output values
+    // Testing input and target output values (numOutputNeurons per pattern)
     private List<double[]> testingInputs;
     private double[] testingTargetOutputs;
+    // Basis activations of the training and testing data-sets kept across epochs (activation cache mode)
+    private ActivationCache trainingActivationCache;
+    private ActivationCache testingActivationCache;
+    // Whether hidden nodes have been added or removed since the training activations were validated
+    private boolean hiddenLayerChanged;
+    // Full-batch trainer (Levenberg-Marquardt mode)
+    private LevenbergMarquardtTrainer levenbergMarquardtTrainer;
+    // Normalization of the input values, stored with the model
+    private NormalizationTransform normalizationTransform;
     // Results from training & testing
     private TrainingTestingResults results;
+    // Number of epochs passed so far
+    private long numOfPassedEpochs;
 
     /**
      * Constructs an RBF network.
@@ -43,22 +71,16 @@ public class RBFNetwork {
     public RBFNetwork() throws Exception {
         // Load configuration
         this.configuration = new Configuration();
-        // Set RBF network parameters
-        this.numHiddenLayerNeurons = configuration.numHiddenLayerNeurons;
-        this.numInputNeurons = configuration.numInputNeurons;
-        this.useBias = configuration.useBias;
-        this.biasValue = configuration.biasValue;
-        this.numOutputNeurons = configuration.numOutputNeurons;
-        this.learningRates = configuration.learningRates;
-        this.sigmas = configuration.sigmas;
-        this.maxIterations = configuration.maxIterations;
         // Load data
         // Data-sets handler
         CompoundDataHandler dataSetsHandler = new CompoundDataHandler(configuration);
+        // Set RBF network parameters, once the data-sets have set the number of inputs
+        setNetworkParameters();
         this.trainingInputs = dataSetsHandler.getInputValuesDataSets(true);
         this.trainingTargetOutputs = dataSetsHandler.getTargetOutputValuesDataSets(true);
         this.testingInputs = dataSetsHandler.getInputValuesDataSets(false);
         this.testingTargetOutputs = dataSetsHandler.getTargetOutputValuesDataSets(false);
+        this.normalizationTransform = dataSetsHandler.getNormalizationTransform();
         // Read centres
         try {
             this.centres = loadCentresFromFile();
@@ -72,65 +94,670 @@ public class RBFNetwork {
         this.results = new TrainingTestingResults(configuration.resultsFile);
     }
 
+    /**
+     * Constructs an RBF network over a shared data matrix, using the given rows
+     * for training and testing. Centres are selected among the training rows,
+     * instead of being read from the centres file. A null results file keeps
+     * the results in memory only and a null weights file skips saving weights.
+     *
+     * @param configuration   Configuration
+     * @param dataMatrix      Shared data matrix
+     * @param trainingIndices Rows used for training
+     * @param testingIndices  Rows used for testing
+     */
+    public RBFNetwork(Configuration configuration, CompoundDataMatrix dataMatrix, int[] trainingIndices,
+                      int[] testingIndices) {
+        this.configuration = configuration;
+        // Set RBF network parameters
+        setNetworkParameters();
+        if (dataMatrix.getNumOfOutputs() != numOutputNeurons)
+            throw new IllegalArgumentException("The data matrix has " + dataMatrix.getNumOfOutputs()
+                    + " activities per data-set, " + numOutputNeurons + " outputs are configured");
+        // Reference data from the shared matrix
+        this.trainingInputs = dataMatrix.getInputValues(trainingIndices);
+        this.trainingTargetOutputs = dataMatrix.getTargetOutputValues(trainingIndices);
+        this.testingInputs = dataMatrix.getInputValues(testingIndices);
+        this.testingTargetOutputs = dataMatrix.getTargetOutputValues(testingIndices);
+        this.normalizationTransform = dataMatrix.getNormalizationTransform();
+        // Select centres
+        this.centres = dataMatrix.selectCentres(numHiddenLayerNeurons, trainingIndices, new Random());
+        // Create RBF network structure
+        createNetworkStructure();
+        // Setup results handler
+        this.results = new TrainingTestingResults(configuration.resultsFile);
+    }
+
+    /**
+     * Constructs an RBF network over a shared data matrix, using its default
+     * training and testing data-sets.
+     *
+     * @param configuration Configuration
+     * @param dataMatrix    Shared data matrix
+     */
+    public RBFNetwork(Configuration configuration, CompoundDataMatrix dataMatrix) {
+        this(configuration, dataMatrix, dataMatrix.getTrainingIndices(), dataMatrix.getTestingIndices());
+    }
+
+    /**
+     * Constructs an RBF network from in-memory parameters, without any
+     * training or testing data, to be trained incrementally by partialFit.
+     *
+     * @param configuration          Configuration
+     * @param centres                Initial centre of each hidden node, owned by the network from then on
+     * @param normalizationTransform Normalization of the input values stored with model snapshots, or null
+     */
+    public RBFNetwork(Configuration configuration, double[][] centres, NormalizationTransform normalizationTransform) {
+        this.configuration = configuration;
+        // Set RBF network parameters
+        setNetworkParameters();
+        if (centres.length != numHiddenLayerNeurons)
+            throw new IllegalArgumentException(numHiddenLayerNeurons + " centres are required");
+        this.centres = centres;
+        this.normalizationTransform = normalizationTransform;
+        // No data, the network is trained incrementally
+        this.trainingInputs = new ArrayList<double[]>();
+        this.trainingTargetOutputs = new double[0];
+        this.testingInputs = new ArrayList<double[]>();
+        this.testingTargetOutputs = new double[0];
+        // Create RBF network structure
+        createNetworkStructure();
+        // Setup results handler
+        this.results = new TrainingTestingResults(configuration.resultsFile);
+    }
+
+    /**
+     * Constructs an RBF network that continues from a trained model, to be
+     * updated incrementally by partialFit. Network dimensions, centres, widths,
+     * output coefficients and basis function are taken from the model, the
+     * remaining parameters (learning rates, bias, precision) from the
+     * configuration.
+     *
+     * @param configuration Configuration
+     * @param model         Trained model
+     */
+    public RBFNetwork(Configuration configuration, RBFModel model) {
+        this(modelConfiguration(configuration, model), modelCentres(model), model.getNormalizationTransform());
+        for (int i = 0; i < numHiddenLayerNeurons; i++)
+            for (int j = 0; j < numOutputNeurons; j++)
+                hiddenLayer[i].outputCoefficients[j] = model.getCoefficient(i, j);
+    }
+
+    /**
+     * Results getter method.
+     *
+     * @return Results from training & testing
+     */
+    public TrainingTestingResults getResults() {
+        return results;
+    }
+
+    /**
+     * Creates an immutable scoring snapshot of the network's current hidden
+     * nodes, together with the normalization of its input values. Snapshots
+     * can be published to scoring while the network keeps learning.
+     *
+     * @return Model snapshot
+     */
+    public synchronized RBFModel createModelSnapshot() {
+        double[] modelCentres = configuration.singlePrecision ? null
+                : new double[numHiddenLayerNeurons * numInputNeurons];
+        float[] modelFloatCentres = configuration.singlePrecision ? new float[numHiddenLayerNeurons * numInputNeurons]
+                : null;
+        double[] modelSigmas = new double[numHiddenLayerNeurons];
+        double[] modelCoefficients = new double[numHiddenLayerNeurons * numOutputNeurons];
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            RBFHiddenNode hiddenNode = hiddenLayer[i];
+            if (modelCentres != null)
+                System.arraycopy(hiddenNode.getCentreVector(), 0, modelCentres, i * numInputNeurons, numInputNeurons);
+            else
+                System.arraycopy(((RBFFloatHiddenNode) hiddenNode).floatCentre, 0, modelFloatCentres,
+                        i * numInputNeurons, numInputNeurons);
+            modelSigmas[i] = hiddenNode.sigma;
+            System.arraycopy(hiddenNode.outputCoefficients, 0, modelCoefficients, i * numOutputNeurons,
+                    numOutputNeurons);
+        }
+        return new RBFModel(numInputNeurons, numOutputNeurons, basisFunction, modelCentres, modelFloatCentres,
+                modelSigmas, modelCoefficients, normalizationTransform);
+    }
+
     /**
      * Executes training and testing for the specified number of iterations.
      */
     public void executeTrainingAndTesting() {
-        for (int i = 0; i < maxIterations; i++)
-            passEpoch();
+        executeEpochs(maxIterations);
         saveWeights();
+        saveModel();
     }
 
     /**
-     * Passes an epoch (training and testing).
+     * Executes training and testing for a number of epochs, continuing from the
+     * current state of the network. Testing takes place every testingInterval
+     * epochs and after the last epoch. In asynchronous testing mode, each
+     * testing pass runs on a background thread over a model snapshot taken
+     * after the epoch's training, overlapping with the next epochs' training;
+     * results are still stored in epoch order, all of them before returning.
+     *
+     * @param numOfEpochs Number of epochs
+     */
+    public synchronized void executeEpochs(long numOfEpochs) {
+        if (configuration.asyncTesting) {
+            executeEpochsWithAsyncTesting(numOfEpochs);
+            return;
+        }
+        for (long i = 0; i < numOfEpochs; i++)
+            passEpoch(i == numOfEpochs - 1);
+    }
+
+    /**
+     * Number of hidden nodes getter method.
+     *
+     * @return Current number of hidden nodes, excluding the bias node
      */
-    private void passEpoch() {
+    public synchronized int getNumHiddenLayerNeurons() {
+        return numHiddenLayerNeurons;
+    }
+
+    /**
+     * Normalization transform getter method.
+     *
+     * @return Normalization of the input values, or null
+     */
+    public NormalizationTransform getNormalizationTransform() {
+        return normalizationTransform;
+    }
+
+    /**
+     * Saves the hidden nodes' current centres into a centres file, in the
+     * format loaded by the default constructor. Saved before training, they
+     * are the centres the network starts from.
+     *
+     * @param centresFile Filename to save centres into
+     * @throws FileNotFoundException If the centres file could not be created
+     */
+    public synchronized void saveCentres(String centresFile) throws FileNotFoundException {
+        PrintWriter centresWriter = new PrintWriter(new FileOutputStream(centresFile));
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            double[] centre = hiddenLayer[i].getCentreVector();
+            StringBuilder centreString = new StringBuilder();
+            for (int j = 0; j < centre.length; j++) {
+                if (j > 0)
+                    centreString.append(", ");
+                centreString.append(centre[j]);
+            }
+            centresWriter.println(centreString);
+        }
+        centresWriter.close();
+    }
+
+    /**
+     * Updates the network with a single training pattern, exactly as one
+     * pattern of a training epoch does.
+     *
+     * @param input  Normalized input vector
+     * @param target Target output vector
+     * @return Pattern error, before the update
+     */
+    public synchronized double partialFit(double[] input, double[] target) {
+        if ((input.length != numInputNeurons) || (target.length != numOutputNeurons))
+            throw new IllegalArgumentException(
+                    numInputNeurons + " inputs and " + numOutputNeurons + " target outputs are required");
+        return calculatePatternError(trainPattern(input, target, 0, getOutputVector(input), -1));
+    }
+
+    /**
+     * Updates the network with a batch of training patterns, one after the
+     * other.
+     *
+     * @param inputs  Normalized input vectors
+     * @param targets Target output vectors
+     * @return Total error of the patterns, each before its update
+     */
+    public synchronized double partialFit(double[][] inputs, double[][] targets) {
+        if (inputs.length != targets.length)
+            throw new IllegalArgumentException("One target output vector is required per input vector");
+        double totalError = 0.0;
+        for (int i = 0; i < inputs.length; i++)
+            totalError += partialFit(inputs[i], targets[i]);
+        return totalError;
+    }
+
+    /**
+     * Generates the vector of the hidden nodes' parameters: for each hidden
+     * node, its output coefficients, centre coordinates and sigma.
+     *
+     * @return Parameter vector
+     */
+    public synchronized double[] getParameterVector() {
+        int nodeParameters = numOutputNeurons + numInputNeurons + 1;
+        double[] parameters = new double[numHiddenLayerNeurons * nodeParameters];
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            RBFHiddenNode hiddenNode = hiddenLayer[i];
+            int offset = i * nodeParameters;
+            System.arraycopy(hiddenNode.outputCoefficients, 0, parameters, offset, numOutputNeurons);
+            System.arraycopy(hiddenNode.getCentreVector(), 0, parameters, offset + numOutputNeurons, numInputNeurons);
+            parameters[offset + nodeParameters - 1] = hiddenNode.sigma;
+        }
+        return parameters;
+    }
+
+    /**
+     * Sets the hidden nodes' parameters from a parameter vector, laid out as
+     * by getParameterVector.
+     *
+     * @param parameters Parameter vector
+     */
+    public synchronized void setParameterVector(double[] parameters) {
+        int nodeParameters = numOutputNeurons + numInputNeurons + 1;
+        if (parameters.length != numHiddenLayerNeurons * nodeParameters)
+            throw new IllegalArgumentException(numHiddenLayerNeurons * nodeParameters + " parameters are required");
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            RBFHiddenNode hiddenNode = hiddenLayer[i];
+            int offset = i * nodeParameters;
+            System.arraycopy(parameters, offset, hiddenNode.outputCoefficients, 0, numOutputNeurons);
+            if (hiddenNode instanceof RBFFloatHiddenNode) {
+                float[] floatCentre = ((RBFFloatHiddenNode) hiddenNode).floatCentre;
+                for (int j = 0; j < numInputNeurons; j++)
+                    floatCentre[j] = (float) parameters[offset + numOutputNeurons + j];
+            } else
+                System.arraycopy(parameters, offset + numOutputNeurons, hiddenNode.centre, 0, numInputNeurons);
+            hiddenNode.sigma = parameters[offset + nodeParameters - 1];
+        }
+    }
+
+    /**
+     * Sets the RBF network parameters from the configuration.
+     */
+    private void setNetworkParameters() {
+        this.numHiddenLayerNeurons = configuration.numHiddenLayerNeurons;
+        this.numInputNeurons = configuration.numInputNeurons;
+        this.useBias = configuration.useBias;
+        this.biasValue = configuration.biasValue;
+        this.numOutputNeurons = configuration.numOutputNeurons;
+        this.learningRates = configuration.learningRates;
+        this.epochLearningRates = learningRates;
+        this.optimizer = configuration.optimizer;
+        this.optimizerParameters = configuration.optimizerParameters;
+        this.sigmas = configuration.sigmas;
+        this.maxIterations = configuration.maxIterations;
+        this.basisFunction = configuration.basisFunction;
+    }
+
+    /**
+     * Generates the configuration of a network continuing from a model.
+     *
+     * @param configuration Configuration
+     * @param model         Trained model
+     * @return Configuration matching the model
+     */
+    private static Configuration modelConfiguration(Configuration configuration, RBFModel model) {
+        Configuration modelConfiguration = new Configuration(configuration);
+        modelConfiguration.numHiddenLayerNeurons = model.getNumHiddenNodes();
+        modelConfiguration.numInputNeurons = model.getNumInputNeurons();
+        modelConfiguration.numOutputNeurons = model.getNumOutputNeurons();
+        modelConfiguration.basisFunction = model.getBasisFunction();
+        modelConfiguration.sigmas = new double[model.getNumHiddenNodes()];
+        for (int i = 0; i < model.getNumHiddenNodes(); i++)
+            modelConfiguration.sigmas[i] = model.getSigma(i);
+        return modelConfiguration;
+    }
+
+    /**
+     * Generates the centre vectors of a model's hidden nodes.
+     *
+     * @param model Trained model
+     * @return Centre vectors
+     */
+    private static double[][] modelCentres(RBFModel model) {
+        double[][] centres = new double[model.getNumHiddenNodes()][];
+        for (int i = 0; i < centres.length; i++)
+            centres[i] = model.getCentre(i);
+        return centres;
+    }
+
+    /**
+     * Passes an epoch (training and testing). The epoch is counted once it has
+     * been trained, so that it is trained with its own index, starting from 0.
+     *
+     * @param lastEpoch Whether it is the last epoch to execute
+     */
+    private void passEpoch(boolean lastEpoch) {
         // Pass epoch (training & testing)
-        double trainingError = trainRBFNetwork();
-        double testingError = testRBFNetwork();
+        double trainingError = trainRBFNetwork(numOfPassedEpochs);
         // Store results about training and testing error
         try {
-            results.iterationCompleted(trainingError, testingError);
+            if (isTestingEpoch(lastEpoch))
+                results.iterationCompleted(trainingError, testRBFNetwork());
+            else
+                results.iterationCompleted(trainingError);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Trains the RBF network for all training data.
+     * Counts a passed epoch and determines whether it is tested.
+     *
+     * @param lastEpoch Whether it is the last epoch to execute
+     * @return Whether the epoch is tested
+     */
+    private boolean isTestingEpoch(boolean lastEpoch) {
+        numOfPassedEpochs++;
+        int testingInterval = Math.max(configuration.testingInterval, 1);
+        return lastEpoch || (numOfPassedEpochs % testingInterval == 0);
+    }
+
+    /**
+     * Executes training for a number of epochs, testing model snapshots on a
+     * background thread meanwhile.
+     *
+     * @param numOfEpochs Number of epochs
+     */
+    private void executeEpochsWithAsyncTesting(long numOfEpochs) {
+        ExecutorService testingExecutor = Executors.newSingleThreadExecutor();
+        // Epochs whose results have not been stored yet, in epoch order
+        ArrayDeque<PendingEpoch> pendingEpochs = new ArrayDeque<PendingEpoch>();
+        try {
+            for (long i = 0; i < numOfEpochs; i++) {
+                double trainingError = trainRBFNetwork(numOfPassedEpochs);
+                Future<Double> testingError = null;
+                if (isTestingEpoch(i == numOfEpochs - 1)) {
+                    final RBFModel model = createModelSnapshot();
+                    testingError = testingExecutor.submit(new Callable<Double>() {
+                        @Override
+                        public Double call() {
+                            return testModel(model);
+                        }
+                    });
+                }
+                pendingEpochs.add(new PendingEpoch(trainingError, testingError));
+                storePendingResults(pendingEpochs, false);
+            }
+            storePendingResults(pendingEpochs, true);
+        } finally {
+            testingExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stores the results of pending epochs in epoch order, up to the first
+     * epoch whose testing has not completed yet.
+     *
+     * @param pendingEpochs Epochs whose results have not been stored yet
+     * @param wait          Whether to wait for all testing to complete
+     */
+    private void storePendingResults(ArrayDeque<PendingEpoch> pendingEpochs, boolean wait) {
+        while (!pendingEpochs.isEmpty()) {
+            PendingEpoch pendingEpoch = pendingEpochs.peek();
+            if ((pendingEpoch.testingError != null) && !wait && !pendingEpoch.testingError.isDone())
+                return;
+            pendingEpochs.poll();
+            try {
+                if (pendingEpoch.testingError != null)
+                    results.iterationCompleted(pendingEpoch.trainingError, pendingEpoch.testingError.get());
+                else
+                    results.iterationCompleted(pendingEpoch.trainingError);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while testing");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error while testing (" + e.getCause().getMessage() + ")",
+                        e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Tests a model snapshot for all testing data, as testRBFNetwork tests the
+     * network itself.
      *
+     * @param model Model snapshot
+     * @return Epoch testing error
+     */
+    private double testModel(RBFModel model) {
+        double[][] outputVectors = model.getOutputVectors(testingInputs.toArray(new double[testingInputs.size()][]));
+        List<double[]> patternErrorVectors = new ArrayList<double[]>();
+        for (int i = 0; i < outputVectors.length; i++)
+            patternErrorVectors.add(calculateErrorVector(outputVectors[i], testingTargetOutputs,
+                    i * numOutputNeurons));
+        return calculateTotalEpochError(patternErrorVectors);
+    }
+
+    /**
+     * Trains the RBF network for all training data. In activation cache mode,
+     * while centres and sigmas are not learnt, the activations of the training
+     * data-sets are calculated once and only the output coefficients change;
+     * with compact support only the nodes activated by each pattern are
+     * visited.
+     *
+     * @param epoch Index of the epoch being trained, starting from 0
      * @return Epoch training error
      */
-    private double trainRBFNetwork() {
+    private double trainRBFNetwork(long epoch) {
+        if (configuration.levenbergMarquardt)
+            return trainLevenbergMarquardt();
+        setEpochLearningRates(epoch);
+        boolean cachedActivations = configuration.activationCache && (optimizer == Optimizer.SGD)
+                && (learningRates[1] == 0.0) && (learningRates[2] == 0.0);
+        if (cachedActivations && (trainingActivationCache == null))
+            trainingActivationCache = new ActivationCache(trainingInputs, configuration.activationCacheTolerance,
+                    basisFunction.hasCompactSupport());
+        hiddenLayerChanged = true;
         List<double[]> patternErrorVectors = new ArrayList<double[]>();
         for (int i = 0; i < trainingInputs.size(); i++) {
-            // Give input and get output
             double[] nextInputVector = trainingInputs.get(i);
-            double[] nextTargetOutputVector = {trainingTargetOutputs[i]};
-            double[] nextOutputVector = getOutputVector(nextInputVector);
-            // Calculate error
-            double[] nextErrorVector = calculateErrorVector(nextOutputVector, nextTargetOutputVector);
-            patternErrorVectors.add(nextErrorVector);
-            // Update hidden nodes parameters
-            updateHiddenNodesParemeters(nextInputVector, nextErrorVector);
+            // Give input and get output
+            double[] nextOutputVector;
+            if (cachedActivations) {
+                if (hiddenLayerChanged) {
+                    trainingActivationCache.validate(hiddenLayer, numHiddenLayerNeurons);
+                    hiddenLayerChanged = false;
+                }
+                nextOutputVector = trainingActivationCache.getOutputVector(i, hiddenLayer, numOutputNeurons,
+                        hiddenLayerActivations);
+            } else
+                nextOutputVector = getOutputVector(nextInputVector);
+            patternErrorVectors.add(trainPattern(nextInputVector, trainingTargetOutputs, i * numOutputNeurons,
+                    nextOutputVector, cachedActivations ? i : -1));
         }
         return calculateTotalEpochError(patternErrorVectors);
     }
 
     /**
-     * Tests the RBF network for all testing data.
+     * Trains the RBF network for all training data with a full-batch
+     * Levenberg-Marquardt iteration, instead of per-pattern updates.
+     *
+     * @return Epoch training error, before the iteration
+     */
+    private double trainLevenbergMarquardt() {
+        if (levenbergMarquardtTrainer == null)
+            levenbergMarquardtTrainer = new LevenbergMarquardtTrainer(basisFunction, numInputNeurons,
+                    numOutputNeurons, trainingInputs, trainingTargetOutputs, configuration.initialDamping,
+                    configuration.dampingFactor);
+        double[] parameters = getParameterVector();
+        double trainingError = levenbergMarquardtTrainer.iterate(parameters);
+        setParameterVector(parameters);
+        return trainingError;
+    }
+
+    /**
+     * Sets the learning rates of the epoch about to be trained, scaling the
+     * configured ones by the learning rate schedule.
+     *
+     * @param epoch Index of the epoch about to be trained, starting from 0
+     */
+    private void setEpochLearningRates(long epoch) {
+        double factor = configuration.learningRateSchedule.factor(epoch, configuration.learningRateDecay,
+                configuration.learningRateDecayEpochs);
+        if (factor == 1.0) {
+            epochLearningRates = learningRates;
+            return;
+        }
+        epochLearningRates = new double[learningRates.length];
+        for (int i = 0; i < learningRates.length; i++)
+            epochLearningRates[i] = factor * learningRates[i];
+    }
+
+    /**
+     * Trains the RBF network for a single pattern. In growing/pruning mode,
+     * nodes that have contributed little for long enough are removed first, and
+     * a poorly fit novel input gets a new node instead of a parameters update.
+     *
+     * @param inputVector      Input vector
+     * @param targetOutputs    Target output values, holding the pattern's numOutputNeurons values
+     * @param targetOffset     Index of the pattern's first target output value
+     * @param outputVector  Output vector, with the hidden nodes activations kept
+     * @param cachedPattern Index of the pattern in the training activation cache, if only the output coefficients
+     *                      are learnt from the cached activations (-1: all parameters are learnt)
+     * @return Pattern error vector, before the update
+     */
+    private double[] trainPattern(double[] inputVector, double[] targetOutputs, int targetOffset,
+                                  double[] outputVector, int cachedPattern) {
+        // Calculate error
+        double[] errorVector = calculateErrorVector(outputVector, targetOutputs, targetOffset);
+        if (configuration.growingPruning) {
+            pruneHiddenNodes();
+            if (allocateHiddenNode(inputVector, errorVector))
+                return errorVector;
+        }
+        // Update hidden nodes parameters
+        updateHiddenNodesParemeters(inputVector, errorVector, cachedPattern);
+        return errorVector;
+    }
+
+    /**
+     * Adds a hidden node centred at the input, if the error exceeds the growing
+     * error threshold and the input is further than the growing distance
+     * threshold from every centre (Resource Allocating Network). The new node
+     * takes the width of the nearest node and output coefficients that cancel
+     * the error at its centre.
+     *
+     * @param inputVector Input vector
+     * @param errorVector Error vector
+     * @return Whether a node has been added
+     */
+    private boolean allocateHiddenNode(double[] inputVector, double[] errorVector) {
+        int maxHiddenLayerNeurons = configuration.maxHiddenLayerNeurons;
+        if ((maxHiddenLayerNeurons > 0) && (numHiddenLayerNeurons >= maxHiddenLayerNeurons))
+            return false;
+        double squaredErrorNorm = 0.0;
+        for (double v : errorVector)
+            squaredErrorNorm += (v * v);
+        double growErrorThreshold = configuration.growErrorThreshold;
+        if (squaredErrorNorm <= growErrorThreshold * growErrorThreshold)
+            return false;
+        // Novelty: distance to the nearest centre
+        int nearestNode = 0;
+        double nearestSquaredDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            double squaredDistance = hiddenLayer[i].calculateSquaredDistance(inputVector);
+            if (squaredDistance < nearestSquaredDistance) {
+                nearestNode = i;
+                nearestSquaredDistance = squaredDistance;
+            }
+        }
+        double growDistanceThreshold = configuration.growDistanceThreshold;
+        if (nearestSquaredDistance <= growDistanceThreshold * growDistanceThreshold)
+            return false;
+        // New node, inserted before the bias node
+        double nodeSigma = hiddenLayer[nearestNode].sigma;
+        double centreBasisValue = basisFunction.value(0.0, nodeSigma);
+        double[] nodeCoefficients = new double[numOutputNeurons];
+        for (int i = 0; i < numOutputNeurons; i++)
+            nodeCoefficients[i] = errorVector[i] / centreBasisValue;
+        RBFHiddenNode node = configuration.singlePrecision
+                ? new RBFFloatHiddenNode(nodeCoefficients, inputVector, nodeSigma, basisFunction)
+                : new RBFHiddenNode(nodeCoefficients, inputVector.clone(), nodeSigma, basisFunction);
+        hiddenLayer = Arrays.copyOf(hiddenLayer, numHiddenLayerNeurons + 2);
+        hiddenLayer[numHiddenLayerNeurons + 1] = hiddenLayer[numHiddenLayerNeurons];
+        hiddenLayer[numHiddenLayerNeurons] = node;
+        hiddenLayerActivations = Arrays.copyOf(hiddenLayerActivations, numHiddenLayerNeurons + 1);
+        lowContributionCounts = Arrays.copyOf(lowContributionCounts, numHiddenLayerNeurons + 1);
+        numHiddenLayerNeurons++;
+        hiddenLayerChanged = true;
+        return true;
+    }
+
+    /**
+     * Removes the hidden nodes whose contribution to every output, relative to
+     * the largest contribution to that output, has stayed below the pruning
+     * threshold for a window of consecutive patterns (MRAN). Contributions are
+     * taken from the activations of the latest input; at least one node is
+     * always kept.
+     */
+    private void pruneHiddenNodes() {
+        // Largest contribution to each output
+        double[] maxContributions = new double[numOutputNeurons];
+        boolean anyContribution = false;
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            for (int j = 0; j < numOutputNeurons; j++) {
+                double contribution = Math.abs(hiddenLayer[i].outputCoefficients[j] * hiddenLayerActivations[i]);
+                if (contribution > maxContributions[j]) {
+                    maxContributions[j] = contribution;
+                    anyContribution = true;
+                }
+            }
+        }
+        // An input that activates no node tells nothing about contributions
+        if (!anyContribution)
+            return;
+        int numOfKeptNodes = 0;
+        for (int i = 0; i < numHiddenLayerNeurons; i++) {
+            boolean lowContribution = true;
+            for (int j = 0; (j < numOutputNeurons) && lowContribution; j++) {
+                double contribution = Math.abs(hiddenLayer[i].outputCoefficients[j] * hiddenLayerActivations[i]);
+                lowContribution = contribution < configuration.pruneContributionThreshold * maxContributions[j];
+            }
+            lowContributionCounts[i] = lowContribution ? lowContributionCounts[i] + 1 : 0;
+            int numOfRemainingNodes = numOfKeptNodes + (numHiddenLayerNeurons - i - 1);
+            if ((lowContributionCounts[i] >= configuration.pruneWindow) && (numOfRemainingNodes > 0))
+                continue;
+            // Keep the node, compacting the hidden layer
+            hiddenLayer[numOfKeptNodes] = hiddenLayer[i];
+            hiddenLayerActivations[numOfKeptNodes] = hiddenLayerActivations[i];
+            lowContributionCounts[numOfKeptNodes] = lowContributionCounts[i];
+            numOfKeptNodes++;
+        }
+        if (numOfKeptNodes == numHiddenLayerNeurons)
+            return;
+        hiddenLayer[numOfKeptNodes] = hiddenLayer[numHiddenLayerNeurons];
+        hiddenLayer = Arrays.copyOf(hiddenLayer, numOfKeptNodes + 1);
+        hiddenLayerActivations = Arrays.copyOf(hiddenLayerActivations, numOfKeptNodes);
+        lowContributionCounts = Arrays.copyOf(lowContributionCounts, numOfKeptNodes);
+        numHiddenLayerNeurons = numOfKeptNodes;
+        hiddenLayerChanged = true;
+    }
+
+    /**
+     * Tests the RBF network for all testing data. In activation cache mode the
+     * activations of the testing data-sets are kept across epochs, and only
+     * those of nodes that have moved beyond the tolerance are recalculated;
+     * with compact support only the non-zero activations are kept and visited.
+     * Otherwise, with compact support, the distance to each node is abandoned
+     * once the input is known to lie outside its support.
      *
      * @return Epoch testing error
      */
     private double testRBFNetwork() {
         List<double[]> patternErrorVectors = new ArrayList<double[]>();
+        double[][] cachedOutputVectors = null;
+        if (configuration.activationCache) {
+            if (testingActivationCache == null)
+                testingActivationCache = new ActivationCache(testingInputs, configuration.activationCacheTolerance,
+                        basisFunction.hasCompactSupport());
+            testingActivationCache.validate(hiddenLayer, numHiddenLayerNeurons);
+            cachedOutputVectors = testingActivationCache.getOutputVectors(hiddenLayer, numOutputNeurons);
+        }
         for (int i = 0; i < testingInputs.size(); i++) {
             // Give input and get output
             double[] nextInputVector = testingInputs.get(i);
-            double[] nextTargetOutputVector = {testingTargetOutputs[i]};
-            double[] nextOutputVector = getOutputVector(nextInputVector);
+            double[] nextOutputVector;
+            if (cachedOutputVectors != null)
+                nextOutputVector = cachedOutputVectors[i];
+            else
+                nextOutputVector = getOutputVector(nextInputVector);
             // Calculate error
-            double[] nextErrorVector = calculateErrorVector(nextOutputVector, nextTargetOutputVector);
+            double[] nextErrorVector = calculateErrorVector(nextOutputVector, testingTargetOutputs,
+                    i * numOutputNeurons);
             patternErrorVectors.add(nextErrorVector);
         }
         return calculateTotalEpochError(patternErrorVectors);
@@ -142,6 +769,8 @@ public class RBFNetwork {
     private void createNetworkStructure() {
         // Hidden nodes
         hiddenLayer = new RBFHiddenNode[numHiddenLayerNeurons + 1];
+        hiddenLayerActivations = new double[numHiddenLayerNeurons];
+        lowContributionCounts = new int[numHiddenLayerNeurons];
         for (int i = 0; i < numHiddenLayerNeurons; i++) {
             // Initialize coefficients to small random values [-1,1]
             double[] initialNodeCoefficients = new double[numOutputNeurons];
@@ -157,7 +786,10 @@ public class RBFNetwork {
             // Use specified node centre
             double[] nodeCentre = centres[i];
             // Initialize hidden node
-            hiddenLayer[i] = new RBFHiddenNode(initialNodeCoefficients, nodeCentre, sigmas[i]);
+            if (configuration.singlePrecision)
+                hiddenLayer[i] = new RBFFloatHiddenNode(initialNodeCoefficients, nodeCentre, sigmas[i], basisFunction);
+            else
+                hiddenLayer[i] = new RBFHiddenNode(initialNodeCoefficients, nodeCentre, sigmas[i], basisFunction);
         }
         // Hidden bias node
         if (useBias) {
@@ -204,38 +836,47 @@ public class RBFNetwork {
     }
 
     /**
-     * Generates the RBF nerwork's output vector.
+     * Generates the RBF nerwork's output vector, keeping the hidden nodes
+     * activations for the parameters update.
      *
      * @param input Input vector
      * @return Output vector
      */
     private double[] getOutputVector(double[] input) {
-        double[][] hiddenNodesOutputs = new double[numHiddenLayerNeurons][numOutputNeurons];
-        for (int i = 0; i < numHiddenLayerNeurons; i++)
-            hiddenNodesOutputs[i] = hiddenLayer[i].getOutputVector(input);
         double[] outputVector = new double[numOutputNeurons];
-        for (int i = 0; i < numOutputNeurons; i++) {
-            outputVector[i] = 0.0;
-            for (int j = 0; j < numHiddenLayerNeurons; j++)
-                outputVector[i] += hiddenNodesOutputs[j][i];
-        }
+        for (int i = 0; i < numHiddenLayerNeurons; i++)
+            hiddenLayerActivations[i] = hiddenLayer[i].accumulateOutputVector(input, outputVector);
         return outputVector;
     }
 
     /**
      * Calculates the RBF nerwork's error vector.
      *
-     * @param outputVector       Output vector
-     * @param targetOutputVector Target output vector
+     * @param outputVector  Output vector
+     * @param targetOutputs Target output values, holding the pattern's numOutputNeurons values
+     * @param targetOffset  Index of the pattern's first target output value
      * @return Error vector
      */
-    private double[] calculateErrorVector(double[] outputVector, double[] targetOutputVector) {
+    private double[] calculateErrorVector(double[] outputVector, double[] targetOutputs, int targetOffset) {
         double[] errorVector = new double[numOutputNeurons];
         for (int i = 0; i < numOutputNeurons; i++)
-            errorVector[i] = targetOutputVector[i] - outputVector[i];
+            errorVector[i] = targetOutputs[targetOffset + i] - outputVector[i];
         return errorVector;
     }
 
+    /**
+     * Calculates the error of a single pattern.
+     *
+     * @param errorVector Pattern error vector
+     * @return Pattern error
+     */
+    private double calculatePatternError(double[] errorVector) {
+        double squaredSum = 0.0;
+        for (double v : errorVector)
+            squaredSum += (v * v);
+        return 0.5 * squaredSum;
+    }
+
     /**
      * Calculates the total epoch error.
      *
@@ -252,16 +893,51 @@ public class RBFNetwork {
 
     /**
      * Updates the hidden nodes parameters, according to the error of each
-     * network output.
+     * network output, through the configured optimizer. With compact support,
+     * nodes that were not activated by the input are skipped. When only the
+     * output coefficients are learnt, the training activation cache visits the
+     * nodes activated by the pattern, unless growing/pruning has just changed
+     * the hidden layer.
      *
+     * @param inputVector   Input vector
+     * @param errorVector   Error vector
+     * @param cachedPattern Index of the pattern in the training activation cache, if only the output coefficients
+     *                      are updated from the cached activations (-1: all parameters are updated)
+     */
+    private void updateHiddenNodesParemeters(double[] inputVector, double[] errorVector, int cachedPattern) {
+        if ((cachedPattern >= 0) && !hiddenLayerChanged)
+            trainingActivationCache.updateOutputCoefficients(cachedPattern, hiddenLayer, errorVector,
+                    epochLearningRates[0]);
+        else {
+            boolean skipInactiveNodes = basisFunction.hasCompactSupport();
+            for (int i = 0; i < numHiddenLayerNeurons; i++) {
+                if (skipInactiveNodes && hiddenLayerActivations[i] == 0.0)
+                    continue;
+                if (cachedPattern >= 0)
+                    hiddenLayer[i].updateOutputCoefficients(hiddenLayerActivations[i], errorVector,
+                            epochLearningRates[0]);
+                else
+                    updateNodeParemeters(hiddenLayer[i], inputVector, errorVector);
+            }
+        }
+        if (useBias)
+            updateNodeParemeters(hiddenLayer[numHiddenLayerNeurons], inputVector, errorVector);
+    }
+
+    /**
+     * Updates a hidden node's parameters, by plain gradient descent or through
+     * the configured optimizer.
+     *
+     * @param hiddenNode  Hidden node
      * @param inputVector Input vector
      * @param errorVector Error vector
      */
-    private void updateHiddenNodesParemeters(double[] inputVector, double[] errorVector) {
-        for (int i = 0; i < numHiddenLayerNeurons; i++)
-            hiddenLayer[i].updateNodeParemeters(inputVector, errorVector, learningRates);
-        if (useBias)
-            hiddenLayer[numHiddenLayerNeurons].updateNodeParemeters(inputVector, errorVector, learningRates);
+    private void updateNodeParemeters(RBFHiddenNode hiddenNode, double[] inputVector, double[] errorVector) {
+        if (optimizer == Optimizer.SGD)
+            hiddenNode.updateNodeParemeters(inputVector, errorVector, epochLearningRates);
+        else
+            hiddenNode.updateNodeParemeters(inputVector, errorVector, epochLearningRates, optimizer,
+                    optimizerParameters);
     }
 
     /**
@@ -269,13 +945,15 @@ public class RBFNetwork {
      */
     private void saveWeights() {
         String weightsFilename = configuration.weightsFile;
+        if (weightsFilename == null)
+            return;
         PrintWriter weightsWriter = null;
         try {
             weightsWriter = new PrintWriter(new FileOutputStream(weightsFilename));
             for (RBFHiddenNode nextHiddenNode : hiddenLayer) {
                 if (!(nextHiddenNode instanceof RBFBiasHiddenNode)) {
                     double[] outputCoefficients = nextHiddenNode.outputCoefficients;
-                    double[] centre = nextHiddenNode.centre;
+                    double[] centre = nextHiddenNode.getCentreVector();
                     double sigma = nextHiddenNode.sigma;
                     weightsWriter.println("Output coefficients: " + Arrays.toString(outputCoefficients));
                     weightsWriter.println("Centre: " + Arrays.toString(centre));
@@ -289,4 +967,39 @@ public class RBFNetwork {
         }
     }
 
+    /**
+     * Saves a snapshot of the RBF network into a binary model file, used for
+     * scoring.
+     */
+    private void saveModel() {
+        if (configuration.modelFile == null)
+            return;
+        try {
+            RBFModelFile.save(createModelSnapshot(), configuration.modelFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Class representing an epoch whose results have not been stored yet.
+     */
+    private static class PendingEpoch {
+        // Epoch training error
+        final double trainingError;
+        // Epoch testing error, or null if the epoch is not tested
+        final Future<Double> testingError;
+
+        /**
+         * Constructs a pending epoch.
+         *
+         * @param trainingError Epoch training error
+         * @param testingError  Epoch testing error, or null if the epoch is not tested
+         */
+        PendingEpoch(double trainingError, Future<Double> testingError) {
+            this.trainingError = trainingError;
+            this.testingError = testingError;
+        }
+    }
+
 }
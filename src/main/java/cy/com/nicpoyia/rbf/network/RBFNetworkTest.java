@@ -0,0 +1,133 @@
+package cy.com.nicpoyia.rbf.network;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+
+import java.util.Random;
+
+/**
+ * Test Driver class for the online learning API of RBFNetwork class. Builds a
+ * network from in-memory parameters, streams the training data-sets through
+ * partialFit and continues learning from a model snapshot. Then grows and
+ * prunes a network starting from a single hidden node, and compares the
+ * training time of a single-output network with a network fitting several
+ * endpoints at once.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class RBFNetworkTest {
+    // Number of passes over the training data-sets
+    private static final int numOfPasses = 300;
+    // Number of epochs of the growing/pruning network
+    private static final int numOfGrowingEpochs = 500;
+    // Number of endpoints and epochs of the multi-output network
+    private static final int numOfEndpoints = 4;
+    private static final int numOfMultiOutputEpochs = 2000;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration fileConfiguration = new Configuration();
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(fileConfiguration).getDataMatrix();
+        // In-memory parameters, as in the parameters file
+        Configuration configuration = new Configuration(fileConfiguration.numHiddenLayerNeurons,
+                fileConfiguration.numInputNeurons, fileConfiguration.numOutputNeurons,
+                fileConfiguration.learningRates, fileConfiguration.sigmas);
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        double[][] centres = dataMatrix.selectCentres(configuration.numHiddenLayerNeurons, trainingRows, new Random(36));
+        RBFNetwork network = new RBFNetwork(configuration, centres, dataMatrix.getNormalizationTransform());
+        // Stream the training data-sets one pattern at a time
+        long numOfUpdates = 0;
+        long startTime = System.nanoTime();
+        for (int pass = 0; pass < numOfPasses; pass++) {
+            for (int row : trainingRows) {
+                network.partialFit(dataMatrix.getAttributeValues(row), new double[]{dataMatrix.getActivity(row)});
+                numOfUpdates++;
+            }
+        }
+        double meanMicros = (System.nanoTime() - startTime) / 1000.0 / numOfUpdates;
+        System.out.println(numOfUpdates + " updates, " + meanMicros + " us per update");
+        RBFModel model = network.createModelSnapshot();
+        System.out.println("Testing error after streaming: " + calculateTestingError(model, dataMatrix));
+        // Continue learning from the snapshot with a batch update
+        RBFNetwork continuedNetwork = new RBFNetwork(configuration, model);
+        System.out.println("Testing error of continued network: "
+                + calculateTestingError(continuedNetwork.createModelSnapshot(), dataMatrix));
+        double[][] inputs = new double[trainingRows.length][];
+        double[][] targets = new double[trainingRows.length][];
+        for (int i = 0; i < trainingRows.length; i++) {
+            inputs[i] = dataMatrix.getAttributeValues(trainingRows[i]);
+            targets[i] = new double[]{dataMatrix.getActivity(trainingRows[i])};
+        }
+        double trainingError = continuedNetwork.partialFit(inputs, targets);
+        System.out.println("Training error of batch update: " + trainingError);
+        System.out.println("Testing error after batch update: "
+                + calculateTestingError(continuedNetwork.createModelSnapshot(), dataMatrix));
+        // Grow and prune from a single hidden node
+        Configuration growingConfiguration = new Configuration(fileConfiguration);
+        growingConfiguration.numHiddenLayerNeurons = 1;
+        growingConfiguration.sigmas = new double[]{fileConfiguration.sigmas[0]};
+        growingConfiguration.growingPruning = true;
+        growingConfiguration.resultsFile = null;
+        growingConfiguration.weightsFile = null;
+        growingConfiguration.modelFile = null;
+        RBFNetwork growingNetwork = new RBFNetwork(growingConfiguration, dataMatrix);
+        growingNetwork.executeEpochs(numOfGrowingEpochs);
+        System.out.println("Growing network: " + growingNetwork.getNumHiddenLayerNeurons() + " hidden nodes, testing error "
+                + growingNetwork.getResults().getLastTestingError());
+        // Several endpoints derived from the activity, fitted by a single network
+        int numOfDataSets = dataMatrix.getNumOfDataSets();
+        double[][] attributeRows = new double[numOfDataSets][];
+        double[] endpoints = new double[numOfDataSets * numOfEndpoints];
+        for (int row = 0; row < numOfDataSets; row++) {
+            attributeRows[row] = dataMatrix.getAttributeValues(row);
+            for (int j = 0; j < numOfEndpoints; j++)
+                endpoints[row * numOfEndpoints + j] = (j % 2 == 0 ? 1.0 : -1.0) * dataMatrix.getActivity(row)
+                        / (j + 1);
+        }
+        CompoundDataMatrix multiOutputMatrix = new CompoundDataMatrix(attributeRows, endpoints, numOfEndpoints,
+                dataMatrix.getTrainingIndices(), dataMatrix.getTestingIndices(), dataMatrix.getNormalizationTransform());
+        Configuration singleOutputConfiguration = new Configuration(growingConfiguration);
+        singleOutputConfiguration.numHiddenLayerNeurons = fileConfiguration.numHiddenLayerNeurons;
+        singleOutputConfiguration.sigmas = fileConfiguration.sigmas;
+        singleOutputConfiguration.growingPruning = false;
+        Configuration multiOutputConfiguration = new Configuration(singleOutputConfiguration);
+        multiOutputConfiguration.numOutputNeurons = numOfEndpoints;
+        RBFNetwork singleOutputNetwork = new RBFNetwork(singleOutputConfiguration, dataMatrix);
+        RBFNetwork multiOutputNetwork = new RBFNetwork(multiOutputConfiguration, multiOutputMatrix);
+        singleOutputNetwork.executeEpochs(numOfMultiOutputEpochs / 10);
+        multiOutputNetwork.executeEpochs(numOfMultiOutputEpochs / 10);
+        startTime = System.nanoTime();
+        singleOutputNetwork.executeEpochs(numOfMultiOutputEpochs);
+        long singleOutputMillis = (System.nanoTime() - startTime) / 1000000;
+        startTime = System.nanoTime();
+        multiOutputNetwork.executeEpochs(numOfMultiOutputEpochs);
+        long multiOutputMillis = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("1 output: " + singleOutputMillis + " ms, testing error "
+                + singleOutputNetwork.getResults().getLastTestingError());
+        System.out.println(numOfEndpoints + " outputs: " + multiOutputMillis + " ms, testing error "
+                + multiOutputNetwork.getResults().getLastTestingError() + " (model check "
+                + ModelCompressor.calculateError(multiOutputNetwork.createModelSnapshot(), multiOutputMatrix,
+                multiOutputMatrix.getTestingIndices()) + ")");
+    }
+
+    /**
+     * Calculates a model's error over the testing data-sets.
+     *
+     * @param model      Model
+     * @param dataMatrix Data matrix
+     * @return Testing error
+     */
+    private static double calculateTestingError(RBFModel model, CompoundDataMatrix dataMatrix) {
+        double squaredSum = 0.0;
+        for (int row : dataMatrix.getTestingIndices()) {
+            double error = dataMatrix.getActivity(row) - model.getOutputVector(dataMatrix.getAttributeValues(row))[0];
+            squaredSum += error * error;
+        }
+        return 0.5 * squaredSum;
+    }
+
+}
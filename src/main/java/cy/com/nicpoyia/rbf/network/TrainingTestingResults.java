@@ -14,6 +14,9 @@ public class TrainingTestingResults {
     private String resultsFilename;
     // Number of iterations executed so far
     private int numOfIterations;
+    // Errors of the latest iteration
+    private double lastTrainingError = Double.NaN;
+    private double lastTestingError = Double.NaN;
 
     /**
      * Number of Iterations getter
@@ -24,13 +27,33 @@ public class TrainingTestingResults {
         return numOfIterations;
     }
 
+    /**
+     * Latest training error getter
+     *
+     * @return Training error of the latest iteration
+     */
+    public double getLastTrainingError() {
+        return lastTrainingError;
+    }
+
+    /**
+     * Latest testing error getter
+     *
+     * @return Testing error of the latest iteration
+     */
+    public double getLastTestingError() {
+        return lastTestingError;
+    }
+
     /**
      * Constructs an instance that handles the training and testing results.
-     * @param resultsFile
+     * @param resultsFile Results file name, or null to keep results in memory only
      */
     public TrainingTestingResults(String resultsFile) {
         this.resultsFilename = resultsFile;
         this.numOfIterations = 0;
+        if (resultsFilename == null)
+            return;
         // Clear the results file
         PrintWriter writer = null;
         try {
@@ -50,6 +73,10 @@ public class TrainingTestingResults {
      */
     public void iterationCompleted(double trainingError, double testingError) {
         numOfIterations++;
+        lastTrainingError = trainingError;
+        lastTestingError = testingError;
+        if (resultsFilename == null)
+            return;
         // Print errors into the output errors file
         PrintWriter errorsWriter = null;
         try {
@@ -61,6 +88,18 @@ public class TrainingTestingResults {
         }
     }
 
+    /**
+     * Stores the results of an iteration without testing. The latest testing
+     * error is kept, while NaN is written to the results file instead.
+     *
+     * @param trainingError Iteration's training error
+     */
+    public void iterationCompleted(double trainingError) {
+        double testingError = lastTestingError;
+        iterationCompleted(trainingError, Double.NaN);
+        lastTestingError = testingError;
+    }
+
     /**
      * Test Driver
      *
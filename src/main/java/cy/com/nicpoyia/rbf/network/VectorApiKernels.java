@@ -0,0 +1,78 @@
+package cy.com.nicpoyia.rbf.network;
+
+/**
+ * Vector API versions of the hot VectorKernels kernels. This is the Java 8
+ * version, which reports the Vector API as unavailable and runs the scalar
+ * kernels. The multi-release JAR replaces it on Java 16 or later with the
+ * version built from the java16 source set (META-INF/versions/16).
+ *
+ * @author Nicolas Poyiadjis
+ */
+final class VectorApiKernels {
+
+    /**
+     * Not instantiable.
+     */
+    private VectorApiKernels() {
+    }
+
+    /**
+     * Number of lanes getter method.
+     *
+     * @return Number of double lanes of the Vector API kernels (0: Vector API not available)
+     */
+    static int getNumOfLanes() {
+        return 0;
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * centre stored as a row of a flat matrix.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    static double squaredDistance(double[] input, double[] centres, int centreOffset, int length) {
+        return VectorKernels.scalarSquaredDistance(input, centres, centreOffset, length);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * single precision centre stored as a row of a flat matrix.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    static double squaredDistance(double[] input, float[] centres, int centreOffset, int length) {
+        return VectorKernels.scalarSquaredDistance(input, centres, centreOffset, length);
+    }
+
+    /**
+     * Adds a basis-weighted coefficient vector to an output vector.
+     *
+     * @param basisValue   Basis function value
+     * @param coefficients Output coefficients
+     * @param outputVector Output vector to accumulate into
+     */
+    static void accumulateWeighted(double basisValue, double[] coefficients, double[] outputVector) {
+        VectorKernels.scalarAccumulateWeighted(basisValue, coefficients, outputVector);
+    }
+
+    /**
+     * Moves a centre towards (or away from) an input vector.
+     *
+     * @param factor Update factor
+     * @param input  Input vector
+     * @param centre Centre vector to update
+     */
+    static void updateCentre(double factor, double[] input, double[] centre) {
+        VectorKernels.scalarUpdateCentre(factor, input, centre);
+    }
+
+}
@@ -0,0 +1,511 @@
+package cy.com.nicpoyia.rbf.network;
+
+import java.util.Random;
+
+/**
+ * Static kernels for the vector operations of the hidden layer (distance,
+ * basis-weighted accumulation and centre update). Loops are written over flat
+ * primitive arrays with independent accumulators, so that they are free of
+ * virtual calls and of loop-carried dependencies that block vectorization.
+ * On Java 16 or later, with the jdk.incubator.vector module added, the
+ * distance over double and single precision centres and the double precision
+ * centre update run on explicit SIMD kernels of the Vector API instead
+ * (VectorApiKernels, from the multi-release JAR). The accumulation only does
+ * so for vectors of at least one vector length, i.e. the averaging of centres
+ * when compressing a model; the output vectors of the network (one coordinate
+ * per output neuron) are shorter and stay on the scalar loop, as do vectors
+ * shorter than the vector length in the other kernels.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public final class VectorKernels {
+    // Number of double lanes of the Vector API kernels (0: scalar kernels only)
+    private static final int vectorLanes = VectorApiKernels.getNumOfLanes();
+
+    /**
+     * Not instantiable.
+     */
+    private VectorKernels() {
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * centre.
+     *
+     * @param input  Input vector
+     * @param centre Centre vector
+     * @return Squared euclidean distance
+     */
+    public static double squaredDistance(double[] input, double[] centre) {
+        return squaredDistance(input, centre, 0, input.length);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * centre stored as a row of a flat matrix.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    public static double squaredDistance(double[] input, double[] centres, int centreOffset, int length) {
+        if ((vectorLanes != 0) && (length >= vectorLanes))
+            return VectorApiKernels.squaredDistance(input, centres, centreOffset, length);
+        return scalarSquaredDistance(input, centres, centreOffset, length);
+    }
+
+    /**
+     * Scalar version of squaredDistance over a centre stored as a row of a
+     * flat matrix, also used by the Vector API kernels where they fall back.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    static double scalarSquaredDistance(double[] input, double[] centres, int centreOffset, int length) {
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int i = 0;
+        for (; i <= length - 4; i += 4) {
+            double d0 = input[i] - centres[centreOffset + i];
+            double d1 = input[i + 1] - centres[centreOffset + i + 1];
+            double d2 = input[i + 2] - centres[centreOffset + i + 2];
+            double d3 = input[i + 3] - centres[centreOffset + i + 3];
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+            sum2 += d2 * d2;
+            sum3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = input[i] - centres[centreOffset + i];
+            sum0 += d * d;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * single precision centre, accumulating in double precision.
+     *
+     * @param input  Input vector
+     * @param centre Centre vector
+     * @return Squared euclidean distance
+     */
+    public static double squaredDistance(double[] input, float[] centre) {
+        return squaredDistance(input, centre, 0, input.length);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * single precision centre stored as a row of a flat matrix.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    public static double squaredDistance(double[] input, float[] centres, int centreOffset, int length) {
+        if ((vectorLanes != 0) && (length >= vectorLanes))
+            return VectorApiKernels.squaredDistance(input, centres, centreOffset, length);
+        return scalarSquaredDistance(input, centres, centreOffset, length);
+    }
+
+    /**
+     * Scalar version of squaredDistance over a single precision centre stored as a row of a
+     * flat matrix, also used by the Vector API kernels where they fall back.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    static double scalarSquaredDistance(double[] input, float[] centres, int centreOffset, int length) {
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int i = 0;
+        for (; i <= length - 4; i += 4) {
+            double d0 = input[i] - centres[centreOffset + i];
+            double d1 = input[i + 1] - centres[centreOffset + i + 1];
+            double d2 = input[i + 2] - centres[centreOffset + i + 2];
+            double d3 = input[i + 3] - centres[centreOffset + i + 3];
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+            sum2 += d2 * d2;
+            sum3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = input[i] - centres[centreOffset + i];
+            sum0 += d * d;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * half precision centre stored as a row of a flat matrix, accumulating in
+     * double precision.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix (half precision bit patterns)
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    public static double squaredDistance(double[] input, short[] centres, int centreOffset, int length) {
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int i = 0;
+        for (; i <= length - 4; i += 4) {
+            double d0 = input[i] - HalfFloat.toFloat(centres[centreOffset + i]);
+            double d1 = input[i + 1] - HalfFloat.toFloat(centres[centreOffset + i + 1]);
+            double d2 = input[i + 2] - HalfFloat.toFloat(centres[centreOffset + i + 2]);
+            double d3 = input[i + 3] - HalfFloat.toFloat(centres[centreOffset + i + 3]);
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+            sum2 += d2 * d2;
+            sum3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = input[i] - HalfFloat.toFloat(centres[centreOffset + i]);
+            sum0 += d * d;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and an
+     * 8-bit quantized centre stored as a row of a flat matrix. Coordinates are
+     * dequantized on the fly with a scale and an offset per input dimension.
+     *
+     * @param input        Input vector
+     * @param centres      Flat quantized centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @param scales       Scale of each input dimension
+     * @param offsets      Offset of each input dimension
+     * @return Squared euclidean distance
+     */
+    public static double squaredDistance(double[] input, byte[] centres, int centreOffset, int length,
+                                         double[] scales, double[] offsets) {
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int i = 0;
+        for (; i <= length - 4; i += 4) {
+            double d0 = input[i] - (centres[centreOffset + i] * scales[i] + offsets[i]);
+            double d1 = input[i + 1] - (centres[centreOffset + i + 1] * scales[i + 1] + offsets[i + 1]);
+            double d2 = input[i + 2] - (centres[centreOffset + i + 2] * scales[i + 2] + offsets[i + 2]);
+            double d3 = input[i + 3] - (centres[centreOffset + i + 3] * scales[i + 3] + offsets[i + 3]);
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+            sum2 += d2 * d2;
+            sum3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = input[i] - (centres[centreOffset + i] * scales[i] + offsets[i]);
+            sum0 += d * d;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * centre stored as a row of a flat matrix, abandoning the calculation once
+     * the partial distance reaches a bound.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @param bound        Squared distance bound
+     * @return Squared euclidean distance, or a value not below the bound
+     */
+    public static double boundedSquaredDistance(double[] input, double[] centres, int centreOffset, int length,
+                                                double bound) {
+        double sum = 0.0;
+        int i = 0;
+        for (; i <= length - 8; i += 8) {
+            sum += squaredDistance(input, i, centres, centreOffset + i);
+            if (sum >= bound)
+                return sum;
+        }
+        for (; i < length; i++) {
+            double d = input[i] - centres[centreOffset + i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * single precision centre stored as a row of a flat matrix, abandoning the
+     * calculation once the partial distance reaches a bound.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @param bound        Squared distance bound
+     * @return Squared euclidean distance, or a value not below the bound
+     */
+    public static double boundedSquaredDistance(double[] input, float[] centres, int centreOffset, int length,
+                                                double bound) {
+        double sum = 0.0;
+        int i = 0;
+        for (; i <= length - 8; i += 8) {
+            sum += squaredDistance(input, i, centres, centreOffset + i);
+            if (sum >= bound)
+                return sum;
+        }
+        for (; i < length; i++) {
+            double d = input[i] - centres[centreOffset + i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * Calculates the squared distance over a block of eight coordinates.
+     *
+     * @param input        Input vector
+     * @param inputOffset  Index of the block's first input coordinate
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the block's first centre coordinate
+     * @return Squared distance over the block
+     */
+    private static double squaredDistance(double[] input, int inputOffset, double[] centres, int centreOffset) {
+        double sum0 = 0.0, sum1 = 0.0;
+        for (int i = 0; i < 8; i += 2) {
+            double d0 = input[inputOffset + i] - centres[centreOffset + i];
+            double d1 = input[inputOffset + i + 1] - centres[centreOffset + i + 1];
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+        }
+        return sum0 + sum1;
+    }
+
+    /**
+     * Calculates the squared distance over a block of eight single precision
+     * centre coordinates.
+     *
+     * @param input        Input vector
+     * @param inputOffset  Index of the block's first input coordinate
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the block's first centre coordinate
+     * @return Squared distance over the block
+     */
+    private static double squaredDistance(double[] input, int inputOffset, float[] centres, int centreOffset) {
+        double sum0 = 0.0, sum1 = 0.0;
+        for (int i = 0; i < 8; i += 2) {
+            double d0 = input[inputOffset + i] - centres[centreOffset + i];
+            double d1 = input[inputOffset + i + 1] - centres[centreOffset + i + 1];
+            sum0 += d0 * d0;
+            sum1 += d1 * d1;
+        }
+        return sum0 + sum1;
+    }
+
+    /**
+     * Adds a basis-weighted coefficient vector to an output vector.
+     *
+     * @param basisValue   Basis function value
+     * @param coefficients Output coefficients
+     * @param outputVector Output vector to accumulate into
+     */
+    public static void accumulateWeighted(double basisValue, double[] coefficients, double[] outputVector) {
+        if ((vectorLanes != 0) && (outputVector.length >= vectorLanes)) {
+            VectorApiKernels.accumulateWeighted(basisValue, coefficients, outputVector);
+            return;
+        }
+        scalarAccumulateWeighted(basisValue, coefficients, outputVector);
+    }
+
+    /**
+     * Scalar version of accumulateWeighted, also used by the Vector API
+     * kernels where they fall back.
+     *
+     * @param basisValue   Basis function value
+     * @param coefficients Output coefficients
+     * @param outputVector Output vector to accumulate into
+     */
+    static void scalarAccumulateWeighted(double basisValue, double[] coefficients, double[] outputVector) {
+        for (int i = 0; i < outputVector.length; i++)
+            outputVector[i] += coefficients[i] * basisValue;
+    }
+
+    /**
+     * Moves a centre towards (or away from) an input vector, by adding the
+     * scaled input-centre difference to each coordinate.
+     *
+     * @param factor Update factor
+     * @param input  Input vector
+     * @param centre Centre vector to update
+     */
+    public static void updateCentre(double factor, double[] input, double[] centre) {
+        int length = centre.length;
+        if ((vectorLanes != 0) && (length >= vectorLanes)) {
+            VectorApiKernels.updateCentre(factor, input, centre);
+            return;
+        }
+        scalarUpdateCentre(factor, input, centre);
+    }
+
+    /**
+     * Scalar version of updateCentre, also used by the Vector API kernels
+     * where they fall back.
+     *
+     * @param factor Update factor
+     * @param input  Input vector
+     * @param centre Centre vector to update
+     */
+    static void scalarUpdateCentre(double factor, double[] input, double[] centre) {
+        // C2 vectorizes the plain loop by itself, manual unrolling only gets in its way
+        for (int i = 0; i < centre.length; i++)
+            centre[i] += factor * (input[i] - centre[i]);
+    }
+
+    /**
+     * Moves a single precision centre towards (or away from) an input vector.
+     *
+     * @param factor Update factor
+     * @param input  Input vector
+     * @param centre Centre vector to update
+     */
+    public static void updateCentre(double factor, double[] input, float[] centre) {
+        for (int i = 0; i < centre.length; i++)
+            centre[i] += (float) (factor * (input[i] - centre[i]));
+    }
+
+    /**
+     * Benchmark Driver, compares the distance, accumulation and centre update
+     * kernels against plain scalar loops. The accumulation is benchmarked at
+     * the output vector lengths of the network (1 and 4 output neurons) and at
+     * the centre length (model compression). The Vector API kernels are
+     * benchmarked when run from the multi-release JAR on Java 16 or later
+     * with --add-modules jdk.incubator.vector.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int numOfInputs = 53;
+        int numOfCentres = 1000;
+        int repetitions = 2000;
+        int numOfRounds = 10;
+        Random randomGenerator = new Random(27);
+        double[] input = new double[numOfInputs];
+        double[][] centres = new double[numOfCentres][numOfInputs];
+        for (int i = 0; i < numOfInputs; i++)
+            input[i] = randomGenerator.nextDouble();
+        for (double[] centre : centres)
+            for (int i = 0; i < numOfInputs; i++)
+                centre[i] = randomGenerator.nextDouble();
+        int[] accumulationLengths = {1, 4, numOfInputs};
+        double[][] scalarVectors = new double[accumulationLengths.length][];
+        double[][] kernelVectors = new double[accumulationLengths.length][];
+        for (int l = 0; l < accumulationLengths.length; l++) {
+            scalarVectors[l] = new double[accumulationLengths[l]];
+            kernelVectors[l] = new double[accumulationLengths[l]];
+        }
+        double[][] scalarCentres = new double[numOfCentres][];
+        double[][] kernelCentres = new double[numOfCentres][];
+        for (int c = 0; c < numOfCentres; c++) {
+            scalarCentres[c] = centres[c].clone();
+            kernelCentres[c] = centres[c].clone();
+        }
+        System.out.println("Vector API lanes: " + vectorLanes + (vectorLanes == 0 ? " (scalar kernels)" : ""));
+        // Time each path in its own method, reporting the last round once all of them have been compiled
+        long[] times = new long[4 + 2 * accumulationLengths.length];
+        double checksum = 0.0;
+        for (int round = 0; round < numOfRounds; round++) {
+            long startTime = System.nanoTime();
+            for (int r = 0; r < repetitions; r++)
+                checksum += benchmarkScalarDistance(input, centres);
+            times[0] = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (int r = 0; r < repetitions; r++)
+                checksum -= benchmarkKernelDistance(input, centres);
+            times[1] = System.nanoTime() - startTime;
+            // Centre updates towards the input, by a factor small enough to keep the centres apart
+            startTime = System.nanoTime();
+            for (int r = 0; r < repetitions; r++)
+                benchmarkScalarUpdate(input, scalarCentres);
+            times[2] = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (int r = 0; r < repetitions; r++)
+                benchmarkKernelUpdate(input, kernelCentres);
+            times[3] = System.nanoTime() - startTime;
+            // Accumulation of each centre's leading coordinates, weighted by a small basis value
+            for (int l = 0; l < accumulationLengths.length; l++) {
+                startTime = System.nanoTime();
+                for (int r = 0; r < repetitions; r++)
+                    benchmarkScalarAccumulation(centres, scalarVectors[l]);
+                times[4 + 2 * l] = System.nanoTime() - startTime;
+                startTime = System.nanoTime();
+                for (int r = 0; r < repetitions; r++)
+                    benchmarkKernelAccumulation(centres, kernelVectors[l]);
+                times[5 + 2 * l] = System.nanoTime() - startTime;
+            }
+        }
+        String[] names = new String[times.length];
+        names[0] = "Scalar distance";
+        names[1] = "Kernel distance";
+        names[2] = "Scalar centre update";
+        names[3] = "Kernel centre update";
+        for (int l = 0; l < accumulationLengths.length; l++) {
+            names[4 + 2 * l] = "Scalar accumulation (length " + accumulationLengths[l] + ")";
+            names[5 + 2 * l] = "Kernel accumulation (length " + accumulationLengths[l] + ")";
+        }
+        for (int t = 0; t < times.length; t++)
+            System.out.println(names[t] + ": " + (times[t] / (repetitions * numOfCentres)) + " ns/centre");
+        double maxDifference = 0.0;
+        for (int l = 0; l < accumulationLengths.length; l++)
+            for (int i = 0; i < accumulationLengths[l]; i++)
+                maxDifference = Math.max(maxDifference, Math.abs(scalarVectors[l][i] - kernelVectors[l][i]));
+        for (int c = 0; c < numOfCentres; c++)
+            for (int i = 0; i < numOfInputs; i++)
+                maxDifference = Math.max(maxDifference, Math.abs(scalarCentres[c][i] - kernelCentres[c][i]));
+        System.out.println("Checksum difference: " + checksum + ", maximum vector difference: " + maxDifference);
+    }
+
+    private static double benchmarkScalarDistance(double[] input, double[][] centres) {
+        double total = 0.0;
+        for (double[] centre : centres) {
+            double sum = 0.0;
+            for (int i = 0; i < input.length; i++)
+                sum += ((input[i] - centre[i]) * (input[i] - centre[i]));
+            total += sum;
+        }
+        return total;
+    }
+
+    private static double benchmarkKernelDistance(double[] input, double[][] centres) {
+        double total = 0.0;
+        for (double[] centre : centres)
+            total += squaredDistance(input, centre);
+        return total;
+    }
+
+    private static void benchmarkScalarAccumulation(double[][] centres, double[] outputVector) {
+        for (double[] centre : centres)
+            for (int i = 0; i < outputVector.length; i++)
+                outputVector[i] += centre[i] * 1e-9;
+    }
+
+    private static void benchmarkKernelAccumulation(double[][] centres, double[] outputVector) {
+        for (double[] centre : centres)
+            accumulateWeighted(1e-9, centre, outputVector);
+    }
+
+    private static void benchmarkScalarUpdate(double[] input, double[][] centres) {
+        for (double[] centre : centres)
+            for (int i = 0; i < centre.length; i++)
+                centre[i] += 1e-9 * (input[i] - centre[i]);
+    }
+
+    private static void benchmarkKernelUpdate(double[] input, double[][] centres) {
+        for (double[] centre : centres)
+            updateCentre(1e-9, input, centre);
+    }
+
+}
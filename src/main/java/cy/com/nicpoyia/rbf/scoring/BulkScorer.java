@@ -0,0 +1,275 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.NormalizationTransform;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Class responsible for scoring arbitrarily large files of compounds, one
+ * "compoundId,value1,...,valueN" line per compound, through a model. Three
+ * pipelined stages overlap I/O and computation: a reader thread parses batches
+ * of lines, a pool of threads normalizes and scores the batches, and the
+ * calling thread writes the scored batches in input order. The stages are
+ * connected by a bounded queue of pending batches, so memory stays flat
+ * however large the file is. An optional inference cache answers duplicate
+ * compounds without scoring them again.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class BulkScorer {
+    // Model used for scoring
+    private final RBFModel model;
+    // Number of compounds per batch
+    private final int batchSize;
+    // Number of scoring threads
+    private final int numThreads;
+    // Maximum number of batches between the reader and the writer
+    private final int maxPendingBatches;
+    // Cache of scoring results, or null
+    private final InferenceCache inferenceCache;
+
+    /**
+     * Constructs a bulk scorer. Compound values are raw attribute values if the
+     * model has a normalization transform, normalized ones otherwise.
+     *
+     * @param model      Model used for scoring
+     * @param batchSize  Number of compounds per batch
+     * @param numThreads Number of scoring threads
+     */
+    public BulkScorer(RBFModel model, int batchSize, int numThreads) {
+        this(model, batchSize, numThreads, null);
+    }
+
+    /**
+     * Constructs a bulk scorer that looks compounds up in an inference cache
+     * before scoring them.
+     *
+     * @param model          Model used for scoring
+     * @param batchSize      Number of compounds per batch
+     * @param numThreads     Number of scoring threads
+     * @param inferenceCache Cache of scoring results, or null
+     */
+    public BulkScorer(RBFModel model, int batchSize, int numThreads, InferenceCache inferenceCache) {
+        if ((batchSize < 1) || (numThreads < 1))
+            throw new IllegalArgumentException("batchSize and numThreads should be positive");
+        this.model = model;
+        this.batchSize = batchSize;
+        this.numThreads = numThreads;
+        this.maxPendingBatches = 2 * numThreads;
+        this.inferenceCache = inferenceCache;
+    }
+
+    /**
+     * Scores all compounds of a reader, writing one "compoundId,output1,..."
+     * line per compound in input order.
+     *
+     * @param compoundsReader Compounds to score
+     * @param outputWriter    Writer of the scored compounds
+     * @return Number of compounds scored
+     * @throws IOException If reading or writing failed, or a line is invalid
+     */
+    public long score(final BufferedReader compoundsReader, Writer outputWriter) throws IOException {
+        final ExecutorService scoringExecutor = Executors.newFixedThreadPool(numThreads);
+        // Scored batches in input order, a null batch marks the end of the input
+        final ArrayBlockingQueue<Future<ScoredBatch>> pendingBatches =
+                new ArrayBlockingQueue<Future<ScoredBatch>>(maxPendingBatches);
+        Thread readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readBatches(compoundsReader, scoringExecutor, pendingBatches);
+            }
+        }, "rbf-bulk-reader");
+        readerThread.start();
+        long numOfCompounds = 0;
+        try {
+            while (true) {
+                ScoredBatch scoredBatch = pendingBatches.take().get();
+                if (scoredBatch == null)
+                    break;
+                outputWriter.write(scoredBatch.outputLines);
+                numOfCompounds += scoredBatch.numOfCompounds;
+            }
+            outputWriter.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scoring");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Error while scoring (" + e.getCause().getMessage() + ")");
+        } finally {
+            // Release a reader blocked on a full queue and stop pending scoring
+            readerThread.interrupt();
+            scoringExecutor.shutdownNow();
+        }
+        return numOfCompounds;
+    }
+
+    /**
+     * Reader stage: parses batches of lines and submits them for scoring,
+     * queueing the scoring results in input order.
+     *
+     * @param compoundsReader Compounds to score
+     * @param scoringExecutor Scoring threads
+     * @param pendingBatches  Scoring results in input order
+     */
+    private void readBatches(BufferedReader compoundsReader, ExecutorService scoringExecutor,
+                             ArrayBlockingQueue<Future<ScoredBatch>> pendingBatches) {
+        try {
+            long lineNumber = 0;
+            String[] compoundIds = new String[batchSize];
+            double[][] inputs = new double[batchSize][];
+            int batchCompounds = 0;
+            String nextLine;
+            while ((nextLine = compoundsReader.readLine()) != null) {
+                lineNumber++;
+                if (nextLine.trim().isEmpty())
+                    continue;
+                int idEnd = nextLine.indexOf(',');
+                if (idEnd < 0)
+                    throw new IOException("Invalid compound line " + lineNumber + ": " + nextLine);
+                compoundIds[batchCompounds] = nextLine.substring(0, idEnd);
+                try {
+                    inputs[batchCompounds] = parseValues(nextLine, idEnd + 1);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid compound line " + lineNumber + " (" + e.getMessage() + ")");
+                }
+                batchCompounds++;
+                if (batchCompounds == batchSize) {
+                    pendingBatches.put(scoringExecutor.submit(new BatchScoring(compoundIds, inputs)));
+                    compoundIds = new String[batchSize];
+                    inputs = new double[batchSize][];
+                    batchCompounds = 0;
+                }
+            }
+            if (batchCompounds > 0) {
+                String[] lastCompoundIds = new String[batchCompounds];
+                double[][] lastInputs = new double[batchCompounds][];
+                System.arraycopy(compoundIds, 0, lastCompoundIds, 0, batchCompounds);
+                System.arraycopy(inputs, 0, lastInputs, 0, batchCompounds);
+                pendingBatches.put(scoringExecutor.submit(new BatchScoring(lastCompoundIds, lastInputs)));
+            }
+            pendingBatches.put(CompletableFuture.completedFuture((ScoredBatch) null));
+        } catch (InterruptedException e) {
+            // The writer has stopped
+        } catch (RejectedExecutionException e) {
+            // The writer has stopped
+        } catch (IOException e) {
+            CompletableFuture<ScoredBatch> failure = new CompletableFuture<ScoredBatch>();
+            failure.completeExceptionally(e);
+            try {
+                pendingBatches.put(failure);
+            } catch (InterruptedException interrupted) {
+                // The writer has stopped
+            }
+        }
+    }
+
+    /**
+     * Parses the comma separated values of a compound line.
+     *
+     * @param line        Compound line
+     * @param valuesStart Index of the first value
+     * @return Parsed values
+     * @throws IllegalArgumentException If a value is not a number or the number of values is wrong
+     */
+    private double[] parseValues(String line, int valuesStart) {
+        // Raw attribute values are projected after normalization, so there may be more of them than model inputs
+        NormalizationTransform normalizationTransform = model.getNormalizationTransform();
+        int numOfValues = normalizationTransform != null ? normalizationTransform.getNumOfAttributes()
+                : model.getNumInputNeurons();
+        double[] values = new double[numOfValues];
+        int valueStart = valuesStart;
+        for (int i = 0; i < numOfValues; i++) {
+            if (valueStart > line.length())
+                throw new IllegalArgumentException(numOfValues + " values are required");
+            int valueEnd = line.indexOf(',', valueStart);
+            if (valueEnd < 0)
+                valueEnd = line.length();
+            String valueString = line.substring(valueStart, valueEnd).trim();
+            try {
+                values[i] = Double.parseDouble(valueString);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value: " + valueString);
+            }
+            valueStart = valueEnd + 1;
+        }
+        if (valueStart <= line.length())
+            throw new IllegalArgumentException(numOfValues + " values are required");
+        return values;
+    }
+
+    /**
+     * Class representing the scoring stage of a batch: normalization of the
+     * raw values, one batched forward pass and formatting of the output lines.
+     */
+    private class BatchScoring implements Callable<ScoredBatch> {
+        // Compound IDs
+        private final String[] compoundIds;
+        // Compound values
+        private final double[][] inputs;
+
+        /**
+         * Constructs the scoring of a batch.
+         *
+         * @param compoundIds Compound IDs
+         * @param inputs      Compound values, replaced by the normalized (and projected) ones
+         */
+        BatchScoring(String[] compoundIds, double[][] inputs) {
+            this.compoundIds = compoundIds;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public ScoredBatch call() {
+            NormalizationTransform normalizationTransform = model.getNormalizationTransform();
+            if (normalizationTransform != null) {
+                for (int i = 0; i < inputs.length; i++) {
+                    normalizationTransform.normalizeInPlace(inputs[i]);
+                    inputs[i] = normalizationTransform.project(inputs[i]);
+                }
+            }
+            double[][] outputs = inferenceCache != null ? inferenceCache.getOutputVectors(model, inputs)
+                    : model.getOutputVectors(inputs);
+            StringBuilder outputLines = new StringBuilder(inputs.length * 32);
+            for (int i = 0; i < inputs.length; i++) {
+                outputLines.append(compoundIds[i]).append(',');
+                ScoringServer.appendVector(outputLines, outputs[i]);
+            }
+            return new ScoredBatch(inputs.length, outputLines.toString());
+        }
+    }
+
+    /**
+     * Class representing a scored batch, ready to be written.
+     */
+    private static class ScoredBatch {
+        // Number of compounds in the batch
+        final int numOfCompounds;
+        // Formatted output lines
+        final String outputLines;
+
+        /**
+         * Constructs a scored batch.
+         *
+         * @param numOfCompounds Number of compounds in the batch
+         * @param outputLines    Formatted output lines
+         */
+        ScoredBatch(int numOfCompounds, String outputLines) {
+            this.numOfCompounds = numOfCompounds;
+            this.outputLines = outputLines;
+        }
+    }
+
+}
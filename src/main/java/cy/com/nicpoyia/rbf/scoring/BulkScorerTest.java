@@ -0,0 +1,153 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.NormalizationTransform;
+import cy.com.nicpoyia.rbf.compound_activity_data.PrincipalComponents;
+import cy.com.nicpoyia.rbf.network.BasisFunction;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+/**
+ * Test Driver class for BulkScorer class. Scores random raw compounds through
+ * a random model with a normalization transform, comparing each output line
+ * with the model's own output, and checks that an invalid line is reported.
+ * Then scores raw compounds through a model of principal components, which
+ * takes more raw attribute values than it has inputs.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class BulkScorerTest {
+    // Test sizes
+    private static final int numOfCompounds = 20000;
+    private static final int batchSize = 256;
+    private static final int numThreads = 4;
+    // Sizes of the principal components model
+    private static final int numOfPcaAttributes = 6;
+    private static final int numOfPcaComponents = 2;
+    private static final int numOfPcaCompounds = 1000;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Random randomGenerator = new Random(35);
+        RBFModel randomModel = ScoringServerTest.createRandomModel(randomGenerator);
+        int numInputNeurons = randomModel.getNumInputNeurons();
+        // Attach a random normalization transform to the model's parameters
+        double[] centres = new double[randomModel.getNumHiddenNodes() * numInputNeurons];
+        double[] sigmas = new double[randomModel.getNumHiddenNodes()];
+        double[] coefficients = new double[randomModel.getNumHiddenNodes()];
+        for (int node = 0; node < sigmas.length; node++) {
+            System.arraycopy(randomModel.getCentre(node), 0, centres, node * numInputNeurons, numInputNeurons);
+            sigmas[node] = randomModel.getSigma(node);
+            coefficients[node] = randomModel.getCoefficient(node, 0);
+        }
+        double[] minValues = new double[numInputNeurons];
+        double[] ranges = new double[numInputNeurons];
+        for (int i = 0; i < numInputNeurons; i++) {
+            minValues[i] = 100.0 * randomGenerator.nextDouble() - 50.0;
+            ranges[i] = 1.0 + 10.0 * randomGenerator.nextDouble();
+        }
+        RBFModel model = new RBFModel(numInputNeurons, 1, randomModel.getBasisFunction(), centres, null, sigmas,
+                coefficients, new NormalizationTransform(minValues, ranges));
+        // Generate raw compounds
+        double[][] rawInputs = new double[numOfCompounds][numInputNeurons];
+        StringBuilder compounds = new StringBuilder();
+        for (int c = 0; c < numOfCompounds; c++) {
+            compounds.append("compound").append(c).append(',');
+            for (int i = 0; i < numInputNeurons; i++)
+                rawInputs[c][i] = minValues[i] + ranges[i] * randomGenerator.nextDouble();
+            ScoringServer.appendVector(compounds, rawInputs[c]);
+        }
+        // Score and compare
+        StringWriter output = new StringWriter();
+        long startTime = System.currentTimeMillis();
+        long numOfScored = new BulkScorer(model, batchSize, numThreads)
+                .score(new BufferedReader(new StringReader(compounds.toString())), output);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        String[] outputLines = output.toString().split("\n");
+        int mismatches = 0;
+        for (int c = 0; c < numOfCompounds; c++) {
+            String expectedLine = "compound" + c + "," + model.getRawOutputVector(rawInputs[c])[0];
+            if ((c >= outputLines.length) || !outputLines[c].equals(expectedLine))
+                mismatches++;
+        }
+        System.out.println(numOfScored + " compounds scored in " + elapsedTime + " ms");
+        System.out.println("Mismatching output lines: " + mismatches);
+        // An invalid line fails the scoring
+        compounds.append("invalid,1,2\n");
+        try {
+            new BulkScorer(model, batchSize, numThreads)
+                    .score(new BufferedReader(new StringReader(compounds.toString())), new StringWriter());
+            System.out.println("Invalid line not reported");
+        } catch (IOException e) {
+            System.out.println("Invalid line reported: " + e.getMessage());
+        }
+        // Raw compounds of a principal components model
+        RBFModel pcaModel = createPcaModel(randomGenerator);
+        double[][] pcaRawInputs = new double[numOfPcaCompounds][numOfPcaAttributes];
+        StringBuilder pcaCompounds = new StringBuilder();
+        for (int c = 0; c < numOfPcaCompounds; c++) {
+            pcaCompounds.append("compound").append(c).append(',');
+            for (int i = 0; i < numOfPcaAttributes; i++)
+                pcaRawInputs[c][i] = 20.0 * randomGenerator.nextDouble() - 10.0;
+            ScoringServer.appendVector(pcaCompounds, pcaRawInputs[c]);
+        }
+        StringWriter pcaOutput = new StringWriter();
+        new BulkScorer(pcaModel, batchSize, numThreads)
+                .score(new BufferedReader(new StringReader(pcaCompounds.toString())), pcaOutput);
+        String[] pcaOutputLines = pcaOutput.toString().split("\n");
+        int pcaMismatches = 0;
+        for (int c = 0; c < numOfPcaCompounds; c++) {
+            String expectedLine = "compound" + c + "," + pcaModel.getRawOutputVector(pcaRawInputs[c])[0];
+            if ((c >= pcaOutputLines.length) || !pcaOutputLines[c].equals(expectedLine))
+                pcaMismatches++;
+        }
+        System.out.println("Principal components model (" + numOfPcaAttributes + " attributes, "
+                + numOfPcaComponents + " components), mismatching output lines: " + pcaMismatches);
+    }
+
+    /**
+     * Creates a random model of principal components of raw attribute values.
+     *
+     * @param randomGenerator Random generator
+     * @return Random model with a normalization transform projecting onto principal components
+     */
+    private static RBFModel createPcaModel(Random randomGenerator) {
+        double[] minValues = new double[numOfPcaAttributes];
+        double[] ranges = new double[numOfPcaAttributes];
+        double[] means = new double[numOfPcaAttributes];
+        for (int i = 0; i < numOfPcaAttributes; i++) {
+            minValues[i] = -10.0;
+            ranges[i] = 20.0;
+            means[i] = 0.5;
+        }
+        // Two orthonormal components
+        double[] components = new double[numOfPcaComponents * numOfPcaAttributes];
+        for (int i = 0; i < numOfPcaAttributes; i++) {
+            components[i] = 1.0 / Math.sqrt(numOfPcaAttributes);
+            components[numOfPcaAttributes + i] = (i % 2 == 0 ? 1.0 : -1.0) / Math.sqrt(numOfPcaAttributes);
+        }
+        PrincipalComponents principalComponents = new PrincipalComponents(means, components,
+                new double[]{2.0, 1.0});
+        int numOfNodes = 5;
+        double[] centres = new double[numOfNodes * numOfPcaComponents];
+        double[] sigmas = new double[numOfNodes];
+        double[] coefficients = new double[numOfNodes];
+        for (int i = 0; i < centres.length; i++)
+            centres[i] = randomGenerator.nextDouble() - 0.5;
+        for (int i = 0; i < numOfNodes; i++) {
+            sigmas[i] = 0.5 + randomGenerator.nextDouble();
+            coefficients[i] = 2.0 * randomGenerator.nextDouble() - 1.0;
+        }
+        return new RBFModel(numOfPcaComponents, 1, BasisFunction.GAUSSIAN, centres, null, sigmas, coefficients,
+                new NormalizationTransform(minValues, ranges, principalComponents));
+    }
+
+}
@@ -0,0 +1,231 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.network.RBFModel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Class representing a bounded cache of scoring results, so that duplicate
+ * compounds skip the forward pass over every hidden node. Results are keyed by
+ * the model and the normalized input vector, optionally quantized to a
+ * resolution, in which case inputs falling into the same cell share the output
+ * of the first one scored. Keys are compared by their quantized values, not
+ * only by their hash, and the least recently used results are evicted once the
+ * cache is full. Results of a model are dropped when a new model snapshot is
+ * published in its place, and results of the model still being scored at that
+ * time are not added afterwards. A lookup costs a single pass over the input values,
+ * so the cache pays off once models have more than a few hidden nodes.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class InferenceCache {
+    // Maximum number of cached results
+    private final int maxEntries;
+    // Inverse quantization resolution of the input values (0: exact values)
+    private final double inverseResolution;
+    // Cached output vectors, least recently used first (guarded by itself)
+    private final LinkedHashMap<CacheKey, double[]> cachedOutputs;
+    // Models whose results have been dropped, held weakly (guarded by cachedOutputs)
+    private final Set<RBFModel> invalidatedModels = Collections.newSetFromMap(new WeakHashMap<RBFModel, Boolean>());
+    // Counters (guarded by cachedOutputs)
+    private long numOfHits;
+    private long numOfMisses;
+    private long numOfEvictions;
+    private long numOfInvalidations;
+
+    /**
+     * Constructs an inference cache.
+     *
+     * @param maxEntries Maximum number of cached results
+     * @param resolution Quantization resolution of the normalized input values (0: exact values)
+     */
+    public InferenceCache(int maxEntries, double resolution) {
+        if ((maxEntries < 1) || !(resolution >= 0.0))
+            throw new IllegalArgumentException("maxEntries should be positive and resolution non-negative");
+        this.maxEntries = maxEntries;
+        this.inverseResolution = resolution > 0.0 ? 1.0 / resolution : 0.0;
+        this.cachedOutputs = new LinkedHashMap<CacheKey, double[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, double[]> eldest) {
+                if (size() <= InferenceCache.this.maxEntries)
+                    return false;
+                numOfEvictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Scores a batch of normalized input vectors, looking each one up first
+     * and scoring the missing ones with a single batched forward pass.
+     *
+     * @param model  Model used for scoring
+     * @param inputs Normalized input vectors
+     * @return Output vectors, one per input
+     */
+    public double[][] getOutputVectors(RBFModel model, double[][] inputs) {
+        double[][] outputs = new double[inputs.length][];
+        CacheKey[] keys = new CacheKey[inputs.length];
+        int numOfMissingInputs = 0;
+        for (int i = 0; i < inputs.length; i++)
+            keys[i] = createKey(model, inputs[i]);
+        synchronized (cachedOutputs) {
+            for (int i = 0; i < inputs.length; i++) {
+                double[] cachedOutput = cachedOutputs.get(keys[i]);
+                if (cachedOutput != null)
+                    outputs[i] = cachedOutput.clone();
+                else
+                    numOfMissingInputs++;
+            }
+            numOfHits += inputs.length - numOfMissingInputs;
+            numOfMisses += numOfMissingInputs;
+        }
+        if (numOfMissingInputs == 0)
+            return outputs;
+        // Score the missing inputs outside the lock
+        double[][] missingInputs = new double[numOfMissingInputs][];
+        for (int i = 0, j = 0; i < inputs.length; i++)
+            if (outputs[i] == null)
+                missingInputs[j++] = inputs[i];
+        double[][] missingOutputs = model.getOutputVectors(missingInputs);
+        synchronized (cachedOutputs) {
+            // A model invalidated meanwhile must not get its results back
+            boolean invalidated = invalidatedModels.contains(model);
+            for (int i = 0, j = 0; i < inputs.length; i++) {
+                if (outputs[i] != null)
+                    continue;
+                outputs[i] = missingOutputs[j++];
+                if (!invalidated)
+                    cachedOutputs.put(keys[i], outputs[i].clone());
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Drops the cached results of a model, e.g. once a new model snapshot has
+     * been published in its place. Results of the model are not cached any
+     * more, including those of batches being scored at the time.
+     *
+     * @param model Model whose results are dropped
+     */
+    public void invalidate(RBFModel model) {
+        synchronized (cachedOutputs) {
+            invalidatedModels.add(model);
+            Iterator<CacheKey> keys = cachedOutputs.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().model == model) {
+                    keys.remove();
+                    numOfInvalidations++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of hits getter method.
+     *
+     * @return Number of inputs answered from the cache
+     */
+    public long getNumOfHits() {
+        synchronized (cachedOutputs) {
+            return numOfHits;
+        }
+    }
+
+    /**
+     * Number of misses getter method.
+     *
+     * @return Number of inputs scored by the model
+     */
+    public long getNumOfMisses() {
+        synchronized (cachedOutputs) {
+            return numOfMisses;
+        }
+    }
+
+    /**
+     * Number of entries getter method.
+     *
+     * @return Number of cached results
+     */
+    public int getNumOfEntries() {
+        synchronized (cachedOutputs) {
+            return cachedOutputs.size();
+        }
+    }
+
+    /**
+     * Generates the cache counters report, one "name value" pair per line.
+     *
+     * @return Counters report
+     */
+    public String getReport() {
+        synchronized (cachedOutputs) {
+            return "inferenceCacheEntries " + cachedOutputs.size() + "\n" + "inferenceCacheHits " + numOfHits + "\n"
+                    + "inferenceCacheMisses " + numOfMisses + "\n" + "inferenceCacheEvictions " + numOfEvictions
+                    + "\n" + "inferenceCacheInvalidations " + numOfInvalidations + "\n";
+        }
+    }
+
+    /**
+     * Creates the cache key of an input vector, quantizing its values to the
+     * resolution.
+     *
+     * @param model Model used for scoring
+     * @param input Normalized input vector
+     * @return Cache key
+     */
+    private CacheKey createKey(RBFModel model, double[] input) {
+        long[] values = new long[input.length];
+        for (int i = 0; i < input.length; i++)
+            values[i] = inverseResolution > 0.0 ? Math.round(input[i] * inverseResolution)
+                    : Double.doubleToLongBits(input[i]);
+        return new CacheKey(model, values);
+    }
+
+    /**
+     * Class representing the key of a cached result: a model and a quantized
+     * input vector, with its hash calculated once.
+     */
+    private static class CacheKey {
+        // Model used for scoring
+        final RBFModel model;
+        // Quantized input values
+        final long[] values;
+        // Hash of the model and values
+        final int hash;
+
+        /**
+         * Constructs a cache key.
+         *
+         * @param model  Model used for scoring
+         * @param values Quantized input values
+         */
+        CacheKey(RBFModel model, long[] values) {
+            this.model = model;
+            this.values = values;
+            this.hash = 31 * System.identityHashCode(model) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CacheKey))
+                return false;
+            CacheKey otherKey = (CacheKey) other;
+            return (hash == otherKey.hash) && (model == otherKey.model) && Arrays.equals(values, otherKey.values);
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.network.BasisFunction;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+
+import java.util.Random;
+
+/**
+ * Test Driver class for InferenceCache class. Scores a workload of repeated
+ * inputs with and without the cache, through a cache too small to hold all
+ * inputs, scores perturbed inputs through a quantizing cache, and checks that
+ * publishing a new model to a micro-batcher drops the previous model's
+ * results.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class InferenceCacheTest {
+    // Test sizes
+    private static final int numInputNeurons = 53;
+    private static final int numHiddenNodes = 200;
+    private static final int numOfDistinctInputs = 1000;
+    private static final int numOfScoredInputs = 200000;
+    private static final int batchSize = 64;
+    private static final int maxEntries = 4096;
+    // Quantization resolution of the perturbed inputs
+    private static final double resolution = 1e-3;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Random randomGenerator = new Random(37);
+        RBFModel model = createRandomModel(randomGenerator);
+        // Distinct inputs lie on the quantization grid, so that small perturbations stay within their cells
+        double[][] distinctInputs = new double[numOfDistinctInputs][numInputNeurons];
+        for (double[] input : distinctInputs)
+            for (int i = 0; i < numInputNeurons; i++)
+                input[i] = Math.round(randomGenerator.nextDouble() / resolution) * resolution;
+        double[][][] batches = new double[numOfScoredInputs / batchSize][batchSize][];
+        for (double[][] batch : batches)
+            for (int i = 0; i < batchSize; i++)
+                batch[i] = distinctInputs[randomGenerator.nextInt(numOfDistinctInputs)];
+        // Uncached and cached scoring of the same workload, after warming both up
+        for (int b = 0; b < batches.length / 10; b++) {
+            model.getOutputVectors(batches[b]);
+            new InferenceCache(maxEntries, 0.0).getOutputVectors(model, batches[b]);
+        }
+        long startTime = System.nanoTime();
+        double[][][] expectedOutputs = new double[batches.length][][];
+        for (int b = 0; b < batches.length; b++)
+            expectedOutputs[b] = model.getOutputVectors(batches[b]);
+        long uncachedMillis = (System.nanoTime() - startTime) / 1000000;
+        InferenceCache cache = new InferenceCache(maxEntries, 0.0);
+        startTime = System.nanoTime();
+        int mismatches = 0;
+        for (int b = 0; b < batches.length; b++) {
+            double[][] outputs = cache.getOutputVectors(model, batches[b]);
+            for (int i = 0; i < batchSize; i++)
+                if (outputs[i][0] != expectedOutputs[b][i][0])
+                    mismatches++;
+        }
+        long cachedMillis = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("Uncached: " + uncachedMillis + " ms, cached: " + cachedMillis + " ms, mismatching outputs: "
+                + mismatches);
+        System.out.print(cache.getReport());
+        // A cache holding a tenth of the inputs evicts the least recently used ones
+        InferenceCache smallCache = new InferenceCache(numOfDistinctInputs / 10, 0.0);
+        for (double[][] batch : batches)
+            smallCache.getOutputVectors(model, batch);
+        System.out.print(smallCache.getReport());
+        // Perturbed inputs share the results of their quantization cells
+        InferenceCache quantizingCache = new InferenceCache(maxEntries, resolution);
+        quantizingCache.getOutputVectors(model, distinctInputs);
+        double[][] perturbedInputs = new double[numOfDistinctInputs][numInputNeurons];
+        for (int c = 0; c < numOfDistinctInputs; c++)
+            for (int i = 0; i < numInputNeurons; i++)
+                perturbedInputs[c][i] = distinctInputs[c][i] + 0.4 * resolution * (2.0 * randomGenerator.nextDouble()
+                        - 1.0);
+        double[][] perturbedOutputs = quantizingCache.getOutputVectors(model, perturbedInputs);
+        double maxDeviation = 0.0;
+        for (int c = 0; c < numOfDistinctInputs; c++)
+            maxDeviation = Math.max(maxDeviation,
+                    Math.abs(perturbedOutputs[c][0] - model.getOutputVector(perturbedInputs[c])[0]));
+        System.out.println("Quantized hits: " + quantizingCache.getNumOfHits() + " of " + numOfDistinctInputs
+                + ", maximum output deviation " + maxDeviation);
+        // Publishing a new model drops the previous model's results
+        RBFModel newModel = createRandomModel(randomGenerator);
+        MicroBatcher batcher = new MicroBatcher(model, 100, batchSize, new LatencyStats(),
+                new InferenceCache(maxEntries, 0.0));
+        batcher.start();
+        try {
+            batcher.submit(distinctInputs[0]).get();
+            batcher.submit(distinctInputs[0]).get();
+            batcher.setModel(newModel);
+            double publishedOutput = batcher.submit(distinctInputs[0]).get()[0];
+            System.out.println("Output after publishing matches the new model: "
+                    + (publishedOutput == newModel.getOutputVector(distinctInputs[0])[0]));
+            System.out.print(batcher.getInferenceCache().getReport());
+        } finally {
+            batcher.stop();
+        }
+    }
+
+    /**
+     * Creates a random model of normalized inputs.
+     *
+     * @param randomGenerator Random generator
+     * @return Random model
+     */
+    private static RBFModel createRandomModel(Random randomGenerator) {
+        double[] centres = new double[numHiddenNodes * numInputNeurons];
+        double[] sigmas = new double[numHiddenNodes];
+        double[] coefficients = new double[numHiddenNodes];
+        for (int i = 0; i < centres.length; i++)
+            centres[i] = randomGenerator.nextDouble();
+        for (int i = 0; i < numHiddenNodes; i++) {
+            sigmas[i] = 2.0 + randomGenerator.nextDouble();
+            coefficients[i] = 2.0 * randomGenerator.nextDouble() - 1.0;
+        }
+        return new RBFModel(numInputNeurons, 1, BasisFunction.GAUSSIAN, centres, null, sigmas, coefficients);
+    }
+
+}
@@ -0,0 +1,87 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Class collecting scoring latency and throughput counters. Latencies of the
+ * most recent requests are kept in a fixed-size ring, from which percentiles
+ * are calculated on demand.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class LatencyStats {
+    // Number of most recent latencies kept
+    private static final int windowSize = 8192;
+    // Ring of the most recent latencies (ns)
+    private final long[] latencyWindow = new long[windowSize];
+    // Creation time (ns)
+    private final long startTime = System.nanoTime();
+    // Counters
+    private long numOfRequests;
+    private long numOfBatches;
+    private long numOfBatchedInputs;
+
+    /**
+     * Records a completed request.
+     *
+     * @param latencyNanos Request latency (ns)
+     */
+    public synchronized void requestCompleted(long latencyNanos) {
+        latencyWindow[(int) (numOfRequests % windowSize)] = latencyNanos;
+        numOfRequests++;
+    }
+
+    /**
+     * Records an evaluated batch.
+     *
+     * @param batchSize Number of inputs in the batch
+     */
+    public synchronized void batchEvaluated(int batchSize) {
+        numOfBatches++;
+        numOfBatchedInputs += batchSize;
+    }
+
+    /**
+     * Number of requests getter method.
+     *
+     * @return Number of completed requests
+     */
+    public synchronized long getNumOfRequests() {
+        return numOfRequests;
+    }
+
+    /**
+     * Calculates a latency percentile over the most recent requests.
+     *
+     * @param percentile Percentile, between 0 and 100
+     * @return Latency (ns), or 0 if no request has completed
+     */
+    public synchronized long getLatencyPercentile(double percentile) {
+        int numOfLatencies = (int) Math.min(numOfRequests, windowSize);
+        if (numOfLatencies == 0)
+            return 0;
+        long[] latencies = Arrays.copyOf(latencyWindow, numOfLatencies);
+        Arrays.sort(latencies);
+        int rank = (int) Math.ceil(percentile / 100.0 * numOfLatencies) - 1;
+        return latencies[Math.max(0, Math.min(numOfLatencies - 1, rank))];
+    }
+
+    /**
+     * Generates the counters report, one "name value" pair per line.
+     *
+     * @return Counters report
+     */
+    public synchronized String getReport() {
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append("requests ").append(numOfRequests).append('\n');
+        report.append("batches ").append(numOfBatches).append('\n');
+        report.append("meanBatchSize ").append(numOfBatches == 0 ? 0.0 : (double) numOfBatchedInputs / numOfBatches)
+                .append('\n');
+        report.append("throughputPerSecond ").append(numOfRequests / elapsedSeconds).append('\n');
+        report.append("latencyP50Micros ").append(getLatencyPercentile(50) / 1000).append('\n');
+        report.append("latencyP99Micros ").append(getLatencyPercentile(99) / 1000).append('\n');
+        return report.toString();
+    }
+
+}
@@ -0,0 +1,249 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.network.RBFModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class responsible for coalescing concurrently submitted inputs into
+ * micro-batches. A dispatcher thread waits for a first input, collects further
+ * inputs for at most the latency window (or until the batch is full) and
+ * scores the whole batch with one batched forward pass per model. With an
+ * inference cache, only the inputs missing from the cache are scored.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class MicroBatcher {
+    // Inputs waiting to be scored
+    private final LinkedBlockingQueue<PendingInput> pendingInputs = new LinkedBlockingQueue<PendingInput>();
+    // Model used for scoring, replaceable while running
+    private volatile RBFModel model;
+    // Maximum time an input waits for other inputs to join its batch (ns)
+    private final long latencyWindowNanos;
+    // Maximum number of inputs per batch
+    private final int maxBatchSize;
+    // Counters
+    private final LatencyStats stats;
+    // Cache of scoring results, or null
+    private final InferenceCache inferenceCache;
+    // Dispatcher thread
+    private final Thread dispatcherThread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a micro-batcher.
+     *
+     * @param model               Model used for scoring
+     * @param latencyWindowMicros Maximum time an input waits for other inputs (us)
+     * @param maxBatchSize        Maximum number of inputs per batch
+     * @param stats               Counters updated for each batch
+     */
+    public MicroBatcher(RBFModel model, long latencyWindowMicros, int maxBatchSize, LatencyStats stats) {
+        this(model, latencyWindowMicros, maxBatchSize, stats, null);
+    }
+
+    /**
+     * Constructs a micro-batcher that looks inputs up in an inference cache
+     * before scoring them.
+     *
+     * @param model               Model used for scoring
+     * @param latencyWindowMicros Maximum time an input waits for other inputs (us)
+     * @param maxBatchSize        Maximum number of inputs per batch
+     * @param stats               Counters updated for each batch
+     * @param inferenceCache      Cache of scoring results, or null
+     */
+    public MicroBatcher(RBFModel model, long latencyWindowMicros, int maxBatchSize, LatencyStats stats,
+                        InferenceCache inferenceCache) {
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize should be positive");
+        this.model = model;
+        this.latencyWindowNanos = TimeUnit.MICROSECONDS.toNanos(latencyWindowMicros);
+        this.maxBatchSize = maxBatchSize;
+        this.stats = stats;
+        this.inferenceCache = inferenceCache;
+        this.dispatcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatchBatches();
+            }
+        }, "rbf-micro-batcher");
+        this.dispatcherThread.setDaemon(true);
+    }
+
+    /**
+     * Model getter method.
+     *
+     * @return Model used for scoring
+     */
+    public RBFModel getModel() {
+        return model;
+    }
+
+    /**
+     * Inference cache getter method.
+     *
+     * @return Cache of scoring results, or null
+     */
+    public InferenceCache getInferenceCache() {
+        return inferenceCache;
+    }
+
+    /**
+     * Replaces the model used for scoring. Batches already being scored finish
+     * with the previous model, whose cached results are dropped.
+     *
+     * @param model New model
+     */
+    public void setModel(RBFModel model) {
+        RBFModel previousModel = this.model;
+        this.model = model;
+        if ((inferenceCache != null) && (previousModel != null) && (previousModel != model))
+            inferenceCache.invalidate(previousModel);
+    }
+
+    /**
+     * Starts the dispatcher thread.
+     */
+    public void start() {
+        running = true;
+        dispatcherThread.start();
+    }
+
+    /**
+     * Stops the dispatcher thread, failing inputs that have not been scored.
+     */
+    public void stop() {
+        running = false;
+        dispatcherThread.interrupt();
+        try {
+            dispatcherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingInput> unscoredInputs = new ArrayList<PendingInput>();
+        pendingInputs.drainTo(unscoredInputs);
+        for (PendingInput unscoredInput : unscoredInputs)
+            unscoredInput.result.completeExceptionally(new IllegalStateException("Scoring stopped"));
+    }
+
+    /**
+     * Submits an input to be scored in the next batch.
+     *
+     * @param input Input vector
+     * @return Future output vector
+     */
+    public Future<double[]> submit(double[] input) {
+        return submit(model, input);
+    }
+
+    /**
+     * Submits an input to be scored by a specific model in the next batch.
+     *
+     * @param model Model used for scoring the input
+     * @param input Input vector
+     * @return Future output vector
+     */
+    public Future<double[]> submit(RBFModel model, double[] input) {
+        if (model == null)
+            throw new IllegalStateException("No model to score with");
+        if (input.length != model.getNumInputNeurons())
+            throw new IllegalArgumentException("Input vector must have " + model.getNumInputNeurons() + " values");
+        if (!running)
+            throw new IllegalStateException("Scoring is not running");
+        PendingInput pendingInput = new PendingInput(model, input);
+        pendingInputs.add(pendingInput);
+        return pendingInput.result;
+    }
+
+    /**
+     * Collects and scores batches until stopped.
+     */
+    private void dispatchBatches() {
+        List<PendingInput> batch = new ArrayList<PendingInput>(maxBatchSize);
+        while (running) {
+            try {
+                PendingInput firstInput = pendingInputs.take();
+                batch.add(firstInput);
+                long deadline = System.nanoTime() + latencyWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    PendingInput nextInput = remainingNanos > 0
+                            ? pendingInputs.poll(remainingNanos, TimeUnit.NANOSECONDS) : pendingInputs.poll();
+                    if (nextInput == null)
+                        break;
+                    batch.add(nextInput);
+                }
+            } catch (InterruptedException e) {
+                // Score what has been collected, the loop condition decides whether to go on
+            }
+            if (!batch.isEmpty())
+                scoreBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Scores a batch, one forward pass per distinct model, and completes the
+     * inputs' futures.
+     *
+     * @param batch Inputs to score
+     */
+    private void scoreBatch(List<PendingInput> batch) {
+        stats.batchEvaluated(batch.size());
+        boolean[] scored = new boolean[batch.size()];
+        for (int first = 0; first < batch.size(); first++) {
+            if (scored[first])
+                continue;
+            // Collect the inputs of the first unscored input's model
+            RBFModel batchModel = batch.get(first).model;
+            List<PendingInput> modelBatch = new ArrayList<PendingInput>();
+            for (int i = first; i < batch.size(); i++) {
+                if (!scored[i] && (batch.get(i).model == batchModel)) {
+                    modelBatch.add(batch.get(i));
+                    scored[i] = true;
+                }
+            }
+            double[][] inputs = new double[modelBatch.size()][];
+            for (int i = 0; i < inputs.length; i++)
+                inputs[i] = modelBatch.get(i).input;
+            try {
+                double[][] outputs = inferenceCache != null ? inferenceCache.getOutputVectors(batchModel, inputs)
+                        : batchModel.getOutputVectors(inputs);
+                for (int i = 0; i < outputs.length; i++)
+                    modelBatch.get(i).result.complete(outputs[i]);
+            } catch (RuntimeException e) {
+                for (PendingInput pendingInput : modelBatch)
+                    pendingInput.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Class representing an input waiting to be scored.
+     */
+    private static class PendingInput {
+        // Model used for scoring the input
+        final RBFModel model;
+        // Input vector
+        final double[] input;
+        // Output vector, once scored
+        final CompletableFuture<double[]> result = new CompletableFuture<double[]>();
+
+        /**
+         * Constructs a pending input.
+         *
+         * @param model Model used for scoring the input
+         * @param input Input vector
+         */
+        PendingInput(RBFModel model, double[] input) {
+            this.model = model;
+            this.input = input;
+        }
+    }
+
+}
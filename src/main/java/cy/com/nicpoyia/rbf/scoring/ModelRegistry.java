@@ -0,0 +1,208 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+
+/**
+ * Class representing a registry of models stored in a directory, one binary
+ * model file ("modelId.bin") per model. Models are loaded lazily on first use
+ * and kept in an LRU cache bounded by the total size of their centre matrices.
+ * Concurrent requests for a model that is still loading share a single load.
+ * Results of evicted and invalidated models are dropped from the inference
+ * cache the registry's models are scored through, if any.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ModelRegistry {
+    // Model file extension
+    private static final String modelFileExtension = ".bin";
+    // Allowed model IDs (no path separators)
+    private static final Pattern modelIdPattern = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]*");
+    // Directory containing the model files
+    private final File modelsDirectory;
+    // Maximum total centre matrix bytes of cached models
+    private final long maxCacheBytes;
+    // Cached models, least recently used first (guarded by itself)
+    private final LinkedHashMap<String, RBFModel> cachedModels = new LinkedHashMap<String, RBFModel>(16, 0.75f, true);
+    private long cachedBytes;
+    // Models being loaded
+    private final ConcurrentHashMap<String, FutureTask<RBFModel>> loadingModels =
+            new ConcurrentHashMap<String, FutureTask<RBFModel>>();
+    // Cache of the models' scoring results, or null
+    private final InferenceCache inferenceCache;
+    // Counters (guarded by cachedModels)
+    private long numOfHits;
+    private long numOfMisses;
+    private long numOfLoads;
+    private long numOfEvictions;
+
+    /**
+     * Constructs a model registry.
+     *
+     * @param modelsDirectory Directory containing the model files
+     * @param maxCacheBytes   Maximum total centre matrix bytes of cached models
+     */
+    public ModelRegistry(String modelsDirectory, long maxCacheBytes) {
+        this(modelsDirectory, maxCacheBytes, null);
+    }
+
+    /**
+     * Constructs a model registry whose models are scored through an
+     * inference cache, so that models leaving the registry also leave the
+     * cache instead of being kept alive by their results.
+     *
+     * @param modelsDirectory Directory containing the model files
+     * @param maxCacheBytes   Maximum total centre matrix bytes of cached models
+     * @param inferenceCache  Cache of the models' scoring results, or null
+     */
+    public ModelRegistry(String modelsDirectory, long maxCacheBytes, InferenceCache inferenceCache) {
+        this.modelsDirectory = new File(modelsDirectory);
+        this.maxCacheBytes = maxCacheBytes;
+        this.inferenceCache = inferenceCache;
+    }
+
+    /**
+     * Returns a model, loading it if it is not cached.
+     *
+     * @param modelId Model ID
+     * @return Model
+     * @throws FileNotFoundException If there is no model with this ID
+     * @throws IOException           If the model could not be loaded
+     */
+    public RBFModel getModel(final String modelId) throws IOException {
+        if (!modelIdPattern.matcher(modelId).matches())
+            throw new IllegalArgumentException("Invalid model ID: " + modelId);
+        synchronized (cachedModels) {
+            RBFModel cachedModel = cachedModels.get(modelId);
+            if (cachedModel != null) {
+                numOfHits++;
+                return cachedModel;
+            }
+            numOfMisses++;
+        }
+        // Join the model's load, or start it
+        FutureTask<RBFModel> loadTask = new FutureTask<RBFModel>(new Callable<RBFModel>() {
+            @Override
+            public RBFModel call() throws IOException {
+                return loadModel(modelId);
+            }
+        });
+        FutureTask<RBFModel> runningLoadTask = loadingModels.putIfAbsent(modelId, loadTask);
+        if (runningLoadTask == null) {
+            runningLoadTask = loadTask;
+            loadTask.run();
+        }
+        try {
+            return runningLoadTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading model " + modelId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Error while loading model " + modelId + " (" + e.getCause().getMessage() + ")");
+        }
+    }
+
+    /**
+     * Removes a model from the cache, together with its scoring results, so
+     * that its model file is loaded again on next use.
+     *
+     * @param modelId Model ID
+     */
+    public void invalidate(String modelId) {
+        RBFModel cachedModel;
+        synchronized (cachedModels) {
+            cachedModel = cachedModels.remove(modelId);
+            if (cachedModel != null)
+                cachedBytes -= cachedModel.getCentreMatrixBytes();
+        }
+        if ((cachedModel != null) && (inferenceCache != null))
+            inferenceCache.invalidate(cachedModel);
+    }
+
+    /**
+     * Generates the registry counters report, one "name value" pair per line.
+     *
+     * @return Counters report
+     */
+    public String getReport() {
+        synchronized (cachedModels) {
+            return "registryCachedModels " + cachedModels.size() + "\n" + "registryCachedBytes " + cachedBytes + "\n"
+                    + "registryHits " + numOfHits + "\n" + "registryMisses " + numOfMisses + "\n" + "registryLoads "
+                    + numOfLoads + "\n" + "registryEvictions " + numOfEvictions + "\n";
+        }
+    }
+
+    /**
+     * Number of loads getter method.
+     *
+     * @return Number of model files loaded
+     */
+    public long getNumOfLoads() {
+        synchronized (cachedModels) {
+            return numOfLoads;
+        }
+    }
+
+    /**
+     * Loads a model file and caches the model, evicting the least recently
+     * used models while the cache is over its size bound. Scoring results of
+     * the evicted models are dropped once the registry's lock is released.
+     *
+     * @param modelId Model ID
+     * @return Loaded model
+     * @throws IOException If the model could not be loaded
+     */
+    private RBFModel loadModel(String modelId) throws IOException {
+        try {
+            // A load that completed just before this one started may have cached it already
+            synchronized (cachedModels) {
+                RBFModel cachedModel = cachedModels.get(modelId);
+                if (cachedModel != null)
+                    return cachedModel;
+            }
+            File modelFile = new File(modelsDirectory, modelId + modelFileExtension);
+            if (!modelFile.isFile())
+                throw new FileNotFoundException("Model not found: " + modelId);
+            RBFModel model = RBFModelFile.load(modelFile.getPath());
+            List<RBFModel> evictedModels = new ArrayList<RBFModel>();
+            synchronized (cachedModels) {
+                numOfLoads++;
+                cachedModels.put(modelId, model);
+                cachedBytes += model.getCentreMatrixBytes();
+                Iterator<Map.Entry<String, RBFModel>> leastRecentlyUsed = cachedModels.entrySet().iterator();
+                while ((cachedBytes > maxCacheBytes) && leastRecentlyUsed.hasNext()) {
+                    Map.Entry<String, RBFModel> evictedEntry = leastRecentlyUsed.next();
+                    if (evictedEntry.getKey().equals(modelId))
+                        continue;
+                    cachedBytes -= evictedEntry.getValue().getCentreMatrixBytes();
+                    evictedModels.add(evictedEntry.getValue());
+                    leastRecentlyUsed.remove();
+                    numOfEvictions++;
+                }
+            }
+            if (inferenceCache != null)
+                for (RBFModel evictedModel : evictedModels)
+                    inferenceCache.invalidate(evictedModel);
+            return model;
+        } finally {
+            loadingModels.remove(modelId);
+        }
+    }
+
+}
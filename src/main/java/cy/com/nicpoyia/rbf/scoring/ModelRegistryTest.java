@@ -0,0 +1,121 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test Driver class for ModelRegistry class. Stores random models into a
+ * temporary directory, requests one of them from concurrent threads, cycles
+ * through more models than the cache can hold and checks that the scoring
+ * results of evicted and invalidated models leave an inference cache, also
+ * when a model is evicted while batches of it are being scored.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ModelRegistryTest {
+    // Test sizes
+    private static final int numOfModels = 20;
+    private static final int numOfCachedModels = 5;
+    private static final int numOfConcurrentRequests = 16;
+    private static final int numOfBatchInputs = 64;
+    private static final int numOfBatchesAfterEviction = 10;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        File modelsDirectory = new File(System.getProperty("java.io.tmpdir"), "rbf-model-registry-test");
+        modelsDirectory.mkdirs();
+        Random randomGenerator = new Random(33);
+        long modelBytes = 0;
+        for (int i = 0; i < numOfModels; i++) {
+            RBFModel model = ScoringServerTest.createRandomModel(randomGenerator);
+            RBFModelFile.save(model, new File(modelsDirectory, "target" + i + ".bin").getPath());
+            modelBytes = model.getCentreMatrixBytes();
+        }
+        final ModelRegistry registry = new ModelRegistry(modelsDirectory.getPath(), numOfCachedModels * modelBytes);
+        // Concurrent requests for a model that is not loaded yet share one load
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        Thread[] requesters = new Thread[numOfConcurrentRequests];
+        for (int i = 0; i < numOfConcurrentRequests; i++) {
+            requesters[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                        registry.getModel("target0");
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+            requesters[i].start();
+        }
+        startSignal.countDown();
+        for (Thread requester : requesters)
+            requester.join();
+        System.out.println("Loads after " + numOfConcurrentRequests + " concurrent requests: "
+                + registry.getNumOfLoads());
+        // Cycle through all models twice, keeping target0 hot
+        for (int round = 0; round < 2; round++) {
+            for (int i = 1; i < numOfModels; i++) {
+                registry.getModel("target" + i);
+                registry.getModel("target0");
+            }
+        }
+        System.out.print(registry.getReport());
+        try {
+            registry.getModel("missing");
+        } catch (FileNotFoundException e) {
+            System.out.println("Missing model: " + e.getMessage());
+        }
+        // Only the results of the models still cached by the registry stay in the inference cache
+        InferenceCache inferenceCache = new InferenceCache(numOfModels, 0.0);
+        ModelRegistry cachingRegistry = new ModelRegistry(modelsDirectory.getPath(), numOfCachedModels * modelBytes,
+                inferenceCache);
+        for (int i = 0; i < numOfModels; i++) {
+            RBFModel model = cachingRegistry.getModel("target" + i);
+            inferenceCache.getOutputVectors(model, new double[][]{new double[model.getNumInputNeurons()]});
+        }
+        cachingRegistry.invalidate("target" + (numOfModels - 1));
+        System.out.print(inferenceCache.getReport());
+        // Score batches of a model while loading the other models evicts it
+        final InferenceCache scoringCache = new InferenceCache(numOfModels * numOfBatchInputs, 0.0);
+        final ModelRegistry scoringRegistry = new ModelRegistry(modelsDirectory.getPath(),
+                numOfCachedModels * modelBytes, scoringCache);
+        final RBFModel scoredModel = scoringRegistry.getModel("target0");
+        final AtomicBoolean evicted = new AtomicBoolean();
+        Thread scorer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Random inputGenerator = new Random(34);
+                // Keep scoring new inputs for a few batches after the eviction
+                int numOfBatchesScoredAfterEviction = 0;
+                while (numOfBatchesScoredAfterEviction < numOfBatchesAfterEviction) {
+                    if (evicted.get())
+                        numOfBatchesScoredAfterEviction++;
+                    double[][] inputs = new double[numOfBatchInputs][scoredModel.getNumInputNeurons()];
+                    for (double[] input : inputs)
+                        for (int i = 0; i < input.length; i++)
+                            input[i] = inputGenerator.nextDouble();
+                    scoringCache.getOutputVectors(scoredModel, inputs);
+                }
+            }
+        });
+        scorer.start();
+        for (int i = 1; i < numOfModels; i++)
+            scoringRegistry.getModel("target" + i);
+        evicted.set(true);
+        scorer.join();
+        System.out.println("Cached results after evicting the scored model: " + scoringCache.getNumOfEntries());
+    }
+
+}
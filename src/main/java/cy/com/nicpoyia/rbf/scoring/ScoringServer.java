@@ -0,0 +1,335 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import cy.com.nicpoyia.rbf.compound_activity_data.NormalizationTransform;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class representing an embedded HTTP scoring server, built on the JDK's HTTP
+ * server. Inputs of concurrent requests are coalesced into micro-batches.
+ * Models stored with a normalization transform take raw attribute values,
+ * which are normalized while being parsed; other models take normalized ones.
+ * An optional inference cache answers repeated inputs without scoring them.
+ * <ul>
+ * <li>POST /score: one comma separated input vector per line, answered with one
+ * comma separated output vector per line</li>
+ * <li>POST /models/{modelId}/score: as above, scored by a model of the model
+ * registry</li>
+ * <li>GET /metrics: latency and throughput counters, one "name value" per line</li>
+ * </ul>
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ScoringServer {
+    // HTTP server
+    private final HttpServer httpServer;
+    // Threads handling HTTP requests
+    private final ExecutorService requestExecutor;
+    // Micro-batcher scoring the inputs
+    private final MicroBatcher batcher;
+    // Counters
+    private final LatencyStats stats;
+    // Registry of models scored by ID, or null
+    private final ModelRegistry registry;
+
+    /**
+     * Constructs a scoring server.
+     *
+     * @param model               Model used for scoring
+     * @param port                Port to listen on (0: any free port)
+     * @param latencyWindowMicros Maximum time an input waits for other inputs (us)
+     * @param maxBatchSize        Maximum number of inputs per batch
+     * @param numRequestThreads   Number of threads handling HTTP requests
+     * @throws IOException If the server socket could not be bound
+     */
+    public ScoringServer(RBFModel model, int port, long latencyWindowMicros, int maxBatchSize,
+                         int numRequestThreads) throws IOException {
+        this(model, null, port, latencyWindowMicros, maxBatchSize, numRequestThreads);
+    }
+
+    /**
+     * Constructs a scoring server that also scores models of a registry.
+     *
+     * @param model               Default model used for scoring, or null
+     * @param registry            Registry of models scored by ID, or null
+     * @param port                Port to listen on (0: any free port)
+     * @param latencyWindowMicros Maximum time an input waits for other inputs (us)
+     * @param maxBatchSize        Maximum number of inputs per batch
+     * @param numRequestThreads   Number of threads handling HTTP requests
+     * @throws IOException If the server socket could not be bound
+     */
+    public ScoringServer(RBFModel model, ModelRegistry registry, int port, long latencyWindowMicros,
+                         int maxBatchSize, int numRequestThreads) throws IOException {
+        this(model, registry, null, port, latencyWindowMicros, maxBatchSize, numRequestThreads);
+    }
+
+    /**
+     * Constructs a scoring server that also scores models of a registry, and
+     * caches scoring results. The registry should have been constructed with
+     * the same inference cache, so that its evicted models leave the cache.
+     *
+     * @param model               Default model used for scoring, or null
+     * @param registry            Registry of models scored by ID, or null
+     * @param inferenceCache      Cache of scoring results, or null
+     * @param port                Port to listen on (0: any free port)
+     * @param latencyWindowMicros Maximum time an input waits for other inputs (us)
+     * @param maxBatchSize        Maximum number of inputs per batch
+     * @param numRequestThreads   Number of threads handling HTTP requests
+     * @throws IOException If the server socket could not be bound
+     */
+    public ScoringServer(RBFModel model, ModelRegistry registry, InferenceCache inferenceCache, int port,
+                         long latencyWindowMicros, int maxBatchSize, int numRequestThreads) throws IOException {
+        this.stats = new LatencyStats();
+        this.registry = registry;
+        this.batcher = new MicroBatcher(model, latencyWindowMicros, maxBatchSize, stats, inferenceCache);
+        this.requestExecutor = Executors.newFixedThreadPool(numRequestThreads);
+        this.httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        this.httpServer.setExecutor(requestExecutor);
+        this.httpServer.createContext("/score", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                RBFModel defaultModel = batcher.getModel();
+                if (defaultModel == null)
+                    sendResponse(exchange, 404, "No default model\n");
+                else
+                    handleScore(exchange, defaultModel);
+            }
+        });
+        this.httpServer.createContext("/models/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleModelScore(exchange);
+            }
+        });
+        this.httpServer.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String report = stats.getReport();
+                if (ScoringServer.this.registry != null)
+                    report += ScoringServer.this.registry.getReport();
+                if (batcher.getInferenceCache() != null)
+                    report += batcher.getInferenceCache().getReport();
+                sendResponse(exchange, 200, report);
+            }
+        });
+    }
+
+    /**
+     * Port getter method.
+     *
+     * @return Port the server listens on
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Counters getter method.
+     *
+     * @return Latency and throughput counters
+     */
+    public LatencyStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Micro-batcher getter method.
+     *
+     * @return Micro-batcher scoring the inputs
+     */
+    public MicroBatcher getBatcher() {
+        return batcher;
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        batcher.start();
+        httpServer.start();
+    }
+
+    /**
+     * Stops accepting requests and releases all threads.
+     */
+    public void stop() {
+        httpServer.stop(0);
+        batcher.stop();
+        requestExecutor.shutdown();
+    }
+
+    /**
+     * Handles a scoring request for a model of the registry.
+     *
+     * @param exchange HTTP exchange
+     * @throws IOException If the response could not be sent
+     */
+    private void handleModelScore(HttpExchange exchange) throws IOException {
+        String[] pathElements = exchange.getRequestURI().getPath().split("/");
+        if ((registry == null) || (pathElements.length != 4) || !pathElements[3].equals("score")) {
+            sendResponse(exchange, 404, "Not found\n");
+            return;
+        }
+        // Reject other methods before the registry may load the model
+        if (!checkPostMethod(exchange))
+            return;
+        RBFModel model;
+        try {
+            model = registry.getModel(pathElements[2]);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, e.getMessage() + "\n");
+            return;
+        } catch (FileNotFoundException e) {
+            sendResponse(exchange, 404, e.getMessage() + "\n");
+            return;
+        } catch (IOException e) {
+            sendResponse(exchange, 500, "Error while loading model (" + e.getMessage() + ")\n");
+            return;
+        }
+        handleScore(exchange, model);
+    }
+
+    /**
+     * Checks that a request uses the POST method, responding with 405 if not.
+     *
+     * @param exchange HTTP exchange
+     * @return Whether the request uses the POST method
+     * @throws IOException If the response could not be sent
+     */
+    private boolean checkPostMethod(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("POST"))
+            return true;
+        sendResponse(exchange, 405, "Only POST is supported\n");
+        return false;
+    }
+
+    /**
+     * Handles a scoring request.
+     *
+     * @param exchange HTTP exchange
+     * @param model    Model used for scoring
+     * @throws IOException If the response could not be sent
+     */
+    private void handleScore(HttpExchange exchange, RBFModel model) throws IOException {
+        long startTime = System.nanoTime();
+        if (!checkPostMethod(exchange))
+            return;
+        // Read and submit all input vectors, so that they join the same batch
+        List<Future<double[]>> results = new ArrayList<Future<double[]>>();
+        BufferedReader requestReader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        try {
+            String nextInputLine;
+            while ((nextInputLine = requestReader.readLine()) != null) {
+                if (nextInputLine.trim().isEmpty())
+                    continue;
+                results.add(batcher.submit(model,
+                        parseVector(nextInputLine, model.getNormalizationTransform())));
+            }
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, e.getMessage() + "\n");
+            return;
+        } catch (IllegalStateException e) {
+            // Stopping, or no model to score with
+            sendResponse(exchange, 503, e.getMessage() + "\n");
+            return;
+        } finally {
+            requestReader.close();
+        }
+        // Wait for the outputs
+        StringBuilder response = new StringBuilder();
+        try {
+            for (Future<double[]> result : results)
+                appendVector(response, result.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendResponse(exchange, 503, "Interrupted\n");
+            return;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException)
+                sendResponse(exchange, 503, e.getCause().getMessage() + "\n");
+            else
+                sendResponse(exchange, 500, "Scoring error: " + e.getCause().getMessage() + "\n");
+            return;
+        }
+        sendResponse(exchange, 200, response.toString());
+        stats.requestCompleted(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Parses a comma separated vector, normalizing each value as it is parsed
+     * when a normalization transform is given, and projecting the vector if the
+     * transform has principal components.
+     *
+     * @param vectorLine             Comma separated values
+     * @param normalizationTransform Normalization of the values, or null to keep them as they are
+     * @return Parsed vector
+     * @throws IllegalArgumentException If a value is not a number or the number of values is wrong
+     */
+    static double[] parseVector(String vectorLine, NormalizationTransform normalizationTransform) {
+        String[] valueStrings = vectorLine.split(",");
+        if ((normalizationTransform != null) && (valueStrings.length != normalizationTransform.getNumOfAttributes()))
+            throw new IllegalArgumentException(
+                    "Input vector must have " + normalizationTransform.getNumOfAttributes() + " values");
+        double[] vector = new double[valueStrings.length];
+        for (int i = 0; i < valueStrings.length; i++) {
+            double value;
+            try {
+                value = Double.parseDouble(valueStrings[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value: " + valueStrings[i]);
+            }
+            vector[i] = normalizationTransform != null ? normalizationTransform.normalize(i, value) : value;
+        }
+        return normalizationTransform != null ? normalizationTransform.project(vector) : vector;
+    }
+
+    /**
+     * Appends a vector as a comma separated line.
+     *
+     * @param builder String builder
+     * @param vector  Vector to append
+     */
+    static void appendVector(StringBuilder builder, double[] vector) {
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0)
+                builder.append(',');
+            builder.append(vector[i]);
+        }
+        builder.append('\n');
+    }
+
+    /**
+     * Sends a plain text response.
+     *
+     * @param exchange   HTTP exchange
+     * @param statusCode HTTP status code
+     * @param body       Response body
+     * @throws IOException If the response could not be sent
+     */
+    private static void sendResponse(HttpExchange exchange, int statusCode, String body) throws IOException {
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, bodyBytes.length);
+        OutputStream responseStream = exchange.getResponseBody();
+        responseStream.write(bodyBytes);
+        responseStream.close();
+    }
+
+}
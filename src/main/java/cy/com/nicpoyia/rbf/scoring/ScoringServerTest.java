@@ -0,0 +1,159 @@
+package cy.com.nicpoyia.rbf.scoring;
+
+import cy.com.nicpoyia.rbf.network.BasisFunction;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFModelFile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test Driver class for ScoringServer class. Starts a server on localhost and
+ * scores random inputs from concurrent clients, comparing each response with
+ * the model's own output. Then checks that a registry model is not loaded for
+ * a request with the wrong method.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class ScoringServerTest {
+    // Test dimensions
+    private static final int numInputNeurons = 53;
+    private static final int numHiddenNodes = 10;
+    private static final int numOfClients = 8;
+    private static final int requestsPerClient = 200;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        final RBFModel model = createRandomModel(new Random(32));
+        ScoringServer server = new ScoringServer(model, 0, 1000, 64, numOfClients);
+        server.start();
+        final String scoreUrl = "http://localhost:" + server.getPort() + "/score";
+        final AtomicInteger mismatches = new AtomicInteger();
+        Thread[] clients = new Thread[numOfClients];
+        for (int c = 0; c < numOfClients; c++) {
+            final Random randomGenerator = new Random(c);
+            clients[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int r = 0; r < requestsPerClient; r++) {
+                            double[][] inputs = new double[1 + randomGenerator.nextInt(4)][numInputNeurons];
+                            StringBuilder request = new StringBuilder();
+                            for (double[] input : inputs) {
+                                for (int i = 0; i < numInputNeurons; i++)
+                                    input[i] = randomGenerator.nextDouble();
+                                ScoringServer.appendVector(request, input);
+                            }
+                            String[] responseLines = post(scoreUrl, request.toString()).split("\n");
+                            for (int i = 0; i < inputs.length; i++) {
+                                double expectedOutput = model.getOutputVector(inputs[i])[0];
+                                if (Double.parseDouble(responseLines[i]) != expectedOutput)
+                                    mismatches.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            clients[c].start();
+        }
+        for (Thread client : clients)
+            client.join();
+        System.out.println("Mismatching responses: " + mismatches.get());
+        System.out.print(server.getStats().getReport());
+        server.stop();
+        // The method is checked before the registry loads the model
+        File modelsDirectory = new File(System.getProperty("java.io.tmpdir"), "rbf-scoring-server-test");
+        modelsDirectory.mkdirs();
+        RBFModelFile.save(model, new File(modelsDirectory, "target0.bin").getPath());
+        ModelRegistry registry = new ModelRegistry(modelsDirectory.getPath(), Long.MAX_VALUE);
+        ScoringServer registryServer = new ScoringServer(null, registry, null, 0, 1000, 64, 1);
+        registryServer.start();
+        String modelUrl = "http://localhost:" + registryServer.getPort() + "/models/target0/score";
+        System.out.println("GET model score: HTTP " + getResponseCode(modelUrl, "GET") + ", loads "
+                + registry.getNumOfLoads());
+        System.out.println("POST model score: HTTP " + getResponseCode(modelUrl, "POST") + ", loads "
+                + registry.getNumOfLoads());
+        registryServer.stop();
+    }
+
+    /**
+     * Creates a model with random parameters.
+     *
+     * @param randomGenerator Random generator
+     * @return Random model
+     */
+    static RBFModel createRandomModel(Random randomGenerator) {
+        double[] centres = new double[numHiddenNodes * numInputNeurons];
+        double[] sigmas = new double[numHiddenNodes];
+        double[] coefficients = new double[numHiddenNodes];
+        for (int i = 0; i < centres.length; i++)
+            centres[i] = randomGenerator.nextDouble();
+        for (int i = 0; i < numHiddenNodes; i++) {
+            sigmas[i] = 2.0 + randomGenerator.nextDouble();
+            coefficients[i] = 2.0 * randomGenerator.nextDouble() - 1.0;
+        }
+        return new RBFModel(numInputNeurons, 1, BasisFunction.GAUSSIAN, centres, null, sigmas, coefficients);
+    }
+
+    /**
+     * Sends a request with an empty body and returns the response code.
+     *
+     * @param url    Request URL
+     * @param method Request method
+     * @return Response code
+     * @throws Exception If the request failed
+     */
+    static int getResponseCode(String url, String method) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        if (method.equals("POST")) {
+            connection.setDoOutput(true);
+            connection.getOutputStream().close();
+        }
+        int responseCode = connection.getResponseCode();
+        connection.disconnect();
+        return responseCode;
+    }
+
+    /**
+     * Sends a POST request and reads the response body.
+     *
+     * @param url  Request URL
+     * @param body Request body
+     * @return Response body
+     * @throws Exception If the request failed
+     */
+    static String post(String url, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        OutputStream requestStream = connection.getOutputStream();
+        requestStream.write(body.getBytes(StandardCharsets.UTF_8));
+        requestStream.close();
+        if (connection.getResponseCode() != 200)
+            throw new Exception("HTTP " + connection.getResponseCode());
+        BufferedReader responseReader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String nextLine;
+        while ((nextLine = responseReader.readLine()) != null)
+            response.append(nextLine).append('\n');
+        responseReader.close();
+        return response.toString();
+    }
+
+}
@@ -0,0 +1,99 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFEnsembleModel;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class responsible for training a bagging ensemble. Each member is trained on
+ * a bootstrap resample of the training data-sets, drawn as an index array over
+ * the shared data matrix, and all members are trained concurrently.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class BaggingEnsemble {
+    // Network configuration used for every member
+    private final Configuration configuration;
+    // Shared data matrix
+    private final CompoundDataMatrix dataMatrix;
+    // Training rows of each member
+    private final int[][] memberTrainingRows;
+
+    /**
+     * Constructs a bagging ensemble over the default training data-sets of a
+     * data matrix.
+     *
+     * @param configuration Network configuration used for every member
+     * @param dataMatrix    Shared data matrix
+     * @param numOfMembers  Number of members
+     * @param seed          Seed used to draw the bootstrap resamples
+     */
+    public BaggingEnsemble(Configuration configuration, CompoundDataMatrix dataMatrix, int numOfMembers, long seed) {
+        if (numOfMembers < 1)
+            throw new IllegalArgumentException("At least one member is required");
+        Configuration memberConfiguration = new Configuration(configuration);
+        memberConfiguration.resultsFile = null;
+        memberConfiguration.weightsFile = null;
+        this.configuration = memberConfiguration;
+        this.dataMatrix = dataMatrix;
+        // Draw bootstrap resamples (with replacement) of the training rows
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        Random randomGenerator = new Random(seed);
+        this.memberTrainingRows = new int[numOfMembers][trainingRows.length];
+        for (int m = 0; m < numOfMembers; m++)
+            for (int i = 0; i < trainingRows.length; i++)
+                memberTrainingRows[m][i] = trainingRows[randomGenerator.nextInt(trainingRows.length)];
+    }
+
+    /**
+     * Trains all members concurrently.
+     *
+     * @param numThreads Number of members trained concurrently (0: number of processors)
+     * @return Ensemble model of the trained members
+     * @throws Exception If a member could not be trained
+     */
+    public RBFEnsembleModel train(int numThreads) throws Exception {
+        if (numThreads <= 0)
+            numThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, memberTrainingRows.length));
+        try {
+            final int[] testingRows = dataMatrix.getTestingIndices();
+            List<Callable<RBFModel>> tasks = new ArrayList<Callable<RBFModel>>(memberTrainingRows.length);
+            for (final int[] trainingRows : memberTrainingRows) {
+                tasks.add(new Callable<RBFModel>() {
+                    @Override
+                    public RBFModel call() {
+                        RBFNetwork network = new RBFNetwork(configuration, dataMatrix, trainingRows, testingRows);
+                        network.executeEpochs(configuration.maxIterations);
+                        return network.createModelSnapshot();
+                    }
+                });
+            }
+            List<RBFModel> members = new ArrayList<RBFModel>(memberTrainingRows.length);
+            List<Future<RBFModel>> futures = executor.invokeAll(tasks);
+            for (int m = 0; m < futures.size(); m++) {
+                try {
+                    members.add(futures.get(m).get());
+                } catch (ExecutionException e) {
+                    throw new Exception("Error while training member " + m + " (" + e.getCause().getMessage() + ")",
+                            e.getCause());
+                }
+            }
+            return new RBFEnsembleModel(members);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class responsible for k-fold (and leave-one-out) cross-validation. Folds are
+ * index arrays over a single shared data matrix and are trained concurrently,
+ * one network per fold.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class CrossValidation {
+    // Network configuration used for every fold
+    private final Configuration configuration;
+    // Shared data matrix
+    private final CompoundDataMatrix dataMatrix;
+    // Training rows of each fold
+    private final int[][] trainingFolds;
+    // Testing rows of each fold
+    private final int[][] testingFolds;
+
+    /**
+     * Constructs a cross-validation over all data-sets of a data matrix.
+     *
+     * @param configuration Network configuration used for every fold
+     * @param dataMatrix    Shared data matrix
+     * @param numOfFolds    Number of folds (the number of data-sets or more: leave-one-out)
+     * @param seed          Seed used to shuffle data-sets before assigning them to folds
+     */
+    public CrossValidation(Configuration configuration, CompoundDataMatrix dataMatrix, int numOfFolds, long seed) {
+        int numOfDataSets = dataMatrix.getNumOfDataSets();
+        if (numOfFolds < 2)
+            throw new IllegalArgumentException("At least 2 folds are required");
+        if (numOfFolds > numOfDataSets)
+            numOfFolds = numOfDataSets;
+        Configuration foldConfiguration = new Configuration(configuration);
+        foldConfiguration.resultsFile = null;
+        foldConfiguration.weightsFile = null;
+        this.configuration = foldConfiguration;
+        this.dataMatrix = dataMatrix;
+        // Shuffle rows and deal them round-robin into folds
+        int[] rows = new int[numOfDataSets];
+        for (int i = 0; i < numOfDataSets; i++)
+            rows[i] = i;
+        Random randomGenerator = new Random(seed);
+        for (int i = numOfDataSets - 1; i > 0; i--) {
+            int j = randomGenerator.nextInt(i + 1);
+            int swap = rows[i];
+            rows[i] = rows[j];
+            rows[j] = swap;
+        }
+        this.trainingFolds = new int[numOfFolds][];
+        this.testingFolds = new int[numOfFolds][];
+        for (int fold = 0; fold < numOfFolds; fold++) {
+            int foldSize = (numOfDataSets - fold + numOfFolds - 1) / numOfFolds;
+            testingFolds[fold] = new int[foldSize];
+            trainingFolds[fold] = new int[numOfDataSets - foldSize];
+            int testingCount = 0;
+            int trainingCount = 0;
+            for (int i = 0; i < numOfDataSets; i++) {
+                if (i % numOfFolds == fold)
+                    testingFolds[fold][testingCount++] = rows[i];
+                else
+                    trainingFolds[fold][trainingCount++] = rows[i];
+            }
+        }
+    }
+
+    /**
+     * Number of folds getter method.
+     *
+     * @return Number of folds
+     */
+    public int getNumOfFolds() {
+        return testingFolds.length;
+    }
+
+    /**
+     * Trains and tests all folds concurrently.
+     *
+     * @param numThreads Number of folds trained concurrently (0: number of processors)
+     * @return Testing error of each fold, after the configured number of iterations
+     * @throws Exception If a fold could not be trained
+     */
+    public double[] execute(int numThreads) throws Exception {
+        if (numThreads <= 0)
+            numThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, getNumOfFolds()));
+        try {
+            List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(getNumOfFolds());
+            for (int fold = 0; fold < getNumOfFolds(); fold++) {
+                final int[] trainingRows = trainingFolds[fold];
+                final int[] testingRows = testingFolds[fold];
+                tasks.add(new Callable<Double>() {
+                    @Override
+                    public Double call() {
+                        RBFNetwork network = new RBFNetwork(configuration, dataMatrix, trainingRows, testingRows);
+                        network.executeEpochs(configuration.maxIterations);
+                        return network.getResults().getLastTestingError();
+                    }
+                });
+            }
+            double[] foldErrors = new double[getNumOfFolds()];
+            List<Future<Double>> futures = executor.invokeAll(tasks);
+            for (int fold = 0; fold < foldErrors.length; fold++) {
+                try {
+                    foldErrors[fold] = futures.get(fold).get();
+                } catch (ExecutionException e) {
+                    throw new Exception("Error while training fold " + fold + " (" + e.getCause().getMessage() + ")",
+                            e.getCause());
+                }
+            }
+            return foldErrors;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Calculates the mean of the fold errors.
+     *
+     * @param foldErrors Testing error of each fold
+     * @return Mean fold error
+     */
+    public static double mean(double[] foldErrors) {
+        double sum = 0.0;
+        for (double foldError : foldErrors)
+            sum += foldError;
+        return sum / foldErrors.length;
+    }
+
+    /**
+     * Calculates the (sample) standard deviation of the fold errors.
+     *
+     * @param foldErrors Testing error of each fold
+     * @return Standard deviation of the fold errors
+     */
+    public static double standardDeviation(double[] foldErrors) {
+        if (foldErrors.length < 2)
+            return 0.0;
+        double mean = mean(foldErrors);
+        double squaredSum = 0.0;
+        for (double foldError : foldErrors)
+            squaredSum += (foldError - mean) * (foldError - mean);
+        return Math.sqrt(squaredSum / (foldErrors.length - 1));
+    }
+
+}
@@ -0,0 +1,461 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.ModelCompressor;
+import cy.com.nicpoyia.rbf.network.RBFModel;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+import cy.com.nicpoyia.rbf.network.TrainingTestingResults;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+
+/**
+ * Class responsible for coordinating data-parallel training over worker
+ * processes. The training data-sets are split into shards, one per worker.
+ * Each round, the coordinator sends the current parameters to all workers,
+ * each worker trains them on its shard for a number of epochs (local SGD),
+ * and the coordinator averages the returned parameters, weighted by the shard
+ * sizes, and tests the averaged network on the testing data-sets.
+ * <p>
+ * Workers connect at any time and are assigned a free shard, or kept as spares
+ * while all shards have workers. A worker that disconnects or fails mid-round
+ * is replaced by a spare or by the next worker connecting, which trains the
+ * round again from the same parameters; the round fails only if no worker
+ * takes over the shard within the worker timeout.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class DistributedTrainingCoordinator {
+    // Data matrix
+    private final CompoundDataMatrix dataMatrix;
+    // Training rows of each shard
+    private final int[][] shardRows;
+    // Testing rows
+    private final int[] testingRows;
+    // Epochs each worker trains per round
+    private final int epochsPerRound;
+    // Time to wait for a worker to connect or to return a round's result (ms)
+    private final int workerTimeoutMillis;
+    // Network holding the averaged parameters
+    private final RBFNetwork network;
+    // Results of each round
+    private final TrainingTestingResults results;
+    // Server socket accepting workers
+    private final ServerSocket serverSocket;
+    // Worker connected for each shard, or null (guarded by this)
+    private final WorkerConnection[] workers;
+    // Workers waiting for a shard (guarded by this)
+    private final ArrayDeque<WorkerConnection> spareWorkers = new ArrayDeque<WorkerConnection>();
+    // Number of rounds completed so far
+    private volatile int numOfCompletedRounds;
+
+    /**
+     * Constructs a distributed training coordinator over the default training
+     * and testing data-sets of a data matrix, and starts accepting workers.
+     *
+     * @param configuration       Network configuration, shared with the workers
+     * @param dataMatrix          Data matrix
+     * @param numOfShards         Number of shards, one per worker
+     * @param epochsPerRound      Epochs each worker trains between parameter averagings
+     * @param port                Port to listen on (0: any free port)
+     * @param workerTimeoutMillis Time to wait for a worker to connect or to return a round's result (ms)
+     * @throws IOException If the server socket could not be bound
+     */
+    public DistributedTrainingCoordinator(Configuration configuration, CompoundDataMatrix dataMatrix, int numOfShards,
+                                          int epochsPerRound, int port, int workerTimeoutMillis) throws IOException {
+        if (configuration.growingPruning)
+            throw new IllegalArgumentException("Distributed training requires a fixed number of hidden nodes");
+        int[] trainingRows = dataMatrix.getTrainingIndices();
+        if ((numOfShards < 1) || (numOfShards > trainingRows.length))
+            throw new IllegalArgumentException("Between 1 and " + trainingRows.length + " shards are required");
+        if (epochsPerRound < 1)
+            throw new IllegalArgumentException("At least one epoch per round is required");
+        this.dataMatrix = dataMatrix;
+        this.testingRows = dataMatrix.getTestingIndices();
+        this.epochsPerRound = epochsPerRound;
+        this.workerTimeoutMillis = workerTimeoutMillis;
+        // Deal the training rows round-robin into shards
+        this.shardRows = new int[numOfShards][];
+        for (int shard = 0; shard < numOfShards; shard++) {
+            shardRows[shard] = new int[(trainingRows.length - shard + numOfShards - 1) / numOfShards];
+            for (int i = 0; i < shardRows[shard].length; i++)
+                shardRows[shard][i] = trainingRows[i * numOfShards + shard];
+        }
+        Configuration networkConfiguration = new Configuration(configuration);
+        networkConfiguration.resultsFile = null;
+        networkConfiguration.weightsFile = null;
+        this.network = new RBFNetwork(networkConfiguration, dataMatrix, trainingRows, testingRows);
+        this.results = new TrainingTestingResults(configuration.resultsFile);
+        this.workers = new WorkerConnection[numOfShards];
+        this.serverSocket = new ServerSocket(port);
+        Thread acceptorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptWorkers();
+            }
+        }, "rbf-coordinator-acceptor");
+        acceptorThread.setDaemon(true);
+        acceptorThread.start();
+    }
+
+    /**
+     * Port getter method.
+     *
+     * @return Port the coordinator listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Number of completed rounds getter method.
+     *
+     * @return Number of rounds completed so far
+     */
+    public int getNumOfCompletedRounds() {
+        return numOfCompletedRounds;
+    }
+
+    /**
+     * Results getter method.
+     *
+     * @return Training and testing errors of each round
+     */
+    public TrainingTestingResults getResults() {
+        return results;
+    }
+
+    /**
+     * Trains for a number of rounds, continuing from the current parameters.
+     *
+     * @param numOfRounds Number of rounds
+     * @return Model of the averaged parameters
+     * @throws IOException If no worker returned a shard's result within the worker timeout
+     */
+    public RBFModel train(int numOfRounds) throws IOException {
+        double[] parameters = network.getParameterVector();
+        for (int i = 0; i < numOfRounds; i++) {
+            int round = numOfCompletedRounds;
+            // Start the round on all connected workers, so that they train concurrently
+            for (int shard = 0; shard < shardRows.length; shard++) {
+                WorkerConnection worker = getWorker(shard);
+                if (worker == null)
+                    continue;
+                try {
+                    worker.sendRound(round, parameters);
+                } catch (IOException e) {
+                    dropWorker(worker, e);
+                }
+            }
+            // Collect the results, restarting the round on replacement workers
+            double[] parameterSums = new double[parameters.length];
+            double trainingError = 0.0;
+            long numOfPatterns = 0;
+            for (int shard = 0; shard < shardRows.length; shard++) {
+                while (true) {
+                    WorkerConnection worker = awaitWorker(shard);
+                    try {
+                        if (worker.sentRound != round)
+                            worker.sendRound(round, parameters);
+                        double[] shardParameters = worker.receiveResult(round, parameters.length);
+                        for (int j = 0; j < parameters.length; j++)
+                            parameterSums[j] += worker.resultPatterns * shardParameters[j];
+                        trainingError += worker.resultTrainingError;
+                        numOfPatterns += worker.resultPatterns;
+                        break;
+                    } catch (IOException e) {
+                        dropWorker(worker, e);
+                    }
+                }
+            }
+            for (int j = 0; j < parameters.length; j++)
+                parameters[j] = parameterSums[j] / numOfPatterns;
+            network.setParameterVector(parameters);
+            double testingError = ModelCompressor.calculateError(network.createModelSnapshot(), dataMatrix,
+                    testingRows);
+            results.iterationCompleted(trainingError, testingError);
+            numOfCompletedRounds++;
+        }
+        return network.createModelSnapshot();
+    }
+
+    /**
+     * Stops all connected workers and stops accepting new ones.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        synchronized (this) {
+            for (int shard = 0; shard < workers.length; shard++) {
+                if (workers[shard] != null)
+                    workers[shard].stop();
+                workers[shard] = null;
+            }
+            while (!spareWorkers.isEmpty())
+                spareWorkers.poll().stop();
+        }
+    }
+
+    /**
+     * Accepts workers until the server socket is closed, assigning each one a
+     * free shard.
+     */
+    private void acceptWorkers() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            WorkerConnection worker = null;
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(workerTimeoutMillis);
+                worker = new WorkerConnection(socket);
+                String rejectReason = worker.readHello(dataMatrix.getNumOfDataSets());
+                if (rejectReason == null)
+                    addWorker(worker);
+                else {
+                    worker.writer.writeByte(TrainingProtocol.rejectMessage);
+                    worker.writer.writeUTF(rejectReason);
+                    worker.writer.flush();
+                    worker.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error while accepting worker (" + e.getMessage() + ")");
+                if (worker != null)
+                    worker.close();
+                else
+                    closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * Assigns the first free shard to a new worker, or keeps it as a spare if
+     * all shards have workers.
+     *
+     * @param worker Worker connection
+     * @throws IOException If the assignment could not be sent
+     */
+    private synchronized void addWorker(WorkerConnection worker) throws IOException {
+        for (int shard = 0; shard < workers.length; shard++) {
+            if (workers[shard] == null) {
+                assignShard(worker, shard);
+                return;
+            }
+        }
+        spareWorkers.add(worker);
+        System.out.println("Worker " + worker.socket.getRemoteSocketAddress() + " kept as a spare");
+    }
+
+    /**
+     * Assigns a shard to a worker.
+     *
+     * @param worker Worker connection
+     * @param shard  Free shard
+     * @throws IOException If the assignment could not be sent
+     */
+    private synchronized void assignShard(WorkerConnection worker, int shard) throws IOException {
+        worker.shard = shard;
+        worker.writer.writeByte(TrainingProtocol.assignMessage);
+        worker.writer.writeInt(shard);
+        worker.writer.writeInt(network.getParameterVector().length);
+        TrainingProtocol.writeIndices(worker.writer, shardRows[shard]);
+        worker.writer.flush();
+        workers[shard] = worker;
+        System.out.println("Worker " + worker.socket.getRemoteSocketAddress() + " assigned shard " + shard);
+        notifyAll();
+    }
+
+    /**
+     * Returns the worker connected for a shard.
+     *
+     * @param shard Shard
+     * @return Worker connection, or null
+     */
+    private synchronized WorkerConnection getWorker(int shard) {
+        return workers[shard];
+    }
+
+    /**
+     * Waits for a worker to be connected for a shard.
+     *
+     * @param shard Shard
+     * @return Worker connection
+     * @throws IOException If no worker connected within the worker timeout
+     */
+    private synchronized WorkerConnection awaitWorker(int shard) throws IOException {
+        long deadline = System.currentTimeMillis() + workerTimeoutMillis;
+        while (workers[shard] == null) {
+            long remainingMillis = deadline - System.currentTimeMillis();
+            if (remainingMillis <= 0)
+                throw new IOException("No worker connected for shard " + shard + " within " + workerTimeoutMillis
+                        + " ms");
+            try {
+                wait(remainingMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a worker for shard " + shard);
+            }
+        }
+        return workers[shard];
+    }
+
+    /**
+     * Disconnects a failed worker, handing its shard over to a spare worker
+     * if there is one.
+     *
+     * @param worker Worker connection
+     * @param cause  Failure
+     */
+    private synchronized void dropWorker(WorkerConnection worker, IOException cause) {
+        System.err.println("Worker of shard " + worker.shard + " lost (" + cause + ")");
+        worker.close();
+        if (workers[worker.shard] != worker)
+            return;
+        workers[worker.shard] = null;
+        while ((workers[worker.shard] == null) && !spareWorkers.isEmpty()) {
+            WorkerConnection spareWorker = spareWorkers.poll();
+            try {
+                assignShard(spareWorker, worker.shard);
+            } catch (IOException e) {
+                spareWorker.close();
+            }
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring errors.
+     *
+     * @param socket Socket
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Class representing the connection to a worker.
+     */
+    private class WorkerConnection {
+        // Socket and its streams
+        final Socket socket;
+        final DataInputStream reader;
+        final DataOutputStream writer;
+        // Assigned shard
+        int shard = -1;
+        // Latest round sent to the worker
+        int sentRound = -1;
+        // Number of patterns and training error of the latest result
+        int resultPatterns;
+        double resultTrainingError;
+
+        /**
+         * Constructs a worker connection.
+         *
+         * @param socket Connected socket
+         * @throws IOException If the socket's streams could not be opened
+         */
+        WorkerConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.reader = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.writer = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Reads and checks the worker's HELLO message.
+         *
+         * @param numOfDataSets Number of data-sets of the coordinator's data matrix
+         * @return Reason for rejecting the worker, or null if it is compatible
+         * @throws IOException If the message could not be read
+         */
+        String readHello(int numOfDataSets) throws IOException {
+            TrainingProtocol.readMessageType(reader, TrainingProtocol.helloMessage);
+            if (reader.readInt() != TrainingProtocol.magicNumber)
+                return "Not a training worker";
+            int version = reader.readInt();
+            if (version != TrainingProtocol.protocolVersion)
+                return "Unsupported protocol version " + version;
+            int workerDataSets = reader.readInt();
+            if (workerDataSets != numOfDataSets)
+                return "The worker's data file has " + workerDataSets + " data-sets, the coordinator's "
+                        + numOfDataSets;
+            return null;
+        }
+
+        /**
+         * Sends a round's parameters to the worker.
+         *
+         * @param round      Round
+         * @param parameters Parameter vector
+         * @throws IOException If the message could not be sent
+         */
+        void sendRound(int round, double[] parameters) throws IOException {
+            writer.writeByte(TrainingProtocol.roundMessage);
+            writer.writeInt(round);
+            writer.writeInt(epochsPerRound);
+            TrainingProtocol.writeVector(writer, parameters);
+            writer.flush();
+            sentRound = round;
+        }
+
+        /**
+         * Receives a round's result from the worker.
+         *
+         * @param round           Round
+         * @param numOfParameters Number of parameters
+         * @return Parameter vector trained by the worker
+         * @throws IOException If the result could not be received or is invalid
+         */
+        double[] receiveResult(int round, int numOfParameters) throws IOException {
+            TrainingProtocol.readMessageType(reader, TrainingProtocol.resultMessage);
+            int resultRound = reader.readInt();
+            if (resultRound != round)
+                throw new IOException("Result of round " + resultRound + " received during round " + round);
+            int patterns = reader.readInt();
+            double trainingError = reader.readDouble();
+            double[] parameters = TrainingProtocol.readVector(reader);
+            if (parameters.length != numOfParameters)
+                throw new IOException(parameters.length + " parameters received, " + numOfParameters + " expected");
+            resultPatterns = patterns;
+            resultTrainingError = trainingError;
+            return parameters;
+        }
+
+        /**
+         * Stops the worker and closes the connection.
+         */
+        void stop() {
+            try {
+                writer.writeByte(TrainingProtocol.stopMessage);
+                writer.flush();
+            } catch (IOException e) {
+                // The worker is gone anyway
+            }
+            close();
+        }
+
+        /**
+         * Closes the connection.
+         */
+        void close() {
+            closeQuietly(socket);
+        }
+    }
+
+}
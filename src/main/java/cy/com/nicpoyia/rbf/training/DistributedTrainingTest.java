@@ -0,0 +1,72 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.DistributedTrainingLauncher;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Test Driver class for distributed training. Starts a coordinator and worker
+ * processes on localhost, kills a worker mid-run and starts a replacement,
+ * printing the errors of each round.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class DistributedTrainingTest {
+    // Test settings
+    private static final int numOfWorkers = 3;
+    private static final int epochsPerRound = 5;
+    private static final int numOfRounds = 20;
+    private static final int killedRound = 5;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.resultsFile = null;
+        CompoundDataMatrix dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+        DistributedTrainingCoordinator coordinator = new DistributedTrainingCoordinator(configuration, dataMatrix,
+                numOfWorkers, epochsPerRound, 0, 30000);
+        Process[] workers = new Process[numOfWorkers];
+        for (int w = 0; w < numOfWorkers; w++)
+            workers[w] = startWorker(coordinator.getPort());
+        try {
+            for (int round = 0; round < numOfRounds; round++) {
+                if (round == killedRound) {
+                    System.out.println("Killing a worker and starting a replacement");
+                    workers[0].destroyForcibly().waitFor();
+                    workers[0] = startWorker(coordinator.getPort());
+                }
+                coordinator.train(1);
+                System.out.println("Round " + round + ": training error "
+                        + coordinator.getResults().getLastTrainingError() + ", testing error "
+                        + coordinator.getResults().getLastTestingError());
+            }
+        } finally {
+            coordinator.close();
+        }
+        for (Process worker : workers)
+            System.out.println("Worker exit code: " + worker.waitFor());
+    }
+
+    /**
+     * Starts a worker process, with the same class path and working directory.
+     *
+     * @param port Coordinator port
+     * @return Worker process
+     * @throws IOException If the process could not be started
+     */
+    private static Process startWorker(int port) throws IOException {
+        String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(javaExecutable, "-cp", System.getProperty("java.class.path"),
+                DistributedTrainingLauncher.class.getName(), "worker", "localhost", Integer.toString(port))
+                .inheritIO().start();
+    }
+
+}
@@ -0,0 +1,102 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Class representing a distributed training worker. A worker connects to the
+ * coordinator, is assigned a shard of the training data-sets, and then trains
+ * its own network on the shard for the requested number of epochs each round,
+ * starting from the averaged parameters the coordinator sends and sending the
+ * resulting parameters back. Workers are stateless between connections, so a
+ * restarted worker simply takes over a free shard.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class DistributedTrainingWorker {
+    // Network configuration, as used by the coordinator
+    private final Configuration configuration;
+    // Data matrix, loaded from the same data file as the coordinator's
+    private final CompoundDataMatrix dataMatrix;
+
+    /**
+     * Constructs a distributed training worker.
+     *
+     * @param configuration Network configuration, as used by the coordinator
+     * @param dataMatrix    Data matrix, loaded from the same data file as the coordinator's
+     */
+    public DistributedTrainingWorker(Configuration configuration, CompoundDataMatrix dataMatrix) {
+        Configuration workerConfiguration = new Configuration(configuration);
+        workerConfiguration.resultsFile = null;
+        workerConfiguration.weightsFile = null;
+        workerConfiguration.modelFile = null;
+        workerConfiguration.asyncTesting = false;
+        this.configuration = workerConfiguration;
+        this.dataMatrix = dataMatrix;
+    }
+
+    /**
+     * Connects to the coordinator and trains rounds until it stops the worker.
+     *
+     * @param host Coordinator host
+     * @param port Coordinator port
+     * @return Number of rounds trained
+     * @throws IOException If the connection failed or the coordinator rejected the worker
+     */
+    public int run(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream reader = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream writer = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            writer.writeByte(TrainingProtocol.helloMessage);
+            writer.writeInt(TrainingProtocol.magicNumber);
+            writer.writeInt(TrainingProtocol.protocolVersion);
+            writer.writeInt(dataMatrix.getNumOfDataSets());
+            writer.flush();
+            // Shard assignment
+            byte messageType = reader.readByte();
+            if (messageType == TrainingProtocol.rejectMessage)
+                throw new IOException("Rejected by the coordinator (" + reader.readUTF() + ")");
+            if (messageType != TrainingProtocol.assignMessage)
+                throw new IOException("Unexpected message type " + messageType);
+            int shard = reader.readInt();
+            int numOfParameters = reader.readInt();
+            int[] shardRows = TrainingProtocol.readIndices(reader);
+            RBFNetwork network = new RBFNetwork(configuration, dataMatrix, shardRows, new int[0]);
+            if (network.getParameterVector().length != numOfParameters)
+                throw new IOException("The coordinator's network has " + numOfParameters
+                        + " parameters, this worker's configuration gives " + network.getParameterVector().length);
+            System.out.println("Worker assigned shard " + shard + " (" + shardRows.length + " data-sets)");
+            // Rounds
+            int numOfRounds = 0;
+            while ((messageType = reader.readByte()) == TrainingProtocol.roundMessage) {
+                int round = reader.readInt();
+                int numOfEpochs = reader.readInt();
+                network.setParameterVector(TrainingProtocol.readVector(reader));
+                network.executeEpochs(numOfEpochs);
+                writer.writeByte(TrainingProtocol.resultMessage);
+                writer.writeInt(round);
+                writer.writeInt(shardRows.length);
+                writer.writeDouble(network.getResults().getLastTrainingError());
+                TrainingProtocol.writeVector(writer, network.getParameterVector());
+                writer.flush();
+                numOfRounds++;
+            }
+            if (messageType != TrainingProtocol.stopMessage)
+                throw new IOException("Unexpected message type " + messageType);
+            return numOfRounds;
+        } finally {
+            socket.close();
+        }
+    }
+
+}
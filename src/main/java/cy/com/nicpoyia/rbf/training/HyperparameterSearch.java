@@ -0,0 +1,117 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class responsible for a parallel hyperparameter search. All trials share a
+ * single data matrix and are trained on a bounded thread pool. Hopeless trials
+ * are terminated early by successive halving: every rung keeps the best
+ * 1 / reductionFactor of the trials and trains the survivors reductionFactor
+ * times longer, until the configured maximum number of iterations.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class HyperparameterSearch {
+    // Base configuration (data, network structure and iterations)
+    private final Configuration baseConfiguration;
+    // Explored hyperparameter values
+    private final SearchSpace searchSpace;
+    // Shared data matrix
+    private final CompoundDataMatrix dataMatrix;
+
+    /**
+     * Constructs a hyperparameter search.
+     *
+     * @param baseConfiguration Base configuration
+     * @param searchSpace       Explored hyperparameter values
+     * @param dataMatrix        Shared data matrix
+     */
+    public HyperparameterSearch(Configuration baseConfiguration, SearchSpace searchSpace,
+                                CompoundDataMatrix dataMatrix) {
+        this.baseConfiguration = baseConfiguration;
+        this.searchSpace = searchSpace;
+        this.dataMatrix = dataMatrix;
+    }
+
+    /**
+     * Executes the search.
+     *
+     * @return All trials, ordered by testing error (best first)
+     * @throws Exception If a trial could not be trained
+     */
+    public List<SearchTrial> execute() throws Exception {
+        List<Configuration> configurations = searchSpace.generateConfigurations(baseConfiguration);
+        List<SearchTrial> trials = new ArrayList<SearchTrial>(configurations.size());
+        for (Configuration configuration : configurations)
+            trials.add(new SearchTrial(configuration, dataMatrix));
+        int numThreads = searchSpace.numThreads > 0 ? searchSpace.numThreads
+                : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            long maxEpochs = baseConfiguration.maxIterations;
+            int reductionFactor = Math.max(1, searchSpace.reductionFactor);
+            long rungEpochs = reductionFactor > 1 ? Math.min(Math.max(1, searchSpace.minEpochs), maxEpochs)
+                    : maxEpochs;
+            List<SearchTrial> survivors = trials;
+            while (true) {
+                trainAll(executor, survivors, rungEpochs);
+                Collections.sort(survivors);
+                if ((rungEpochs >= maxEpochs) || (survivors.size() <= 1))
+                    break;
+                // Keep the best trials and release the rest
+                int numOfSurvivors = Math.max(1, (survivors.size() + reductionFactor - 1) / reductionFactor);
+                for (SearchTrial eliminated : survivors.subList(numOfSurvivors, survivors.size()))
+                    eliminated.release();
+                survivors = new ArrayList<SearchTrial>(survivors.subList(0, numOfSurvivors));
+                rungEpochs = Math.min(rungEpochs * reductionFactor, maxEpochs);
+            }
+            for (SearchTrial survivor : survivors)
+                survivor.release();
+        } finally {
+            executor.shutdown();
+        }
+        // Rank trials that went further first, then by testing error
+        Collections.sort(trials, new Comparator<SearchTrial>() {
+            @Override
+            public int compare(SearchTrial trial, SearchTrial other) {
+                if (trial.getEpochsTrained() != other.getEpochsTrained())
+                    return Long.compare(other.getEpochsTrained(), trial.getEpochsTrained());
+                return trial.compareTo(other);
+            }
+        });
+        return trials;
+    }
+
+    /**
+     * Trains all given trials up to a total number of epochs, concurrently.
+     *
+     * @param executor    Executor service
+     * @param trials      Trials to train
+     * @param totalEpochs Total number of epochs
+     * @throws Exception If a trial could not be trained
+     */
+    private void trainAll(ExecutorService executor, List<SearchTrial> trials, long totalEpochs) throws Exception {
+        List<Callable<SearchTrial>> tasks = new ArrayList<Callable<SearchTrial>>(trials.size());
+        for (SearchTrial trial : trials)
+            tasks.add(trial.trainUpTo(totalEpochs));
+        for (Future<SearchTrial> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new Exception("Error while training trial (" + e.getCause().getMessage() + ")", e.getCause());
+            }
+        }
+    }
+
+}
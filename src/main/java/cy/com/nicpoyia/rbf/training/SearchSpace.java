@@ -0,0 +1,157 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.network.Configuration;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class representing the hyperparameter values explored by a search, together
+ * with the search's execution parameters.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class SearchSpace {
+    // Default search space file name
+    private static final String defaultSearchSpaceFilename = "searchSpace.txt";
+    // Candidate values of each hyperparameter
+    public int[] numHiddenLayerNeurons;
+    public double[] sigmas;
+    public double[] coefficientLearningRates;
+    public double[] centreLearningRates;
+    public double[] sigmaLearningRates;
+    // Number of random configurations to sample (0: full grid)
+    public int randomSamples;
+    public long randomSeed;
+    // Number of trials trained concurrently (0: number of processors)
+    public int numThreads;
+    // Epochs of the first successive halving rung
+    public long minEpochs;
+    // Fraction of trials eliminated per rung is 1 - 1 / reductionFactor (1: no halving)
+    public int reductionFactor;
+
+    /**
+     * Constructs a search space using a file containing all required
+     * parameters.
+     *
+     * @param searchSpaceFile Search space file name
+     */
+    public SearchSpace(String searchSpaceFile) throws Exception {
+        URL searchSpaceFilePath = Thread.currentThread().getContextClassLoader().getResource(searchSpaceFile);
+        if (searchSpaceFilePath == null) {
+            throw new Exception("Search space file not found");
+        }
+        FileInputStream searchSpaceFileInputStream = new FileInputStream(searchSpaceFilePath.getFile());
+        BufferedReader searchSpaceFileReader = new BufferedReader(new InputStreamReader(searchSpaceFileInputStream));
+        String nextParameterLine = null;
+        while ((nextParameterLine = searchSpaceFileReader.readLine()) != null) {
+            if (!readParameter(nextParameterLine))
+                throw new Exception("Invalid search space line: " + nextParameterLine);
+        }
+        searchSpaceFileReader.close();
+    }
+
+    /**
+     * Constructs a search space using the default search space file.
+     */
+    public SearchSpace() throws Exception {
+        this(defaultSearchSpaceFilename);
+    }
+
+    /**
+     * Generates the configurations to be evaluated, either the full grid or a
+     * random sample of it. All other parameters are copied from the base
+     * configuration, and results and weights are kept in memory.
+     *
+     * @param baseConfiguration Base configuration
+     * @return Trial configurations
+     */
+    public List<Configuration> generateConfigurations(Configuration baseConfiguration) {
+        List<Configuration> configurations = new ArrayList<Configuration>();
+        for (int numHidden : numHiddenLayerNeurons)
+            for (double sigma : sigmas)
+                for (double coefficientRate : coefficientLearningRates)
+                    for (double centreRate : centreLearningRates)
+                        for (double sigmaRate : sigmaLearningRates) {
+                            Configuration configuration = new Configuration(baseConfiguration);
+                            configuration.numHiddenLayerNeurons = numHidden;
+                            configuration.sigmas = new double[numHidden];
+                            Arrays.fill(configuration.sigmas, sigma);
+                            configuration.learningRates = new double[]{coefficientRate, centreRate, sigmaRate};
+                            configuration.resultsFile = null;
+                            configuration.weightsFile = null;
+                            configurations.add(configuration);
+                        }
+        if ((randomSamples > 0) && (randomSamples < configurations.size())) {
+            Collections.shuffle(configurations, new Random(randomSeed));
+            configurations = new ArrayList<Configuration>(configurations.subList(0, randomSamples));
+        }
+        return configurations;
+    }
+
+    /**
+     * Reads a parameter and stores it into the appropriate instance attribute.
+     *
+     * @param parameterLine Line containing parameter name and value
+     * @return Whether parameter has been successfully read
+     */
+    private boolean readParameter(String parameterLine) {
+        String[] parameterLineElements = parameterLine.split(" ");
+        if (parameterLineElements.length != 2)
+            return false;
+        String parameterName = parameterLineElements[0];
+        String parameterValueString = parameterLineElements[1];
+        try {
+            if (parameterName.equals("numHiddenLayerNeurons")) {
+                String[] valueStrings = parameterValueString.split(",");
+                numHiddenLayerNeurons = new int[valueStrings.length];
+                for (int i = 0; i < valueStrings.length; i++)
+                    numHiddenLayerNeurons[i] = Integer.parseInt(valueStrings[i]);
+            } else if (parameterName.equals("sigmas"))
+                sigmas = parseValues(parameterValueString);
+            else if (parameterName.equals("coefficientLearningRates"))
+                coefficientLearningRates = parseValues(parameterValueString);
+            else if (parameterName.equals("centreLearningRates"))
+                centreLearningRates = parseValues(parameterValueString);
+            else if (parameterName.equals("sigmaLearningRates"))
+                sigmaLearningRates = parseValues(parameterValueString);
+            else if (parameterName.equals("randomSamples"))
+                randomSamples = Integer.parseInt(parameterValueString);
+            else if (parameterName.equals("randomSeed"))
+                randomSeed = Long.parseLong(parameterValueString);
+            else if (parameterName.equals("numThreads"))
+                numThreads = Integer.parseInt(parameterValueString);
+            else if (parameterName.equals("minEpochs"))
+                minEpochs = Long.parseLong(parameterValueString);
+            else if (parameterName.equals("reductionFactor"))
+                reductionFactor = Integer.parseInt(parameterValueString);
+            else
+                return false;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a comma separated list of values.
+     *
+     * @param valuesString Comma separated values
+     * @return Parsed values
+     */
+    private static double[] parseValues(String valuesString) {
+        String[] valueStrings = valuesString.split(",");
+        double[] values = new double[valueStrings.length];
+        for (int i = 0; i < valueStrings.length; i++)
+            values[i] = Double.parseDouble(valueStrings[i]);
+        return values;
+    }
+
+}
@@ -0,0 +1,127 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+import cy.com.nicpoyia.rbf.network.TrainingTestingResults;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Class representing a single configuration evaluated by a hyperparameter
+ * search. Trials are trained incrementally, so that a trial that survives a
+ * successive halving rung continues from where it stopped.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class SearchTrial implements Comparable<SearchTrial> {
+    // Trial configuration
+    private final Configuration configuration;
+    // Trained network, released once the trial is eliminated
+    private RBFNetwork network;
+    // Number of epochs trained so far
+    private long epochsTrained;
+    // Errors after the latest epoch
+    private double trainingError = Double.NaN;
+    private double testingError = Double.NaN;
+
+    /**
+     * Constructs a trial, creating its network over the shared data matrix.
+     *
+     * @param configuration Trial configuration
+     * @param dataMatrix    Shared data matrix
+     */
+    public SearchTrial(Configuration configuration, CompoundDataMatrix dataMatrix) {
+        this.configuration = configuration;
+        this.network = new RBFNetwork(configuration, dataMatrix);
+    }
+
+    /**
+     * Configuration getter method.
+     *
+     * @return Trial configuration
+     */
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Trained epochs getter method.
+     *
+     * @return Number of epochs trained so far
+     */
+    public long getEpochsTrained() {
+        return epochsTrained;
+    }
+
+    /**
+     * Training error getter method.
+     *
+     * @return Training error after the latest epoch
+     */
+    public double getTrainingError() {
+        return trainingError;
+    }
+
+    /**
+     * Testing error getter method.
+     *
+     * @return Testing error after the latest epoch
+     */
+    public double getTestingError() {
+        return testingError;
+    }
+
+    /**
+     * Creates a task that trains the trial up to a total number of epochs.
+     *
+     * @param totalEpochs Total number of epochs
+     * @return Training task
+     */
+    public Callable<SearchTrial> trainUpTo(final long totalEpochs) {
+        return new Callable<SearchTrial>() {
+            @Override
+            public SearchTrial call() {
+                network.executeEpochs(totalEpochs - epochsTrained);
+                epochsTrained = totalEpochs;
+                TrainingTestingResults results = network.getResults();
+                trainingError = results.getLastTrainingError();
+                testingError = results.getLastTestingError();
+                return SearchTrial.this;
+            }
+        };
+    }
+
+    /**
+     * Releases the trial's network, once the trial will not be trained any
+     * further.
+     */
+    public void release() {
+        network = null;
+    }
+
+    /**
+     * Orders trials by testing error (diverged trials last).
+     *
+     * @param other Trial to compare with
+     * @return Comparison result
+     */
+    @Override
+    public int compareTo(SearchTrial other) {
+        return Double.compare(testingError, other.testingError);
+    }
+
+    /**
+     * Generates a string representation of the trial.
+     *
+     * @return Trial string
+     */
+    @Override
+    public String toString() {
+        return "testingError=" + testingError + " trainingError=" + trainingError + " epochs=" + epochsTrained
+                + " numHiddenLayerNeurons=" + configuration.numHiddenLayerNeurons + " sigma="
+                + configuration.sigmas[0] + " learningRates=" + Arrays.toString(configuration.learningRates);
+    }
+
+}
@@ -0,0 +1,269 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataHandler;
+import cy.com.nicpoyia.rbf.compound_activity_data.CompoundDataMatrix;
+import cy.com.nicpoyia.rbf.network.Configuration;
+import cy.com.nicpoyia.rbf.network.RBFNetwork;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class representing a long-lived training daemon, which runs the training
+ * jobs dropped into a job directory inside one warm JVM. A job is a file named
+ * "name.job" of parameter lines, overriding the daemon's base configuration.
+ * The daemon claims a job by renaming it to "name.job.running", trains it on a
+ * bounded thread pool, writes the centres it starts from, its results,
+ * weights, model and a summary (or the error) into the "name" directory, and
+ * finally renames the job to "name.job.done" or "name.job.failed". Jobs are
+ * claimed in name order, only while the pool's queue has room, so that the
+ * rest wait in the directory. Data matrices are cached between jobs, per data
+ * file and principal components setting, so jobs sharing a data file also
+ * share its training and testing separation.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class TrainingDaemon {
+    // Job file suffixes
+    private static final String jobSuffix = ".job";
+    private static final String runningSuffix = ".running";
+    private static final String doneSuffix = ".done";
+    private static final String failedSuffix = ".failed";
+    // Maximum number of cached data matrices
+    private static final int maxCachedDataMatrices = 4;
+    // Base configuration, overridden by each job
+    private final Configuration baseConfiguration;
+    // Job directory
+    private final File jobsDirectory;
+    // Time between job directory scans (ms)
+    private final long pollIntervalMillis;
+    // Threads training the jobs, with a bounded queue
+    private final ThreadPoolExecutor executor;
+    // Data matrices by data file, outputs and projection, least recently used first (guarded by itself)
+    private final Map<String, CompoundDataMatrix> dataMatrixCache;
+    // Counters
+    private final AtomicInteger numOfCompletedJobs = new AtomicInteger();
+    private final AtomicInteger numOfFailedJobs = new AtomicInteger();
+    private final AtomicInteger numOfDataMatrixLoads = new AtomicInteger();
+    // Whether the daemon has been stopped (guarded by this)
+    private boolean stopped;
+
+    /**
+     * Constructs a training daemon.
+     *
+     * @param baseConfiguration  Base configuration, overridden by each job
+     * @param jobsDirectory      Job directory
+     * @param numThreads         Number of jobs trained concurrently
+     * @param maxQueuedJobs      Maximum number of claimed jobs waiting for a thread
+     * @param pollIntervalMillis Time between job directory scans (ms)
+     */
+    public TrainingDaemon(Configuration baseConfiguration, String jobsDirectory, int numThreads, int maxQueuedJobs,
+                          long pollIntervalMillis) {
+        this.jobsDirectory = new File(jobsDirectory);
+        if (!this.jobsDirectory.isDirectory())
+            throw new IllegalArgumentException("Job directory not found: " + jobsDirectory);
+        this.baseConfiguration = new Configuration(baseConfiguration);
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, maxQueuedJobs)));
+        this.dataMatrixCache = new LinkedHashMap<String, CompoundDataMatrix>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompoundDataMatrix> eldest) {
+                return size() > maxCachedDataMatrices;
+            }
+        };
+    }
+
+    /**
+     * Number of completed jobs getter method.
+     *
+     * @return Number of jobs completed so far
+     */
+    public int getNumOfCompletedJobs() {
+        return numOfCompletedJobs.get();
+    }
+
+    /**
+     * Number of failed jobs getter method.
+     *
+     * @return Number of jobs failed so far
+     */
+    public int getNumOfFailedJobs() {
+        return numOfFailedJobs.get();
+    }
+
+    /**
+     * Number of data matrix loads getter method.
+     *
+     * @return Number of data matrices loaded so far, the rest of the jobs used cached ones
+     */
+    public int getNumOfDataMatrixLoads() {
+        return numOfDataMatrixLoads.get();
+    }
+
+    /**
+     * Runs the daemon until it is stopped, then waits for the claimed jobs to
+     * finish. Jobs left running by a previous daemon are claimed again.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void run() throws InterruptedException {
+        for (File runningFile : listFiles(jobSuffix + runningSuffix)) {
+            String jobFilename = runningFile.getName();
+            runningFile.renameTo(new File(jobsDirectory, jobFilename.substring(0,
+                    jobFilename.length() - runningSuffix.length())));
+        }
+        try {
+            synchronized (this) {
+                while (!stopped) {
+                    claimJobs();
+                    wait(pollIntervalMillis);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops claiming jobs. Claimed jobs are still trained.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Claims jobs from the job directory, in name order, while the pool's
+     * queue has room.
+     */
+    private void claimJobs() {
+        for (File jobFile : listFiles(jobSuffix)) {
+            if (executor.getQueue().remainingCapacity() == 0)
+                return;
+            String jobFilename = jobFile.getName();
+            final String jobName = jobFilename.substring(0, jobFilename.length() - jobSuffix.length());
+            final File runningFile = new File(jobsDirectory, jobFilename + runningSuffix);
+            // Renaming claims the job, a job being written or already claimed is skipped
+            if (!jobFile.renameTo(runningFile))
+                continue;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(jobName, runningFile);
+                }
+            });
+        }
+    }
+
+    /**
+     * Trains a job and stores its outputs.
+     *
+     * @param jobName     Job name
+     * @param runningFile Claimed job file
+     */
+    private void runJob(String jobName, File runningFile) {
+        File outputDirectory = new File(jobsDirectory, jobName);
+        outputDirectory.mkdirs();
+        String jobFilename = jobName + jobSuffix;
+        try {
+            long startTime = System.currentTimeMillis();
+            Configuration configuration = new Configuration(baseConfiguration);
+            BufferedReader jobReader = new BufferedReader(new InputStreamReader(new FileInputStream(runningFile)));
+            try {
+                configuration.readParameters(jobReader);
+            } finally {
+                jobReader.close();
+            }
+            configuration.centresFile = new File(outputDirectory, "centres.txt").getPath();
+            configuration.resultsFile = new File(outputDirectory, "results.txt").getPath();
+            configuration.weightsFile = new File(outputDirectory, "weights.txt").getPath();
+            configuration.modelFile = new File(outputDirectory, "model.bin").getPath();
+            RBFNetwork network = new RBFNetwork(configuration, getDataMatrix(configuration));
+            // The network selects its own centres, loading a data matrix does not write them for cached ones
+            network.saveCentres(configuration.centresFile);
+            network.executeTrainingAndTesting();
+            PrintWriter summaryWriter = new PrintWriter(new File(outputDirectory, "summary.txt"));
+            summaryWriter.println("iterations " + network.getResults().getNumOfIterations());
+            summaryWriter.println("trainingError " + network.getResults().getLastTrainingError());
+            summaryWriter.println("testingError " + network.getResults().getLastTestingError());
+            summaryWriter.println("elapsedMillis " + (System.currentTimeMillis() - startTime));
+            summaryWriter.close();
+            runningFile.renameTo(new File(jobsDirectory, jobFilename + doneSuffix));
+            numOfCompletedJobs.incrementAndGet();
+        } catch (Exception e) {
+            try {
+                PrintWriter errorWriter = new PrintWriter(new File(outputDirectory, "error.txt"));
+                e.printStackTrace(errorWriter);
+                errorWriter.close();
+            } catch (FileNotFoundException writeError) {
+                System.err.println("Error while writing the error of job " + jobName + " (" + writeError.getMessage()
+                        + ")");
+            }
+            System.err.println("Job " + jobName + " failed (" + e + ")");
+            runningFile.renameTo(new File(jobsDirectory, jobFilename + failedSuffix));
+            numOfFailedJobs.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the data matrix of a job's data file, loading it unless it is
+     * cached with the same number of outputs and projection. A principal
+     * components projection sets the configuration's
+     * number of inputs, as loading does.
+     *
+     * @param configuration Job configuration
+     * @return Data matrix
+     * @throws Exception If the data file could not be loaded
+     */
+    private CompoundDataMatrix getDataMatrix(Configuration configuration) throws Exception {
+        File dataFile = new File(configuration.dataFile);
+        String cacheKey = dataFile.getAbsolutePath() + " " + dataFile.lastModified() + " " + dataFile.length() + " "
+                + configuration.numOutputNeurons + " " + configuration.pcaComponents + " "
+                + configuration.pcaVarianceThreshold;
+        CompoundDataMatrix dataMatrix;
+        synchronized (dataMatrixCache) {
+            dataMatrix = dataMatrixCache.get(cacheKey);
+            if (dataMatrix == null) {
+                dataMatrix = new CompoundDataHandler(configuration).getDataMatrix();
+                dataMatrixCache.put(cacheKey, dataMatrix);
+                numOfDataMatrixLoads.incrementAndGet();
+            }
+        }
+        if (dataMatrix.getNormalizationTransform().getPrincipalComponents() != null)
+            configuration.numInputNeurons = dataMatrix.getNumOfAttributes();
+        return dataMatrix;
+    }
+
+    /**
+     * Lists the job directory's files with a suffix, in name order.
+     *
+     * @param suffix File name suffix
+     * @return Files
+     */
+    private File[] listFiles(String suffix) {
+        File[] files = jobsDirectory.listFiles();
+        if (files == null)
+            return new File[0];
+        int numOfMatches = 0;
+        for (File file : files)
+            if (file.isFile() && file.getName().endsWith(suffix))
+                files[numOfMatches++] = file;
+        File[] matches = Arrays.copyOf(files, numOfMatches);
+        Arrays.sort(matches);
+        return matches;
+    }
+
+}
@@ -0,0 +1,78 @@
+package cy.com.nicpoyia.rbf.training;
+
+import cy.com.nicpoyia.rbf.network.Configuration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+/**
+ * Test Driver class for TrainingDaemon class. Drops jobs with different
+ * learning rates, and an invalid one, into a temporary job directory, and
+ * prints the summary of each job once the daemon has run them all, together
+ * with the number of centres saved into its directory.
+ *
+ * @author Nicolas Poyiadjis
+ */
+public class TrainingDaemonTest {
+    // Test settings
+    private static final int numOfJobs = 8;
+    private static final int numThreads = 2;
+    private static final int maxQueuedJobs = 2;
+
+    /**
+     * Test Driver
+     *
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        File jobsDirectory = Files.createTempDirectory("rbf-jobs").toFile();
+        for (int job = 0; job < numOfJobs; job++) {
+            PrintWriter jobWriter = new PrintWriter(new File(jobsDirectory, "job" + job + ".job"));
+            jobWriter.println("learningRates " + (0.002 * (job + 1)) + ",0.0,0.0");
+            jobWriter.println("maxIterations 200");
+            jobWriter.close();
+        }
+        PrintWriter invalidJobWriter = new PrintWriter(new File(jobsDirectory, "invalid.job"));
+        invalidJobWriter.println("unknownParameter 1");
+        invalidJobWriter.close();
+        final TrainingDaemon daemon = new TrainingDaemon(new Configuration(), jobsDirectory.getPath(), numThreads,
+                maxQueuedJobs, 50);
+        Thread daemonThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        long startTime = System.currentTimeMillis();
+        daemonThread.start();
+        while (daemon.getNumOfCompletedJobs() + daemon.getNumOfFailedJobs() < numOfJobs + 1)
+            Thread.sleep(10);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        daemon.stop();
+        daemonThread.join();
+        for (int job = 0; job < numOfJobs; job++) {
+            StringBuilder summary = new StringBuilder();
+            BufferedReader summaryReader = new BufferedReader(new FileReader(
+                    new File(new File(jobsDirectory, "job" + job), "summary.txt")));
+            String nextLine;
+            while ((nextLine = summaryReader.readLine()) != null)
+                summary.append(nextLine).append("; ");
+            summaryReader.close();
+            int numOfCentres = Files.readAllLines(new File(new File(jobsDirectory, "job" + job), "centres.txt")
+                    .toPath()).size();
+            System.out.println("job" + job + ": " + summary + "centres " + numOfCentres);
+        }
+        System.out.println("Invalid job failed: " + new File(jobsDirectory, "invalid.job.failed").exists());
+        System.out.println(daemon.getNumOfCompletedJobs() + " jobs completed, " + daemon.getNumOfFailedJobs()
+                + " failed, " + daemon.getNumOfDataMatrixLoads() + " data matrix loads, in " + elapsedTime + " ms");
+        System.out.println("Job directory: " + jobsDirectory);
+    }
+
+}
@@ -0,0 +1,125 @@
+package cy.com.nicpoyia.rbf.training;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary protocol between a distributed training coordinator and its workers.
+ * Each message is a type byte followed by its fields, written with data
+ * streams:
+ * <ul>
+ * <li>HELLO (worker): magic number, version, number of data-sets</li>
+ * <li>ASSIGN (coordinator): shard, number of parameters, shard rows</li>
+ * <li>REJECT (coordinator): reason</li>
+ * <li>ROUND (coordinator): round, number of epochs, parameter vector</li>
+ * <li>RESULT (worker): round, number of patterns, training error, parameter vector</li>
+ * <li>STOP (coordinator)</li>
+ * </ul>
+ * Vectors are written as their length followed by their values.
+ *
+ * @author Nicolas Poyiadjis
+ */
+final class TrainingProtocol {
+    // Protocol signature ("RBFT")
+    static final int magicNumber = 0x52424654;
+    // Protocol version
+    static final int protocolVersion = 1;
+    // Message types
+    static final byte helloMessage = 1;
+    static final byte assignMessage = 2;
+    static final byte rejectMessage = 3;
+    static final byte roundMessage = 4;
+    static final byte resultMessage = 5;
+    static final byte stopMessage = 6;
+    // Largest accepted vector length, guarding against corrupt messages
+    private static final int maxVectorLength = 1 << 26;
+
+    /**
+     * Not instantiable.
+     */
+    private TrainingProtocol() {
+    }
+
+    /**
+     * Reads a message type, failing if it is not the expected one.
+     *
+     * @param reader       Data input stream
+     * @param expectedType Expected message type
+     * @throws IOException If the message could not be read or is of another type
+     */
+    static void readMessageType(DataInputStream reader, byte expectedType) throws IOException {
+        byte messageType = reader.readByte();
+        if (messageType != expectedType)
+            throw new IOException("Unexpected message type " + messageType + " (expected " + expectedType + ")");
+    }
+
+    /**
+     * Writes a vector.
+     *
+     * @param writer Data output stream
+     * @param vector Vector
+     * @throws IOException If the vector could not be written
+     */
+    static void writeVector(DataOutputStream writer, double[] vector) throws IOException {
+        writer.writeInt(vector.length);
+        for (double value : vector)
+            writer.writeDouble(value);
+    }
+
+    /**
+     * Reads a vector.
+     *
+     * @param reader Data input stream
+     * @return Vector
+     * @throws IOException If the vector could not be read or its length is invalid
+     */
+    static double[] readVector(DataInputStream reader) throws IOException {
+        double[] vector = new double[readLength(reader)];
+        for (int i = 0; i < vector.length; i++)
+            vector[i] = reader.readDouble();
+        return vector;
+    }
+
+    /**
+     * Writes an index array.
+     *
+     * @param writer  Data output stream
+     * @param indices Indices
+     * @throws IOException If the indices could not be written
+     */
+    static void writeIndices(DataOutputStream writer, int[] indices) throws IOException {
+        writer.writeInt(indices.length);
+        for (int index : indices)
+            writer.writeInt(index);
+    }
+
+    /**
+     * Reads an index array.
+     *
+     * @param reader Data input stream
+     * @return Indices
+     * @throws IOException If the indices could not be read or their length is invalid
+     */
+    static int[] readIndices(DataInputStream reader) throws IOException {
+        int[] indices = new int[readLength(reader)];
+        for (int i = 0; i < indices.length; i++)
+            indices[i] = reader.readInt();
+        return indices;
+    }
+
+    /**
+     * Reads and checks an array length.
+     *
+     * @param reader Data input stream
+     * @return Array length
+     * @throws IOException If the length could not be read or is invalid
+     */
+    private static int readLength(DataInputStream reader) throws IOException {
+        int length = reader.readInt();
+        if ((length < 0) || (length > maxVectorLength))
+            throw new IOException("Invalid array length: " + length);
+        return length;
+    }
+
+}
@@ -0,0 +1,165 @@
+package cy.com.nicpoyia.rbf.network;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the hot VectorKernels kernels, packaged into
+ * META-INF/versions/16 of the multi-release JAR. The kernels are only used
+ * when the JVM has been started with --add-modules jdk.incubator.vector;
+ * otherwise the Vector API is reported as unavailable and the scalar kernels
+ * are run instead. The kernels themselves live in a nested class, which is only
+ * loaded (and verified against the Vector API) once the module is known to
+ * have been added.
+ *
+ * @author Nicolas Poyiadjis
+ */
+final class VectorApiKernels {
+    // Whether the Vector API module has been added to the JVM
+    private static final boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Not instantiable.
+     */
+    private VectorApiKernels() {
+    }
+
+    /**
+     * Number of lanes getter method.
+     *
+     * @return Number of double lanes of the Vector API kernels (0: Vector API not available)
+     */
+    static int getNumOfLanes() {
+        return available ? Simd.doubleSpecies.length() : 0;
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * centre stored as a row of a flat matrix.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    static double squaredDistance(double[] input, double[] centres, int centreOffset, int length) {
+        if (!available)
+            return VectorKernels.scalarSquaredDistance(input, centres, centreOffset, length);
+        return Simd.squaredDistance(input, centres, centreOffset, length);
+    }
+
+    /**
+     * Calculates the squared euclidean distance between an input vector and a
+     * single precision centre stored as a row of a flat matrix.
+     *
+     * @param input        Input vector
+     * @param centres      Flat centres matrix
+     * @param centreOffset Index of the centre's first coordinate
+     * @param length       Number of coordinates
+     * @return Squared euclidean distance
+     */
+    static double squaredDistance(double[] input, float[] centres, int centreOffset, int length) {
+        if (!available)
+            return VectorKernels.scalarSquaredDistance(input, centres, centreOffset, length);
+        return Simd.squaredDistance(input, centres, centreOffset, length);
+    }
+
+    /**
+     * Adds a basis-weighted coefficient vector to an output vector.
+     *
+     * @param basisValue   Basis function value
+     * @param coefficients Output coefficients
+     * @param outputVector Output vector to accumulate into
+     */
+    static void accumulateWeighted(double basisValue, double[] coefficients, double[] outputVector) {
+        if (!available)
+            VectorKernels.scalarAccumulateWeighted(basisValue, coefficients, outputVector);
+        else
+            Simd.accumulateWeighted(basisValue, coefficients, outputVector);
+    }
+
+    /**
+     * Moves a centre towards (or away from) an input vector.
+     *
+     * @param factor Update factor
+     * @param input  Input vector
+     * @param centre Centre vector to update
+     */
+    static void updateCentre(double factor, double[] input, double[] centre) {
+        if (!available)
+            VectorKernels.scalarUpdateCentre(factor, input, centre);
+        else
+            Simd.updateCentre(factor, input, centre);
+    }
+
+    /**
+     * Class holding the vector species and the Vector API kernels.
+     */
+    private static final class Simd {
+        // Preferred double species, and the float species of as many lanes
+        static final VectorSpecies<Double> doubleSpecies = DoubleVector.SPECIES_PREFERRED;
+        static final VectorSpecies<Float> floatSpecies = VectorSpecies.of(float.class,
+                VectorShape.forBitSize(doubleSpecies.vectorBitSize() / 2));
+
+        static double squaredDistance(double[] input, double[] centres, int centreOffset, int length) {
+            DoubleVector sums = DoubleVector.zero(doubleSpecies);
+            int i = 0;
+            for (int upperBound = doubleSpecies.loopBound(length); i < upperBound; i += doubleSpecies.length()) {
+                DoubleVector difference = DoubleVector.fromArray(doubleSpecies, input, i)
+                        .sub(DoubleVector.fromArray(doubleSpecies, centres, centreOffset + i));
+                sums = sums.add(difference.mul(difference));
+            }
+            double sum = sums.reduceLanes(VectorOperators.ADD);
+            for (; i < length; i++) {
+                double d = input[i] - centres[centreOffset + i];
+                sum += d * d;
+            }
+            return sum;
+        }
+
+        // Centre coordinates are widened to double lanes before subtracting
+        static double squaredDistance(double[] input, float[] centres, int centreOffset, int length) {
+            DoubleVector sums = DoubleVector.zero(doubleSpecies);
+            int i = 0;
+            for (int upperBound = doubleSpecies.loopBound(length); i < upperBound; i += doubleSpecies.length()) {
+                DoubleVector centre = (DoubleVector) FloatVector.fromArray(floatSpecies, centres, centreOffset + i)
+                        .convertShape(VectorOperators.F2D, doubleSpecies, 0);
+                DoubleVector difference = DoubleVector.fromArray(doubleSpecies, input, i).sub(centre);
+                sums = sums.add(difference.mul(difference));
+            }
+            double sum = sums.reduceLanes(VectorOperators.ADD);
+            for (; i < length; i++) {
+                double d = input[i] - centres[centreOffset + i];
+                sum += d * d;
+            }
+            return sum;
+        }
+
+        static void accumulateWeighted(double basisValue, double[] coefficients, double[] outputVector) {
+            int length = outputVector.length;
+            int i = 0;
+            for (int upperBound = doubleSpecies.loopBound(length); i < upperBound; i += doubleSpecies.length())
+                DoubleVector.fromArray(doubleSpecies, coefficients, i).mul(basisValue)
+                        .add(DoubleVector.fromArray(doubleSpecies, outputVector, i)).intoArray(outputVector, i);
+            for (; i < length; i++)
+                outputVector[i] += coefficients[i] * basisValue;
+        }
+
+        static void updateCentre(double factor, double[] input, double[] centre) {
+            int length = centre.length;
+            int i = 0;
+            for (int upperBound = doubleSpecies.loopBound(length); i < upperBound; i += doubleSpecies.length()) {
+                DoubleVector centreVector = DoubleVector.fromArray(doubleSpecies, centre, i);
+                DoubleVector.fromArray(doubleSpecies, input, i).sub(centreVector).mul(factor).add(centreVector)
+                        .intoArray(centre, i);
+            }
+            for (; i < length; i++)
+                centre[i] += factor * (input[i] - centre[i]);
+        }
+    }
+
+}